@@ -171,6 +171,10 @@ public abstract class AbstractByteBuf extends ByteBuf {
         return this;
     }
 
+    final void discardMarks() {
+        markedReaderIndex = markedWriterIndex = 0;
+    }
+
     @Override
     public ByteBuf discardReadBytes() {
         ensureAccessible();
@@ -644,6 +648,14 @@ public abstract class AbstractByteBuf extends ByteBuf {
         return slice;
     }
 
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        checkReadableBytes(length);
+        ByteBuf slice = retainedSlice(readerIndex, length);
+        readerIndex += length;
+        return slice;
+    }
+
     @Override
     public ByteBuf readBytes(byte[] dst, int dstIndex, int length) {
         checkReadableBytes(length);
@@ -907,6 +919,23 @@ public abstract class AbstractByteBuf extends ByteBuf {
         return new SlicedByteBuf(this, index, length);
     }
 
+    @Override
+    public ByteBuf retainedDuplicate() {
+        ensureAccessible();
+        return PooledDuplicatedByteBuf.newInstance(this, this, readerIndex, writerIndex);
+    }
+
+    @Override
+    public ByteBuf retainedSlice() {
+        return retainedSlice(readerIndex, readableBytes());
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        checkIndex(index, length);
+        return PooledSlicedByteBuf.newInstance(this, this, index, length);
+    }
+
     @Override
     public ByteBuffer nioBuffer() {
         return nioBuffer(readerIndex, readableBytes());
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.Recycler.Handle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Abstract base class for derived {@link ByteBuf} implementations which are recycled once released and keep
+ * their parent retained until then.  Instances are created by {@link ByteBuf#retainedSlice()},
+ * {@link ByteBuf#retainedDuplicate()} and friends.
+ */
+abstract class AbstractPooledDerivedByteBuf extends AbstractReferenceCountedByteBuf {
+
+    private final Handle<AbstractPooledDerivedByteBuf> recyclerHandle;
+
+    /**
+     * The buffer all operations are delegated to.
+     */
+    ByteBuf buffer;
+
+    /**
+     * The buffer which was retained when this buffer was created and which is released on deallocation.
+     * This is usually the buffer on which the derived buffer was requested, which may differ from {@link #buffer}
+     * if the request was made on a wrapper or on another derived buffer.
+     */
+    private ByteBuf parent;
+
+    @SuppressWarnings("unchecked")
+    protected AbstractPooledDerivedByteBuf(Handle<? extends AbstractPooledDerivedByteBuf> recyclerHandle) {
+        super(0);
+        this.recyclerHandle = (Handle<AbstractPooledDerivedByteBuf>) recyclerHandle;
+    }
+
+    final void init(ByteBuf buffer, ByteBuf parent, int readerIndex, int writerIndex, int maxCapacity) {
+        parent.retain();
+        this.parent = parent;
+        this.buffer = buffer;
+
+        setRefCnt(1);
+        maxCapacity(maxCapacity);
+        discardMarks();
+        setIndex(readerIndex, writerIndex);
+    }
+
+    @Override
+    protected final void deallocate() {
+        // Clear the references before recycling as this instance may be handed out again right away.
+        ByteBuf parent = this.parent;
+        this.parent = null;
+        buffer = null;
+        recyclerHandle.recycle(this);
+        parent.release();
+    }
+
+    @Override
+    public final ByteBuf unwrap() {
+        return buffer;
+    }
+
+    @Override
+    public final ByteBufAllocator alloc() {
+        return buffer.alloc();
+    }
+
+    @Override
+    public final ByteOrder order() {
+        return buffer.order();
+    }
+
+    @Override
+    public final boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    @Override
+    public final boolean hasArray() {
+        return buffer.hasArray();
+    }
+
+    @Override
+    public final byte[] array() {
+        return buffer.array();
+    }
+
+    @Override
+    public final boolean hasMemoryAddress() {
+        return buffer.hasMemoryAddress();
+    }
+
+    @Override
+    public final int nioBufferCount() {
+        return buffer.nioBufferCount();
+    }
+
+    @Override
+    public final ByteBuffer internalNioBuffer(int index, int length) {
+        return nioBuffer(index, length);
+    }
+}
@@ -71,6 +71,29 @@ final class AdvancedLeakAwareByteBuf extends WrappedByteBuf {
         return new AdvancedLeakAwareByteBuf(super.readSlice(length), leak);
     }
 
+    @Override
+    public ByteBuf retainedSlice() {
+        return retainedSlice(readerIndex(), readableBytes());
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        leak.record();
+        return PooledSlicedByteBuf.newInstance(unwrap(), this, index, length);
+    }
+
+    @Override
+    public ByteBuf retainedDuplicate() {
+        leak.record();
+        return PooledDuplicatedByteBuf.newInstance(unwrap(), this, readerIndex(), writerIndex());
+    }
+
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        skipBytes(length);
+        return retainedSlice(readerIndex() - length, length);
+    }
+
     @Override
     public ByteBuf discardReadBytes() {
         leak.record();
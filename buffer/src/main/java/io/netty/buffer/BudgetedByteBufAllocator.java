@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * A {@link ByteBufAllocator} which keeps track of the direct memory it allocates and may enforce a hard limit on it.
+ * Once the limit is reached, any further allocation of direct memory fails with a
+ * {@link DirectMemoryBudgetExceededException} instead of pushing the JVM into an {@link OutOfMemoryError}, and
+ * transports can use {@link #usedDirectMemory()} to stop reading before this happens.
+ */
+public interface BudgetedByteBufAllocator extends ByteBufAllocator {
+
+    /**
+     * Returns the maximum number of bytes of direct memory this allocator may allocate, or {@code 0} if it is not
+     * limited.
+     */
+    long maxDirectMemory();
+
+    /**
+     * Returns the number of bytes of direct memory which are currently allocated by this allocator. For a pooling
+     * allocator this includes the memory of pooled chunks which are not used by any buffer at the moment.
+     */
+    long usedDirectMemory();
+
+    /**
+     * Gives back the direct memory which is allocated but not used by any buffer at the moment, like the unused
+     * chunks of a pooling allocator, regardless of how long the memory was unused. Call this when
+     * {@link #usedDirectMemory()} needs to reflect the memory that is really in use, for example before deciding
+     * whether a high usage is gone.
+     *
+     * <p>As giving back memory defeats the purpose of a pool, an implementation may do so at most once per interval
+     * no matter how many callers ask for it, and return {@code 0} for the calls in between.</p>
+     *
+     * @return the number of bytes that were given back.
+     */
+    long releaseUnusedDirectMemory();
+}
@@ -1201,6 +1201,22 @@ public abstract class ByteBuf implements ReferenceCounted, Comparable<ByteBuf> {
      */
     public abstract ByteBuf readSlice(int length);
 
+    /**
+     * Returns a new retained slice of this buffer's sub-region starting at the current
+     * {@code readerIndex} and increases the {@code readerIndex} by the size
+     * of the new slice (= {@code length}).  Unlike {@link #readSlice(int)}, the
+     * returned slice has its own reference count and retains this buffer until
+     * it is released, so the caller must {@link #release()} it once done.
+     *
+     * @param length the size of the new slice
+     *
+     * @return the newly created slice
+     *
+     * @throws IndexOutOfBoundsException
+     *         if {@code length} is greater than {@code this.readableBytes}
+     */
+    public abstract ByteBuf readRetainedSlice(int length);
+
     /**
      * Transfers this buffer's data to the specified destination starting at
      * the current {@code readerIndex} until the destination becomes
@@ -1683,6 +1699,37 @@ public abstract class ByteBuf implements ReferenceCounted, Comparable<ByteBuf> {
      */
     public abstract ByteBuf duplicate();
 
+    /**
+     * Returns a retained slice of this buffer's readable bytes.  This method is
+     * identical to {@code buf.retainedSlice(buf.readerIndex(), buf.readableBytes())}.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of
+     * this buffer.
+     *
+     * @see #retainedSlice(int, int)
+     */
+    public abstract ByteBuf retainedSlice();
+
+    /**
+     * Returns a retained slice of this buffer's sub-region.  The returned buffer
+     * behaves like {@link #slice(int, int)}, but has its own reference count which
+     * starts at {@code 1}.  It retains this buffer on creation and releases it again
+     * once its own reference count drops to {@code 0}, so the caller must
+     * {@link #release()} it once done.  Implementations may recycle the returned
+     * instance, hence it must not be accessed anymore after it was released.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of
+     * this buffer.
+     */
+    public abstract ByteBuf retainedSlice(int index, int length);
+
+    /**
+     * Returns a retained buffer which shares the whole region of this buffer.
+     * The returned buffer behaves like {@link #duplicate()}, but has its own
+     * reference count as described in {@link #retainedSlice(int, int)}.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of
+     * this buffer.
+     */
+    public abstract ByteBuf retainedDuplicate();
+
     /**
      * Returns the maximum number of NIO {@link ByteBuffer}s that consist this buffer.  Note that {@link #nioBuffers()}
      * or {@link #nioBuffers(int, int)} might return a less number of {@link ByteBuffer}s.
@@ -20,6 +20,7 @@ import io.netty.util.ByteString;
 import io.netty.util.CharsetUtil;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
+import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -50,6 +51,22 @@ public final class ByteBufUtil {
 
     private static final int THREAD_LOCAL_BUFFER_SIZE;
 
+    // If multiple bytes can be read at once from arrays and memory addresses in the native byte order.
+    private static final boolean UNALIGNED = PlatformDependent.isUnaligned();
+    private static final boolean BIG_ENDIAN_NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    private static final long SWAR_LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    // The minimal needle and haystack lengths for which indexOf(ByteBuf, ByteBuf) builds a Boyer-Moore-Horspool table.
+    private static final int BMH_MIN_NEEDLE_LENGTH = 4;
+    private static final int BMH_MIN_HAYSTACK_LENGTH = 256;
+
+    private static final FastThreadLocal<int[]> BMH_SKIP_TABLE = new FastThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() throws Exception {
+            return new int[256];
+        }
+    };
+
     static {
         final char[] DIGITS = "0123456789abcdef".toCharArray();
         for (int i = 0; i < 256; i ++) {
@@ -195,6 +212,10 @@ public final class ByteBufUtil {
             return false;
         }
 
+        if (UNALIGNED && length >= 8 && hasUnsafeAccess(a) && hasUnsafeAccess(b)) {
+            return equalsUnsafe((AbstractByteBuf) a, aStartIndex, (AbstractByteBuf) b, bStartIndex, length);
+        }
+
         final int longCount = length >>> 3;
         final int byteCount = length & 7;
 
@@ -227,6 +248,75 @@ public final class ByteBufUtil {
         return true;
     }
 
+    private static boolean equalsUnsafe(AbstractByteBuf a, int aStartIndex, AbstractByteBuf b, int bStartIndex,
+                                        int length) {
+        a.checkIndex(aStartIndex, length);
+        b.checkIndex(bStartIndex, length);
+        if (a.hasArray() && b.hasArray()) {
+            return PlatformDependent.equals(a.array(), a.arrayOffset() + aStartIndex,
+                                            a.arrayOffset() + aStartIndex + length,
+                                            b.array(), b.arrayOffset() + bStartIndex,
+                                            b.arrayOffset() + bStartIndex + length);
+        }
+
+        // Bytes are equal if and only if the words are equal, no matter in which byte order they are read.
+        final byte[] aArray = a.hasArray() ? a.array() : null;
+        final long aBase = aArray != null ? a.arrayOffset() : a.memoryAddress();
+        final byte[] bArray = b.hasArray() ? b.array() : null;
+        final long bBase = bArray != null ? b.arrayOffset() : b.memoryAddress();
+        final int byteCount = length & 7;
+        final int longEnd = length - byteCount;
+        for (int i = 0; i < longEnd; i += 8) {
+            if (getLongUnsafe(aArray, aBase + aStartIndex + i) != getLongUnsafe(bArray, bBase + bStartIndex + i)) {
+                return false;
+            }
+        }
+        for (int i = longEnd; i < length; i ++) {
+            if (a._getByte(aStartIndex + i) != b._getByte(bStartIndex + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if multiple bytes of the given buffer can be read at once in the native byte order via
+     * {@link #getLongUnsafe(byte[], long)}.
+     */
+    private static boolean hasUnsafeAccess(ByteBuf buf) {
+        return buf instanceof AbstractByteBuf && (buf.hasArray() || buf.hasMemoryAddress());
+    }
+
+    /**
+     * Reads 8 bytes in the native byte order, either from {@code array} at index {@code pos} or, if {@code array} is
+     * {@code null}, from the memory address {@code pos}.
+     */
+    private static long getLongUnsafe(byte[] array, long pos) {
+        return array != null ? PlatformDependent.getLong(array, (int) pos) : PlatformDependent.getLong(pos);
+    }
+
+    /**
+     * Returns a word which has the highest bit of a byte set if and only if the same byte of {@code word} is equal to
+     * the byte which is repeated in {@code pattern}. This is exact, as no carry can cross a byte boundary.
+     */
+    private static long matchBytes(long word, long pattern) {
+        long input = word ^ pattern;
+        long tmp = (input & SWAR_LOW_BITS) + SWAR_LOW_BITS;
+        return ~(tmp | input | SWAR_LOW_BITS);
+    }
+
+    private static long compilePattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    private static int firstMatch(long match, boolean bigEndian) {
+        return (bigEndian ? Long.numberOfLeadingZeros(match) : Long.numberOfTrailingZeros(match)) >>> 3;
+    }
+
+    private static int lastMatch(long match, boolean bigEndian) {
+        return 7 - ((bigEndian ? Long.numberOfTrailingZeros(match) : Long.numberOfLeadingZeros(match)) >>> 3);
+    }
+
     /**
      * Returns {@code true} if and only if the two specified buffers are
      * identical to each other as described in {@link ByteBuf#equals(Object)}.
@@ -254,6 +344,12 @@ public final class ByteBufUtil {
         int aIndex = bufferA.readerIndex();
         int bIndex = bufferB.readerIndex();
 
+        if (UNALIGNED && minLength >= 8 && bufferA.order() == ByteOrder.BIG_ENDIAN &&
+            bufferB.order() == ByteOrder.BIG_ENDIAN && hasUnsafeAccess(bufferA) && hasUnsafeAccess(bufferB)) {
+            int res = compareUnsafe((AbstractByteBuf) bufferA, aIndex, (AbstractByteBuf) bufferB, bIndex, minLength);
+            return res != 0 ? res : aLen - bLen;
+        }
+
         if (bufferA.order() == bufferB.order()) {
             for (int i = uintCount; i > 0; i --) {
                 long va = bufferA.getUnsignedInt(aIndex);
@@ -298,6 +394,111 @@ public final class ByteBufUtil {
         return aLen - bLen;
     }
 
+    /**
+     * Compares {@code length} bytes of the two buffers lexicographically, 8 bytes at once.
+     */
+    private static int compareUnsafe(AbstractByteBuf a, int aIndex, AbstractByteBuf b, int bIndex, int length) {
+        a.checkIndex(aIndex, length);
+        b.checkIndex(bIndex, length);
+        final byte[] aArray = a.hasArray() ? a.array() : null;
+        final long aBase = (aArray != null ? a.arrayOffset() : a.memoryAddress()) + aIndex;
+        final byte[] bArray = b.hasArray() ? b.array() : null;
+        final long bBase = (bArray != null ? b.arrayOffset() : b.memoryAddress()) + bIndex;
+        final int byteCount = length & 7;
+        final int longEnd = length - byteCount;
+        for (int i = 0; i < longEnd; i += 8) {
+            long va = getLongUnsafe(aArray, aBase + i);
+            long vb = getLongUnsafe(bArray, bBase + i);
+            if (va != vb) {
+                if (!BIG_ENDIAN_NATIVE_ORDER) {
+                    va = Long.reverseBytes(va);
+                    vb = Long.reverseBytes(vb);
+                }
+                // Compare as unsigned values.
+                return va + Long.MIN_VALUE < vb + Long.MIN_VALUE ? -1 : 1;
+            }
+        }
+        for (int i = longEnd; i < length; i ++) {
+            int va = a._getByte(aIndex + i) & 0xFF;
+            int vb = b._getByte(bIndex + i) & 0xFF;
+            if (va != vb) {
+                return va < vb ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the readable bytes of {@code needle} in the readable bytes of
+     * {@code haystack}, or {@code -1} if {@code needle} was not found. Long needles are searched via the
+     * Boyer-Moore-Horspool algorithm, which skips up to the length of the needle per mismatch.
+     */
+    public static int indexOf(ByteBuf needle, ByteBuf haystack) {
+        final int needleLength = needle.readableBytes();
+        final int fromIndex = haystack.readerIndex();
+        final int toIndex = haystack.writerIndex();
+        if (needleLength == 0) {
+            return fromIndex;
+        }
+        if (needleLength > toIndex - fromIndex) {
+            return -1;
+        }
+        final int needleStart = needle.readerIndex();
+        final byte first = needle.getByte(needleStart);
+        if (needleLength < BMH_MIN_NEEDLE_LENGTH || toIndex - fromIndex < BMH_MIN_HAYSTACK_LENGTH) {
+            // Look for the first byte of the needle via SWAR and compare the rest.
+            final int lastIndex = toIndex - needleLength;
+            for (int i = fromIndex; i <= lastIndex; i ++) {
+                i = firstIndexOf(haystack, i, lastIndex + 1, first);
+                if (i < 0) {
+                    break;
+                }
+                if (equals(haystack, i + 1, needle, needleStart + 1, needleLength - 1)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return indexOfBmh(needle, needleStart, needleLength, haystack, fromIndex, toIndex);
+    }
+
+    private static int indexOfBmh(ByteBuf needle, int needleStart, int needleLength,
+                                  ByteBuf haystack, int fromIndex, int toIndex) {
+        final int last = needleLength - 1;
+        final byte[] pattern;
+        final int patternOffset;
+        if (needle.hasArray()) {
+            pattern = needle.array();
+            patternOffset = needle.arrayOffset() + needleStart;
+        } else {
+            pattern = getBytes(needle, needleStart, needleLength);
+            patternOffset = 0;
+        }
+
+        // The number of bytes to skip if the byte at the end of the window is not the last one of the needle.
+        final int[] skip = BMH_SKIP_TABLE.get();
+        Arrays.fill(skip, needleLength);
+        for (int i = 0; i < last; i ++) {
+            skip[pattern[patternOffset + i] & 0xFF] = last - i;
+        }
+
+        final byte lastByte = pattern[patternOffset + last];
+        for (int i = fromIndex; i <= toIndex - needleLength;) {
+            byte b = haystack.getByte(i + last);
+            if (b == lastByte) {
+                int j = last - 1;
+                while (j >= 0 && haystack.getByte(i + j) == pattern[patternOffset + j]) {
+                    j --;
+                }
+                if (j < 0) {
+                    return i;
+                }
+            }
+            i += skip[b & 0xFF];
+        }
+        return -1;
+    }
+
     /**
      * The default implementation of {@link ByteBuf#indexOf(int, int, byte)}.
      * This method is useful when implementing a new buffer type.
@@ -365,6 +566,16 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        // Search 8 bytes at once as long as they are within the capacity.
+        final int swarLength = Math.min(toIndex, buffer.capacity()) - fromIndex & ~7;
+        if (swarLength != 0 && buffer instanceof AbstractByteBuf) {
+            int index = firstIndexOfSwar((AbstractByteBuf) buffer, fromIndex, fromIndex + swarLength, value);
+            if (index >= 0) {
+                return index;
+            }
+            fromIndex += swarLength;
+        }
+
         for (int i = fromIndex; i < toIndex; i ++) {
             if (buffer.getByte(i) == value) {
                 return i;
@@ -380,6 +591,16 @@ public final class ByteBufUtil {
             return -1;
         }
 
+        // Search 8 bytes at once as long as they are within the bounds of the buffer.
+        final int swarLength = fromIndex - Math.max(toIndex, 0) & ~7;
+        if (swarLength > 0 && buffer instanceof AbstractByteBuf) {
+            int index = lastIndexOfSwar((AbstractByteBuf) buffer, fromIndex - swarLength, fromIndex, value);
+            if (index >= 0) {
+                return index;
+            }
+            fromIndex -= swarLength;
+        }
+
         for (int i = fromIndex - 1; i >= toIndex; i --) {
             if (buffer.getByte(i) == value) {
                 return i;
@@ -389,6 +610,60 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * Searches the given range, whose length must be a multiple of 8, 8 bytes at once.
+     */
+    private static int firstIndexOfSwar(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        buffer.checkIndex(fromIndex, toIndex - fromIndex);
+        final long pattern = compilePattern(value);
+        if (UNALIGNED && (buffer.hasArray() || buffer.hasMemoryAddress())) {
+            final byte[] array = buffer.hasArray() ? buffer.array() : null;
+            final long base = array != null ? buffer.arrayOffset() : buffer.memoryAddress();
+            for (int i = fromIndex; i < toIndex; i += 8) {
+                long match = matchBytes(getLongUnsafe(array, base + i), pattern);
+                if (match != 0) {
+                    return i + firstMatch(match, BIG_ENDIAN_NATIVE_ORDER);
+                }
+            }
+        } else {
+            final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+            for (int i = fromIndex; i < toIndex; i += 8) {
+                long match = matchBytes(buffer._getLong(i), pattern);
+                if (match != 0) {
+                    return i + firstMatch(match, bigEndian);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches the given range, whose length must be a multiple of 8, backwards 8 bytes at once.
+     */
+    private static int lastIndexOfSwar(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        buffer.checkIndex(fromIndex, toIndex - fromIndex);
+        final long pattern = compilePattern(value);
+        if (UNALIGNED && (buffer.hasArray() || buffer.hasMemoryAddress())) {
+            final byte[] array = buffer.hasArray() ? buffer.array() : null;
+            final long base = array != null ? buffer.arrayOffset() : buffer.memoryAddress();
+            for (int i = toIndex - 8; i >= fromIndex; i -= 8) {
+                long match = matchBytes(getLongUnsafe(array, base + i), pattern);
+                if (match != 0) {
+                    return i + lastMatch(match, BIG_ENDIAN_NATIVE_ORDER);
+                }
+            }
+        } else {
+            final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+            for (int i = toIndex - 8; i >= fromIndex; i -= 8) {
+                long match = matchBytes(buffer._getLong(i), pattern);
+                if (match != 0) {
+                    return i + lastMatch(match, bigEndian);
+                }
+            }
+        }
+        return -1;
+    }
+
     /**
      * Encode a {@link CharSequence} in <a href="http://en.wikipedia.org/wiki/UTF-8">UTF-8</a> and write
      * it to a {@link ByteBuf}.
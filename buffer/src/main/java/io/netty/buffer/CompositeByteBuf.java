@@ -16,6 +16,8 @@
 package io.netty.buffer;
 
 import io.netty.util.ResourceLeak;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.EmptyArrays;
 
 import java.io.IOException;
@@ -26,11 +28,11 @@ import java.nio.ByteOrder;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ScatteringByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 
 /**
  * A virtual buffer which shows multiple buffers as a single merged buffer.  It is recommended to use
@@ -41,12 +43,26 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     private static final ByteBuffer EMPTY_NIO_BUFFER = Unpooled.EMPTY_BUFFER.nioBuffer();
 
+    private static final int MAX_CACHED_GATHER_BUFFERS = 1024;
+    // Reused by getBytes(int, GatheringByteChannel, int). This is per thread as duplicates may be read concurrently.
+    private static final FastThreadLocal<ByteBuffer[]> GATHER_BUFFERS = new FastThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() throws Exception {
+            return new ByteBuffer[16];
+        }
+    };
+
     private final ResourceLeak leak;
     private final ByteBufAllocator alloc;
     private final boolean direct;
-    private final List<Component> components = new ArrayList<Component>();
     private final int maxNumComponents;
 
+    // The components are kept in a flat array, ordered by their offsets.
+    private Component[] components;
+    private int componentCount;
+    // The index of the component which was looked up last, as most accesses are sequential.
+    private int lastAccessedComponentId;
+
     private boolean freed;
 
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents) {
@@ -57,6 +73,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        components = newComponentArray(maxNumComponents, 0);
         leak = leakDetector.open(this);
     }
 
@@ -73,6 +90,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        components = newComponentArray(maxNumComponents, buffers.length);
 
         addComponents0(0, buffers);
         consolidateIfNeeded();
@@ -94,12 +112,54 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        components = newComponentArray(maxNumComponents, 0);
         addComponents0(0, buffers);
         consolidateIfNeeded();
         setIndex(0, capacity());
         leak = leakDetector.open(this);
     }
 
+    private static Component[] newComponentArray(int maxNumComponents, int initialComponents) {
+        // One more than the maximum, as the components are only consolidated after they were added.
+        return new Component[Math.max(initialComponents, Math.min(Math.max(maxNumComponents, 0) + 1, 16))];
+    }
+
+    /**
+     * Inserts the given {@link Component} at the given index and moves the following components.
+     */
+    private void addComp(int i, Component c) {
+        Component[] components = this.components;
+        int size = componentCount;
+        if (size == components.length) {
+            Component[] newComponents = new Component[Math.max(size << 1, 4)];
+            System.arraycopy(components, 0, newComponents, 0, i);
+            System.arraycopy(components, i, newComponents, i + 1, size - i);
+            this.components = components = newComponents;
+        } else if (i < size) {
+            System.arraycopy(components, i, components, i + 1, size - i);
+        }
+        components[i] = c;
+        componentCount = size + 1;
+    }
+
+    /**
+     * Removes the components from index {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    private void removeCompRange(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int size = componentCount;
+        if (to < size) {
+            System.arraycopy(components, to, components, from, size - to);
+        }
+        int newSize = size - to + from;
+        for (int i = newSize; i < size; i ++) {
+            components[i] = null;
+        }
+        componentCount = newSize;
+    }
+
     /**
      * Add the given {@link ByteBuf}.
      *
@@ -109,7 +169,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param buffer the {@link ByteBuf} to add
      */
     public CompositeByteBuf addComponent(ByteBuf buffer) {
-        addComponent0(components.size(), buffer);
+        addComponent0(componentCount, buffer);
         consolidateIfNeeded();
         return this;
     }
@@ -123,7 +183,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param buffers the {@link ByteBuf}s to add
      */
     public CompositeByteBuf addComponents(ByteBuf... buffers) {
-        addComponents0(components.size(), buffers);
+        addComponents0(componentCount, buffers);
         consolidateIfNeeded();
         return this;
     }
@@ -137,7 +197,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param buffers the {@link ByteBuf}s to add
      */
     public CompositeByteBuf addComponents(Iterable<ByteBuf> buffers) {
-        addComponents0(components.size(), buffers);
+        addComponents0(componentCount, buffers);
         consolidateIfNeeded();
         return this;
     }
@@ -168,17 +228,17 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         // No need to consolidate - just add a component to the list.
         Component c = new Component(buffer.order(ByteOrder.BIG_ENDIAN).slice());
-        if (cIndex == components.size()) {
-            components.add(c);
+        if (cIndex == componentCount) {
+            addComp(cIndex, c);
             if (cIndex == 0) {
                 c.endOffset = readableBytes;
             } else {
-                Component prev = components.get(cIndex - 1);
+                Component prev = components[cIndex - 1];
                 c.offset = prev.endOffset;
                 c.endOffset = c.offset + readableBytes;
             }
         } else {
-            components.add(cIndex, c);
+            addComp(cIndex, c);
             if (readableBytes != 0) {
                 updateComponentOffsets(cIndex);
             }
@@ -214,7 +274,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 break;
             }
             cIndex = addComponent0(cIndex, b) + 1;
-            int size = components.size();
+            int size = componentCount;
             if (cIndex > size) {
                 cIndex = size;
             }
@@ -266,52 +326,52 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private void consolidateIfNeeded() {
         // Consolidate if the number of components will exceed the allowed maximum by the current
         // operation.
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents > maxNumComponents) {
-            final int capacity = components.get(numComponents - 1).endOffset;
+            final int capacity = components[numComponents - 1].endOffset;
 
             ByteBuf consolidated = allocBuffer(capacity);
 
             // We're not using foreach to avoid creating an iterator.
             for (int i = 0; i < numComponents; i ++) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf b = c.buf;
                 consolidated.writeBytes(b);
                 c.freeIfNecessary();
             }
             Component c = new Component(consolidated);
             c.endOffset = c.length;
-            components.clear();
-            components.add(c);
+            removeCompRange(0, numComponents);
+            addComp(0, c);
         }
     }
 
     private void checkComponentIndex(int cIndex) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex > components.size()) {
+        if (cIndex < 0 || cIndex > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d (expected: >= 0 && <= numComponents(%d))",
-                    cIndex, components.size()));
+                    cIndex, componentCount));
         }
     }
 
     private void checkComponentIndex(int cIndex, int numComponents) {
         ensureAccessible();
-        if (cIndex < 0 || cIndex + numComponents > components.size()) {
+        if (cIndex < 0 || cIndex + numComponents > componentCount) {
             throw new IndexOutOfBoundsException(String.format(
                     "cIndex: %d, numComponents: %d " +
                     "(expected: cIndex >= 0 && cIndex + numComponents <= totalNumComponents(%d))",
-                    cIndex, numComponents, components.size()));
+                    cIndex, numComponents, componentCount));
         }
     }
 
     private void updateComponentOffsets(int cIndex) {
-        int size = components.size();
+        int size = componentCount;
         if (size <= cIndex) {
             return;
         }
 
-        Component c = components.get(cIndex);
+        Component c = components[cIndex];
         if (cIndex == 0) {
             c.offset = 0;
             c.endOffset = c.length;
@@ -319,8 +379,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         for (int i = cIndex; i < size; i ++) {
-            Component prev = components.get(i - 1);
-            Component cur = components.get(i);
+            Component prev = components[i - 1];
+            Component cur = components[i];
             cur.offset = prev.endOffset;
             cur.endOffset = cur.offset + cur.length;
         }
@@ -332,8 +392,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param cIndex the index on from which the {@link ByteBuf} will be remove
      */
     public CompositeByteBuf removeComponent(int cIndex) {
-        checkComponentIndex(cIndex);
-        Component comp = components.remove(cIndex);
+        checkComponentIndex(cIndex, 1);
+        Component comp = components[cIndex];
+        removeCompRange(cIndex, cIndex + 1);
         comp.freeIfNecessary();
         if (comp.length > 0) {
             // Only need to call updateComponentOffsets if the length was > 0
@@ -354,15 +415,16 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (numComponents == 0) {
             return this;
         }
-        List<Component> toRemove = components.subList(cIndex, cIndex + numComponents);
+        int endIndex = cIndex + numComponents;
         boolean needsUpdate = false;
-        for (Component c: toRemove) {
+        for (int i = cIndex; i < endIndex; i ++) {
+            Component c = components[i];
             if (c.length > 0) {
                 needsUpdate = true;
             }
             c.freeIfNecessary();
         }
-        toRemove.clear();
+        removeCompRange(cIndex, endIndex);
 
         if (needsUpdate) {
             // Only need to call updateComponentOffsets if the length was > 0
@@ -374,9 +436,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     @Override
     public Iterator<ByteBuf> iterator() {
         ensureAccessible();
-        List<ByteBuf> list = new ArrayList<ByteBuf>(components.size());
-        for (Component c: components) {
-            list.add(c.buf);
+        int size = componentCount;
+        List<ByteBuf> list = new ArrayList<ByteBuf>(size);
+        for (int i = 0; i < size; i ++) {
+            list.add(components[i].buf);
         }
         return list.iterator();
     }
@@ -391,10 +454,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         int componentId = toComponentIndex(offset);
-        List<ByteBuf> slice = new ArrayList<ByteBuf>(components.size());
+        List<ByteBuf> slice = new ArrayList<ByteBuf>(componentCount);
 
         // The first component
-        Component firstC = components.get(componentId);
+        Component firstC = components[componentId];
         ByteBuf first = firstC.buf.duplicate();
         first.readerIndex(offset - firstC.offset);
 
@@ -414,7 +477,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 componentId ++;
 
                 // Fetch the next component.
-                buf = components.get(componentId).buf.duplicate();
+                buf = components[componentId].buf.duplicate();
             }
         } while (bytesToSlice > 0);
 
@@ -428,12 +491,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean isDirect() {
-        int size = components.size();
+        int size = componentCount;
         if (size == 0) {
             return false;
         }
         for (int i = 0; i < size; i++) {
-           if (!components.get(i).buf.isDirect()) {
+           if (!components[i].buf.isDirect()) {
                return false;
            }
         }
@@ -442,11 +505,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasArray() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return true;
         case 1:
-            return components.get(0).buf.hasArray();
+            return components[0].buf.hasArray();
         default:
             return false;
         }
@@ -454,11 +517,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public byte[] array() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EmptyArrays.EMPTY_BYTES;
         case 1:
-            return components.get(0).buf.array();
+            return components[0].buf.array();
         default:
             throw new UnsupportedOperationException();
         }
@@ -466,11 +529,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int arrayOffset() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 0;
         case 1:
-            return components.get(0).buf.arrayOffset();
+            return components[0].buf.arrayOffset();
         default:
             throw new UnsupportedOperationException();
         }
@@ -478,11 +541,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public boolean hasMemoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.hasMemoryAddress();
         case 1:
-            return components.get(0).buf.hasMemoryAddress();
+            return components[0].buf.hasMemoryAddress();
         default:
             return false;
         }
@@ -490,11 +553,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public long memoryAddress() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return Unpooled.EMPTY_BUFFER.memoryAddress();
         case 1:
-            return components.get(0).buf.memoryAddress();
+            return components[0].buf.memoryAddress();
         default:
             throw new UnsupportedOperationException();
         }
@@ -502,11 +565,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public int capacity() {
-        final int numComponents = components.size();
+        final int numComponents = componentCount;
         if (numComponents == 0) {
             return 0;
         }
-        return components.get(numComponents - 1).endOffset;
+        return components[numComponents - 1].endOffset;
     }
 
     @Override
@@ -520,26 +583,26 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         if (newCapacity > oldCapacity) {
             final int paddingLength = newCapacity - oldCapacity;
             ByteBuf padding;
-            int nComponents = components.size();
+            int nComponents = componentCount;
             if (nComponents < maxNumComponents) {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
-                addComponent0(components.size(), padding);
+                addComponent0(componentCount, padding);
             } else {
                 padding = allocBuffer(paddingLength);
                 padding.setIndex(0, paddingLength);
                 // FIXME: No need to create a padding buffer and consolidate.
                 // Just create a big single buffer and put the current content there.
-                addComponent0(components.size(), padding);
+                addComponent0(componentCount, padding);
                 consolidateIfNeeded();
             }
         } else if (newCapacity < oldCapacity) {
             int bytesToTrim = oldCapacity - newCapacity;
-            for (ListIterator<Component> i = components.listIterator(components.size()); i.hasPrevious();) {
-                Component c = i.previous();
+            int i = componentCount - 1;
+            for (; i >= 0; i --) {
+                Component c = components[i];
                 if (bytesToTrim >= c.length) {
                     bytesToTrim -= c.length;
-                    i.remove();
                     continue;
                 }
 
@@ -547,9 +610,10 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 Component newC = new Component(c.buf.slice(0, c.length - bytesToTrim));
                 newC.offset = c.offset;
                 newC.endOffset = newC.offset + newC.length;
-                i.set(newC);
+                components[i] = newC;
                 break;
             }
+            removeCompRange(i + 1, componentCount);
 
             if (readerIndex() > newCapacity) {
                 setIndex(newCapacity, newCapacity);
@@ -574,7 +638,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * Return the current number of {@link ByteBuf}'s that are composed in this instance
      */
     public int numComponents() {
-        return components.size();
+        return componentCount;
     }
 
     /**
@@ -589,15 +653,29 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      */
     public int toComponentIndex(int offset) {
         checkIndex(offset);
+        return toComponentIndex0(offset);
+    }
+
+    private int toComponentIndex0(int offset) {
+        Component[] components = this.components;
+        int lastAccessed = lastAccessedComponentId;
+        if (lastAccessed < componentCount) {
+            Component c = components[lastAccessed];
+            if (offset >= c.offset && offset < c.endOffset) {
+                return lastAccessed;
+            }
+        }
 
-        for (int low = 0, high = components.size(); low <= high;) {
+        for (int low = 0, high = componentCount - 1; low <= high;) {
             int mid = low + high >>> 1;
-            Component c = components.get(mid);
+            Component c = components[mid];
             if (offset >= c.endOffset) {
                 low = mid + 1;
             } else if (offset < c.offset) {
                 high = mid - 1;
             } else {
+                assert c.length != 0;
+                lastAccessedComponentId = mid;
                 return mid;
             }
         }
@@ -606,8 +684,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     }
 
     public int toByteIndex(int cIndex) {
-        checkComponentIndex(cIndex);
-        return components.get(cIndex).offset;
+        checkComponentIndex(cIndex, 1);
+        return components[cIndex].offset;
     }
 
     @Override
@@ -678,7 +756,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -704,7 +782,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf s = c.buf;
                 int adjustment = c.offset;
                 int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -729,7 +807,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -748,13 +826,33 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int count = nioBufferCount();
         if (count == 1) {
             return out.write(internalNioBuffer(index, length));
-        } else {
-            long writtenBytes = out.write(nioBuffers(index, length));
+        }
+
+        checkIndex(index, length);
+        if (length == 0) {
+            return out.write(EMPTY_NIO_BUFFER);
+        }
+
+        // Gather into an array which is reused, as it is only needed for the duration of the write.
+        ByteBuffer[] buffers = GATHER_BUFFERS.get();
+        if (buffers.length < count) {
+            buffers = new ByteBuffer[Math.max(count, buffers.length << 1)];
+            if (count <= MAX_CACHED_GATHER_BUFFERS) {
+                GATHER_BUFFERS.set(buffers);
+            }
+        }
+        int numBuffers = 0;
+        try {
+            numBuffers = nioBuffers0(index, length, buffers);
+            long writtenBytes = out.write(buffers, 0, numBuffers);
             if (writtenBytes > Integer.MAX_VALUE) {
                 return Integer.MAX_VALUE;
             } else {
                 return (int) writtenBytes;
             }
+        } finally {
+            // Do not retain the buffers of the components.
+            Arrays.fill(buffers, 0, numBuffers, null);
         }
     }
 
@@ -767,7 +865,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -876,7 +974,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -902,7 +1000,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         try {
             while (length > 0) {
-                Component c = components.get(i);
+                Component c = components[i];
                 ByteBuf s = c.buf;
                 int adjustment = c.offset;
                 int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -927,7 +1025,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         int i = toComponentIndex(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -951,7 +1049,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int readBytes = 0;
 
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -989,7 +1087,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = toComponentIndex(index);
         int readBytes = 0;
         do {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1037,7 +1135,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         int i = componentId;
 
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1078,8 +1176,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
      * @param cIndex the index for which the {@link ByteBuf} should be returned
      */
     public ByteBuf internalComponent(int cIndex) {
-        checkComponentIndex(cIndex);
-        return components.get(cIndex).buf;
+        checkComponentIndex(cIndex, 1);
+        return components[cIndex].buf;
     }
 
     /**
@@ -1094,35 +1192,21 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     private Component findComponent(int offset) {
         checkIndex(offset);
-
-        for (int low = 0, high = components.size(); low <= high;) {
-            int mid = low + high >>> 1;
-            Component c = components.get(mid);
-            if (offset >= c.endOffset) {
-                low = mid + 1;
-            } else if (offset < c.offset) {
-                high = mid - 1;
-            } else {
-                assert c.length != 0;
-                return c;
-            }
-        }
-
-        throw new Error("should not reach here");
+        return components[toComponentIndex0(offset)];
     }
 
     @Override
     public int nioBufferCount() {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return 1;
         case 1:
-            return components.get(0).buf.nioBufferCount();
+            return components[0].buf.nioBufferCount();
         default:
             int count = 0;
-            int componentsCount = components.size();
+            int componentsCount = componentCount;
             for (int i = 0; i < componentsCount; i++) {
-                Component c = components.get(i);
+                Component c = components[i];
                 count += c.buf.nioBufferCount();
             }
             return count;
@@ -1131,11 +1215,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     @Override
     public ByteBuffer internalNioBuffer(int index, int length) {
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            return components.get(0).buf.internalNioBuffer(index, length);
+            return components[0].buf.internalNioBuffer(index, length);
         default:
             throw new UnsupportedOperationException();
         }
@@ -1145,13 +1229,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public ByteBuffer nioBuffer(int index, int length) {
         checkIndex(index, length);
 
-        switch (components.size()) {
+        switch (componentCount) {
         case 0:
             return EMPTY_NIO_BUFFER;
         case 1:
-            ByteBuf buf = components.get(0).buf;
+            ByteBuf buf = components[0].buf;
             if (buf.nioBufferCount() == 1) {
-                return components.get(0).buf.nioBuffer(index, length);
+                return components[0].buf.nioBuffer(index, length);
             }
         }
 
@@ -1173,10 +1257,33 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return new ByteBuffer[] { EMPTY_NIO_BUFFER };
         }
 
-        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(components.size());
-        int i = toComponentIndex(index);
+        // Count the buffers first, so they can be filled into an array of the right size directly.
+        int count = 0;
+        int i = toComponentIndex0(index);
+        int bytesToCount = length + index - components[i].offset;
+        do {
+            Component c = components[i ++];
+            count += c.buf.nioBufferCount();
+            bytesToCount -= c.length;
+        } while (bytesToCount > 0);
+
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        int numBuffers = nioBuffers0(index, length, buffers);
+        if (numBuffers < count) {
+            // A component returned less buffers for the range than it has in total.
+            buffers = Arrays.copyOf(buffers, numBuffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * Fills the {@link ByteBuffer}s of the given non-empty range into {@code buffers} and returns their number.
+     */
+    private int nioBuffers0(int index, int length, ByteBuffer[] buffers) {
+        int numBuffers = 0;
+        int i = toComponentIndex0(index);
         while (length > 0) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf s = c.buf;
             int adjustment = c.offset;
             int localLength = Math.min(length, s.capacity() - (index - adjustment));
@@ -1184,18 +1291,65 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
                 case 0:
                     throw new UnsupportedOperationException();
                 case 1:
-                    buffers.add(s.nioBuffer(index - adjustment, localLength));
+                    buffers[numBuffers ++] = s.nioBuffer(index - adjustment, localLength);
                     break;
                 default:
-                    Collections.addAll(buffers, s.nioBuffers(index - adjustment, localLength));
+                    ByteBuffer[] componentBuffers = s.nioBuffers(index - adjustment, localLength);
+                    System.arraycopy(componentBuffers, 0, buffers, numBuffers, componentBuffers.length);
+                    numBuffers += componentBuffers.length;
             }
 
             index += localLength;
             length -= localLength;
             i ++;
         }
+        return numBuffers;
+    }
+
+    /**
+     * Visits the readable bytes of this buffer component by component.
+     *
+     * @return {@code -1} if all components were visited, or the index of the first byte of the component at which
+     *         the {@link ComponentVisitor} returned {@code false}.
+     */
+    public int forEachComponent(ComponentVisitor visitor) {
+        return forEachComponent(readerIndex(), readableBytes(), visitor);
+    }
+
+    /**
+     * Visits the specified area of this buffer component by component, without creating slices of the components.
+     *
+     * @return {@code -1} if all components were visited, or the index of the first byte of the component at which
+     *         the {@link ComponentVisitor} returned {@code false}.
+     */
+    public int forEachComponent(int index, int length, ComponentVisitor visitor) {
+        checkIndex(index, length);
+        if (visitor == null) {
+            throw new NullPointerException("visitor");
+        }
+        if (length == 0) {
+            return -1;
+        }
 
-        return buffers.toArray(new ByteBuffer[buffers.size()]);
+        int i = toComponentIndex0(index);
+        try {
+            while (length > 0) {
+                Component c = components[i ++];
+                if (c.length == 0) {
+                    continue;
+                }
+                int adjustment = c.offset;
+                int localLength = Math.min(length, c.length - (index - adjustment));
+                if (!visitor.visit(c.buf, index - adjustment, localLength)) {
+                    return index;
+                }
+                index += localLength;
+                length -= localLength;
+            }
+        } catch (Exception e) {
+            PlatformDependent.throwException(e);
+        }
+        return -1;
     }
 
     /**
@@ -1208,19 +1362,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             return this;
         }
 
-        final Component last = components.get(numComponents - 1);
+        final Component last = components[numComponents - 1];
         final int capacity = last.endOffset;
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = 0; i < numComponents; i ++) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf b = c.buf;
             consolidated.writeBytes(b);
             c.freeIfNecessary();
         }
 
-        components.clear();
-        components.add(new Component(consolidated));
+        removeCompRange(1, numComponents);
+        components[0] = new Component(consolidated);
         updateComponentOffsets(0);
         return this;
     }
@@ -1238,19 +1392,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         final int endCIndex = cIndex + numComponents;
-        final Component last = components.get(endCIndex - 1);
-        final int capacity = last.endOffset - components.get(cIndex).offset;
+        final Component last = components[endCIndex - 1];
+        final int capacity = last.endOffset - components[cIndex].offset;
         final ByteBuf consolidated = allocBuffer(capacity);
 
         for (int i = cIndex; i < endCIndex; i ++) {
-            Component c = components.get(i);
+            Component c = components[i];
             ByteBuf b = c.buf;
             consolidated.writeBytes(b);
             c.freeIfNecessary();
         }
 
-        components.subList(cIndex + 1, endCIndex).clear();
-        components.set(cIndex, new Component(consolidated));
+        removeCompRange(cIndex + 1, endCIndex);
+        components[cIndex] = new Component(consolidated);
         updateComponentOffsets(cIndex);
         return this;
     }
@@ -1268,10 +1422,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            for (Component c: components) {
-                c.freeIfNecessary();
+            int size = componentCount;
+            for (int i = 0; i < size; i ++) {
+                components[i].freeIfNecessary();
             }
-            components.clear();
+            removeCompRange(0, size);
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1280,12 +1435,12 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
-        components.subList(0, firstComponentId).clear();
+        removeCompRange(0, firstComponentId);
 
         // Update indexes and markers.
-        Component first = components.get(0);
+        Component first = components[0];
         int offset = first.offset;
         updateComponentOffsets(0);
         setIndex(readerIndex - offset, writerIndex - offset);
@@ -1304,10 +1459,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Discard everything if (readerIndex = writerIndex = capacity).
         int writerIndex = writerIndex();
         if (readerIndex == writerIndex && writerIndex == capacity()) {
-            for (Component c: components) {
-                c.freeIfNecessary();
+            int size = componentCount;
+            for (int i = 0; i < size; i ++) {
+                components[i].freeIfNecessary();
             }
-            components.clear();
+            removeCompRange(0, size);
             setIndex(0, 0);
             adjustMarkers(readerIndex);
             return this;
@@ -1316,19 +1472,19 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // Remove read components.
         int firstComponentId = toComponentIndex(readerIndex);
         for (int i = 0; i < firstComponentId; i ++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
-        components.subList(0, firstComponentId).clear();
+        removeCompRange(0, firstComponentId);
 
         // Remove or replace the first readable component with a new slice.
-        Component c = components.get(0);
+        Component c = components[0];
         int adjustment = readerIndex - c.offset;
         if (adjustment == c.length) {
             // new slice would be empty, so remove instead
-            components.remove(0);
+            removeCompRange(0, 1);
         } else {
             Component newC = new Component(c.buf.slice(adjustment, c.length - adjustment));
-            components.set(0, newC);
+            components[0] = newC;
         }
 
         // Update indexes and markers.
@@ -1349,7 +1505,22 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     public String toString() {
         String result = super.toString();
         result = result.substring(0, result.length() - 1);
-        return result + ", components=" + components.size() + ')';
+        return result + ", components=" + componentCount + ')';
+    }
+
+    /**
+     * Visits the components of a {@link CompositeByteBuf}.
+     *
+     * @see #forEachComponent(int, int, ComponentVisitor)
+     */
+    public interface ComponentVisitor {
+        /**
+         * Visits {@code length} bytes of the given component, starting at {@code index}. The indexes of the
+         * component must not be modified.
+         *
+         * @return {@code true} if the next component should be visited, {@code false} to stop.
+         */
+        boolean visit(ByteBuf component, int index, int length) throws Exception;
     }
 
     private static final class Component {
@@ -1632,11 +1803,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         freed = true;
-        int size = components.size();
+        int size = componentCount;
         // We're not using foreach to avoid creating an iterator.
         // see https://github.com/netty/netty/issues/2642
         for (int i = 0; i < size; i++) {
-            components.get(i).freeIfNecessary();
+            components[i].freeIfNecessary();
         }
 
         if (leak != null) {
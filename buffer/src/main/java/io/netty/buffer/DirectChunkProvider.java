@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Provides the direct memory of the pooled chunks of a {@link PoolArena.DirectArena}.
+ */
+abstract class DirectChunkProvider {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DirectChunkProvider.class);
+
+    /**
+     * Allocates chunks via {@link ByteBuffer#allocateDirect(int)} and so backs them with normal pages.
+     */
+    static final DirectChunkProvider DEFAULT = new DirectChunkProvider() {
+        @Override
+        ByteBuffer allocate(int chunkSize) {
+            return ByteBuffer.allocateDirect(chunkSize);
+        }
+
+        @Override
+        void free(ByteBuffer memory) {
+            PlatformDependent.freeDirectBuffer(memory);
+        }
+
+        @Override
+        public String toString() {
+            return "default";
+        }
+    };
+
+    /**
+     * Returns the {@link DirectChunkProvider} which is configured by {@code hugePages}, or {@link #DEFAULT} if huge
+     * pages are not used or can not be used on this platform.
+     *
+     * @param hugePages    {@code ""} to not use huge pages, {@code "transparent"} to align chunks to the huge page size
+     *                     so they can be backed by transparent huge pages, or the path of a hugetlbfs mount point.
+     * @param hugePageSize the size of a huge page in bytes.
+     */
+    static DirectChunkProvider newInstance(String hugePages, int hugePageSize) {
+        if (hugePages == null || hugePages.isEmpty()) {
+            return DEFAULT;
+        }
+        if (hugePageSize <= 0 || (hugePageSize & hugePageSize - 1) != 0) {
+            logger.debug("Not using huge pages: hugePageSize {} is not a power of 2", hugePageSize);
+            return DEFAULT;
+        }
+        if ("transparent".equals(hugePages)) {
+            if (!PlatformDependent.hasUnsafe()) {
+                logger.debug("Not using transparent huge pages: sun.misc.Unsafe unavailable");
+                return DEFAULT;
+            }
+            return new Aligned(hugePageSize);
+        }
+        File dir = new File(hugePages);
+        if (!dir.isDirectory() || !dir.canWrite()) {
+            logger.debug("Not using huge pages: {} is not a writable directory", dir);
+            return DEFAULT;
+        }
+        return new MappedFile(dir, hugePageSize);
+    }
+
+    /**
+     * Allocates the memory of a new chunk.
+     */
+    abstract ByteBuffer allocate(int chunkSize);
+
+    /**
+     * Frees the memory of a chunk which was {@linkplain #allocate(int) allocated} by this provider.
+     */
+    abstract void free(ByteBuffer memory);
+
+    /**
+     * Returns the number of bytes of direct memory which {@link #allocate(int)} really allocates for a chunk of
+     * {@code chunkSize} bytes.
+     */
+    int allocationSize(int chunkSize) {
+        return chunkSize;
+    }
+
+    /**
+     * Aligns the memory of each chunk to the huge page size, so the kernel can back it with transparent huge pages
+     * when they are enabled for all anonymous memory. This wastes up to one huge page per chunk.
+     */
+    static final class Aligned extends DirectChunkProvider {
+        private final int alignment;
+        // Maps the aligned memory of each chunk to the buffer which must be freed.
+        private final Map<ByteBuffer, ByteBuffer> allocations = new IdentityHashMap<ByteBuffer, ByteBuffer>();
+
+        Aligned(int alignment) {
+            this.alignment = alignment;
+        }
+
+        @Override
+        ByteBuffer allocate(int chunkSize) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(allocationSize(chunkSize));
+            long address = PlatformDependent.directBufferAddress(buffer);
+            int offset = (int) (-address & alignment - 1);
+            buffer.position(offset).limit(offset + chunkSize);
+            ByteBuffer memory = buffer.slice();
+            synchronized (allocations) {
+                allocations.put(memory, buffer);
+            }
+            return memory;
+        }
+
+        @Override
+        void free(ByteBuffer memory) {
+            ByteBuffer buffer;
+            synchronized (allocations) {
+                buffer = allocations.remove(memory);
+            }
+            PlatformDependent.freeDirectBuffer(buffer != null ? buffer : memory);
+        }
+
+        @Override
+        int allocationSize(int chunkSize) {
+            return chunkSize + alignment;
+        }
+
+        @Override
+        public String toString() {
+            return "transparent(alignment: " + alignment + ')';
+        }
+    }
+
+    /**
+     * Maps the memory of each chunk from a file in a hugetlbfs mount point. The file is removed right after it was
+     * mapped, so the memory is given back once the chunk is unmapped. Falls back to {@link #DEFAULT} if the chunk
+     * size is not a multiple of the huge page size or no huge page is left.
+     */
+    static final class MappedFile extends DirectChunkProvider {
+        private final File dir;
+        private final int hugePageSize;
+
+        MappedFile(File dir, int hugePageSize) {
+            this.dir = dir;
+            this.hugePageSize = hugePageSize;
+        }
+
+        @Override
+        ByteBuffer allocate(int chunkSize) {
+            if ((chunkSize & hugePageSize - 1) != 0) {
+                return DEFAULT.allocate(chunkSize);
+            }
+            try {
+                return map(chunkSize);
+            } catch (IOException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Failed to map a chunk from " + dir + ", falling back to normal pages", e);
+                }
+                return DEFAULT.allocate(chunkSize);
+            }
+        }
+
+        private ByteBuffer map(int chunkSize) throws IOException {
+            File file = File.createTempFile("netty-chunk-", null, dir);
+            try {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    return raf.getChannel().map(MapMode.READ_WRITE, 0, chunkSize);
+                } finally {
+                    raf.close();
+                }
+            } finally {
+                if (!file.delete()) {
+                    logger.debug("Failed to delete {}", file);
+                }
+            }
+        }
+
+        @Override
+        void free(ByteBuffer memory) {
+            // Unmaps the memory if it was mapped, frees it otherwise.
+            PlatformDependent.freeDirectBuffer(memory);
+        }
+
+        @Override
+        public String toString() {
+            return "hugetlbfs(" + dir + ", hugePageSize: " + hugePageSize + ')';
+        }
+    }
+}
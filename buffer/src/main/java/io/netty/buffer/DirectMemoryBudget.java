@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the direct memory of a {@link BudgetedByteBufAllocator} against its maximum.
+ */
+final class DirectMemoryBudget {
+
+    private final AtomicLong used = new AtomicLong();
+    private final long max;
+
+    DirectMemoryBudget(long max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("maxDirectMemory: " + max + " (expected: >= 0)");
+        }
+        this.max = max;
+    }
+
+    long max() {
+        return max;
+    }
+
+    long used() {
+        return used.get();
+    }
+
+    /**
+     * Reserves {@code bytes} of direct memory before it is actually allocated.
+     *
+     * @throws DirectMemoryBudgetExceededException if the reservation would exceed the maximum.
+     */
+    void reserve(long bytes) {
+        if (max == 0) {
+            used.addAndGet(bytes);
+            return;
+        }
+        for (;;) {
+            long usedBytes = used.get();
+            long newUsedBytes = usedBytes + bytes;
+            if (newUsedBytes > max) {
+                throw new DirectMemoryBudgetExceededException(bytes, usedBytes, max);
+            }
+            if (used.compareAndSet(usedBytes, newUsedBytes)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives back {@code bytes} of direct memory which were {@linkplain #reserve(long) reserved} before.
+     */
+    void release(long bytes) {
+        used.addAndGet(-bytes);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * An {@link IllegalStateException} which is raised when a {@link BudgetedByteBufAllocator} would need to allocate
+ * more direct memory than its {@linkplain BudgetedByteBufAllocator#maxDirectMemory() budget} permits.
+ */
+public class DirectMemoryBudgetExceededException extends IllegalStateException {
+
+    private static final long serialVersionUID = 3470128713580519421L;
+
+    public DirectMemoryBudgetExceededException() { }
+
+    public DirectMemoryBudgetExceededException(long requested, long used, long max) {
+        this("failed to allocate " + requested + " byte(s) of direct memory (used: " + used + ", max: " + max + ')');
+    }
+
+    public DirectMemoryBudgetExceededException(String message) {
+        super(message);
+    }
+
+    public DirectMemoryBudgetExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public DirectMemoryBudgetExceededException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.io.File;
+
+/**
+ * A read-only {@link ByteBuf} which is backed by a region of a file that was mapped into memory by a
+ * {@link MappedFileByteBufAllocator}. Reading from it reads from the page cache directly, so its content can be
+ * written to a channel without copying it to the heap first.
+ * <p>
+ * The region is shared by all buffers which were returned for the same part of the file and is unmapped once all of
+ * them were released and it is not cached anymore, so a buffer must not be accessed after it was released.
+ */
+public final class MappedFileByteBuf extends ReadOnlyByteBufferBuf {
+
+    final MappedFileByteBufAllocator.Region region;
+
+    MappedFileByteBuf(ByteBufAllocator alloc, MappedFileByteBufAllocator.Region region) {
+        super(alloc, region.memory);
+        this.region = region;
+    }
+
+    /**
+     * Returns the file this buffer was mapped from.
+     */
+    public File file() {
+        return region.file;
+    }
+
+    /**
+     * Returns the position in the file of the first byte of this buffer.
+     */
+    public long position() {
+        return region.position;
+    }
+
+    @Override
+    protected void deallocate() {
+        region.release();
+    }
+}
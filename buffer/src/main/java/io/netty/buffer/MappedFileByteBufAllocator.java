@@ -0,0 +1,291 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates {@link MappedFileByteBuf}s, which serve the content of a file from the page cache.
+ * <p>
+ * A mapped region is reused by all requests for the same part of the file, as long as the file was not modified. Up to
+ * {@code maxCachedRegions} regions stay mapped after their last buffer was released, so they can be reused by later
+ * requests; the least recently used ones are unmapped when there are more.
+ */
+public final class MappedFileByteBufAllocator {
+
+    private static final int DEFAULT_MAX_CACHED_REGIONS = 64;
+
+    private final ByteBufAllocator alloc;
+    private final int maxCachedRegions;
+    // Access ordered, so the eldest entry is the least recently used one.
+    private final Map<RegionKey, Region> regions = new LinkedHashMap<RegionKey, Region>(16, 0.75f, true);
+
+    /**
+     * Creates a new instance which caches up to {@value #DEFAULT_MAX_CACHED_REGIONS} regions.
+     */
+    public MappedFileByteBufAllocator() {
+        this(DEFAULT_MAX_CACHED_REGIONS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCachedRegions the maximum number of regions which stay mapped after all their buffers were released.
+     */
+    public MappedFileByteBufAllocator(int maxCachedRegions) {
+        this(ByteBufAllocator.DEFAULT, maxCachedRegions);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param alloc            the {@link ByteBufAllocator} used for copies of the returned buffers.
+     * @param maxCachedRegions the maximum number of regions which stay mapped after all their buffers were released.
+     */
+    public MappedFileByteBufAllocator(ByteBufAllocator alloc, int maxCachedRegions) {
+        if (alloc == null) {
+            throw new NullPointerException("alloc");
+        }
+        if (maxCachedRegions < 0) {
+            throw new IllegalArgumentException("maxCachedRegions: " + maxCachedRegions + " (expected: >= 0)");
+        }
+        this.alloc = alloc;
+        this.maxCachedRegions = maxCachedRegions;
+    }
+
+    /**
+     * Maps the whole content of the given file.
+     */
+    public MappedFileByteBuf map(File file) throws IOException {
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("file too large to be mapped: " + file + " (" + length + " bytes)");
+        }
+        return map(file, 0, (int) length);
+    }
+
+    /**
+     * Maps {@code length} bytes of the given file, starting at {@code position}.
+     */
+    public MappedFileByteBuf map(File file, long position, int length) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected: >= 0)");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length: " + length + " (expected: >= 0)");
+        }
+
+        file = file.getCanonicalFile();
+        long lastModified = file.lastModified();
+        long fileLength = file.length();
+        if (position + length > fileLength) {
+            throw new IllegalArgumentException("position + length exceeds the length of " + file + ": " +
+                    position + " + " + length + " > " + fileLength);
+        }
+
+        RegionKey key = new RegionKey(file, position, length);
+        synchronized (this) {
+            Region region = regions.get(key);
+            if (region != null) {
+                if (region.lastModified == lastModified && region.fileLength == fileLength) {
+                    region.refCnt ++;
+                    return new MappedFileByteBuf(alloc, region);
+                }
+                // The file was modified since it was mapped.
+                removeRegion(key, region);
+            }
+        }
+
+        // Map outside of the lock, as this needs to do I/O.
+        Region region = new Region(this, key, mapRegion(file, position, length), lastModified, fileLength);
+        List<Region> evicted;
+        synchronized (this) {
+            Region oldRegion = regions.put(key, region);
+            if (oldRegion != null) {
+                // Mapped by another thread in the meantime.
+                removeRegion(null, oldRegion);
+            }
+            evicted = evictRegions();
+        }
+        unmapRegions(evicted);
+        return new MappedFileByteBuf(alloc, region);
+    }
+
+    private static ByteBuffer mapRegion(File file, long position, int length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // The mapping stays valid after the file was closed.
+            return raf.getChannel().map(MapMode.READ_ONLY, position, length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the number of regions which are currently mapped by this allocator and may be reused.
+     */
+    public synchronized int cachedRegions() {
+        return regions.size();
+    }
+
+    /**
+     * Unmaps all cached regions which are not used by any buffer anymore.
+     */
+    public void trim() {
+        List<Region> unused = new ArrayList<Region>();
+        synchronized (this) {
+            for (Iterator<Region> i = regions.values().iterator(); i.hasNext();) {
+                Region region = i.next();
+                if (region.refCnt == 0) {
+                    i.remove();
+                    region.cached = false;
+                    unused.add(region);
+                }
+            }
+        }
+        unmapRegions(unused);
+    }
+
+    // Must be called while holding the lock.
+    private void removeRegion(RegionKey key, Region region) {
+        if (key != null) {
+            regions.remove(key);
+        }
+        region.cached = false;
+        if (region.refCnt == 0) {
+            region.unmap();
+        }
+    }
+
+    // Must be called while holding the lock.
+    private List<Region> evictRegions() {
+        int toEvict = regions.size() - maxCachedRegions;
+        if (toEvict <= 0) {
+            return null;
+        }
+        List<Region> evicted = null;
+        for (Iterator<Region> i = regions.values().iterator(); i.hasNext() && toEvict > 0;) {
+            Region region = i.next();
+            if (region.refCnt == 0) {
+                i.remove();
+                region.cached = false;
+                if (evicted == null) {
+                    evicted = new ArrayList<Region>(toEvict);
+                }
+                evicted.add(region);
+                toEvict --;
+            }
+        }
+        return evicted;
+    }
+
+    private static void unmapRegions(List<Region> regions) {
+        if (regions != null) {
+            for (Region region: regions) {
+                region.unmap();
+            }
+        }
+    }
+
+    void release(Region region) {
+        List<Region> evicted = null;
+        synchronized (this) {
+            if (-- region.refCnt != 0) {
+                return;
+            }
+            if (region.cached) {
+                evicted = evictRegions();
+            } else {
+                evicted = new ArrayList<Region>(1);
+                evicted.add(region);
+            }
+        }
+        unmapRegions(evicted);
+    }
+
+    static final class Region {
+        final MappedFileByteBufAllocator parent;
+        final File file;
+        final long position;
+        final ByteBuffer memory;
+        final long lastModified;
+        final long fileLength;
+
+        // Guarded by the lock of the parent.
+        int refCnt = 1;
+        boolean cached = true;
+
+        Region(MappedFileByteBufAllocator parent, RegionKey key, ByteBuffer memory,
+               long lastModified, long fileLength) {
+            this.parent = parent;
+            file = key.file;
+            position = key.position;
+            this.memory = memory;
+            this.lastModified = lastModified;
+            this.fileLength = fileLength;
+        }
+
+        void release() {
+            parent.release(this);
+        }
+
+        void unmap() {
+            // Unmaps the region via its Cleaner instead of waiting for the GC.
+            PlatformDependent.freeDirectBuffer(memory);
+        }
+    }
+
+    private static final class RegionKey {
+        final File file;
+        final long position;
+        final int length;
+
+        RegionKey(File file, long position, int length) {
+            this.file = file;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (file.hashCode() * 31 + (int) (position ^ position >>> 32)) * 31 + length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RegionKey)) {
+                return false;
+            }
+            RegionKey other = (RegionKey) o;
+            return position == other.position && length == other.length && file.equals(other.file);
+        }
+    }
+}
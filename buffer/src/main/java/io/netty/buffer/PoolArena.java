@@ -16,23 +16,45 @@
 
 package io.netty.buffer;
 
+import io.netty.util.Recycler;
 import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.RecyclableMpscLinkedQueueNode;
 import io.netty.util.internal.StringUtil;
 
 import java.nio.ByteBuffer;
-
-abstract class PoolArena<T> {
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+abstract class PoolArena<T> implements PoolArenaMetric {
+
+    enum SizeClass {
+        Tiny,
+        Small,
+        Normal
+    }
 
     static final int numTinySubpagePools = 512 >>> 4;
 
+    // Number of size classes per doubling of the size for small and normal allocations.
+    private static final int SIZE_CLASS_GROUP_SHIFTS = 2;
+    // The largest run which is used to serve small allocations is (pageSize << MAX_SUBPAGE_RUN_SHIFTS).
+    private static final int MAX_SUBPAGE_RUN_SHIFTS = 4;
+
     final PooledByteBufAllocator parent;
 
     private final int maxOrder;
     final int pageSize;
     final int pageShifts;
     final int chunkSize;
-    final int subpageOverflowMask;
+    // The largest size class that is served out of a PoolSubpage. Everything above is a normal allocation.
+    final int maxSmallSize;
     final int numSmallSubpagePools;
+    // The size of the run of pages that backs a PoolSubpage for each small size class.
+    private final int[] smallRunSizes;
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
@@ -43,6 +65,30 @@ abstract class PoolArena<T> {
     private final PoolChunkList<T> q075;
     private final PoolChunkList<T> q100;
 
+    private final List<PoolChunkListMetric> chunkListMetrics;
+
+    // Metrics for allocations and deallocations of normal sizes are guarded by the arena. Tiny and small sizes are
+    // counted by the head of their subpage pool.
+    private long allocationsNormal;
+    private long deallocationsNormal;
+
+    // Huge allocations are done without holding the lock of the arena.
+    private final AtomicLong allocationsHuge = new AtomicLong();
+    private final AtomicLong deallocationsHuge = new AtomicLong();
+    private final AtomicLong activeBytesHuge = new AtomicLong();
+
+    // Number of thread caches backed by this arena.
+    final AtomicInteger numThreadCaches = new AtomicInteger();
+
+    // Metrics for pooled chunks that were released, guarded by the arena.
+    private long releasedChunks;
+    private long releasedBytes;
+
+    // The thread which owns this arena if arena affinity is used. Memory which is freed by any other thread is
+    // handed back via pendingFrees, which is only consumed while holding the lock of the arena.
+    private volatile Thread owner;
+    private final Queue<PendingFree> pendingFrees = PlatformDependent.newMpscQueue();
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
@@ -52,16 +98,20 @@ abstract class PoolArena<T> {
         this.maxOrder = maxOrder;
         this.pageShifts = pageShifts;
         this.chunkSize = chunkSize;
-        subpageOverflowMask = ~(pageSize - 1);
+        maxSmallSize = Math.max(512, Math.min(pageSize << 2, chunkSize));
         tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
         for (int i = 0; i < tinySubpagePools.length; i ++) {
             tinySubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        numSmallSubpagePools = pageShifts - 9;
+        numSmallSubpagePools = smallIdx(maxSmallSize) + 1;
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
+        smallRunSizes = new int[numSmallSubpagePools];
+        final int maxRunSize = Math.max(pageSize, Math.min(pageSize << MAX_SUBPAGE_RUN_SHIFTS, chunkSize));
         for (int i = 0; i < smallSubpagePools.length; i ++) {
-            smallSubpagePools[i] = newSubpagePoolHead(pageSize);
+            int runSize = calculateRunSize(smallSize(i), pageSize, maxRunSize);
+            smallSubpagePools[i] = newSubpagePoolHead(runSize);
+            smallRunSizes[i] = runSize;
         }
 
         q100 = new PoolChunkList<T>(this, null, 100, Integer.MAX_VALUE);
@@ -77,15 +127,55 @@ abstract class PoolArena<T> {
         q025.prevList = q000;
         q000.prevList = null;
         qInit.prevList = qInit;
+
+        List<PoolChunkListMetric> metrics = new ArrayList<PoolChunkListMetric>(6);
+        metrics.add(qInit);
+        metrics.add(q000);
+        metrics.add(q025);
+        metrics.add(q050);
+        metrics.add(q075);
+        metrics.add(q100);
+        chunkListMetrics = Collections.unmodifiableList(metrics);
     }
 
-    private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
-        PoolSubpage<T> head = new PoolSubpage<T>(pageSize);
+    private PoolSubpage<T> newSubpagePoolHead(int runSize) {
+        PoolSubpage<T> head = new PoolSubpage<T>(runSize);
         head.prev = head;
         head.next = head;
         return head;
     }
 
+    /**
+     * Calculate the size of the run of pages that is used to serve elements of the given size. The smallest run that
+     * wastes at most 1/8 of its memory is used, if there is no such run up to {@code maxRunSize} the run with the
+     * smallest waste is used.
+     */
+    static int calculateRunSize(int elemSize, int pageSize, int maxRunSize) {
+        int runSize = pageSize;
+        while (runSize < elemSize) {
+            runSize <<= 1;
+        }
+
+        int bestRunSize = runSize;
+        long bestWaste = Long.MAX_VALUE;
+        for (;;) {
+            int waste = runSize % elemSize;
+            if (waste <= runSize >>> 3) {
+                return runSize;
+            }
+            // Compare the ratio of waste to run size without using floating point arithmetic.
+            long relativeWaste = ((long) waste << 32) / runSize;
+            if (relativeWaste < bestWaste) {
+                bestWaste = relativeWaste;
+                bestRunSize = runSize;
+            }
+            if (runSize >= maxRunSize) {
+                return bestRunSize;
+            }
+            runSize <<= 1;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private PoolSubpage<T>[] newSubpagePoolArray(int size) {
         return new PoolSubpage[size];
@@ -103,19 +193,48 @@ abstract class PoolArena<T> {
         return normCapacity >>> 4;
     }
 
+    /**
+     * Returns the index of the small size class of {@code normCapacity}. The small size classes start at 512 and
+     * there are {@code 1 << SIZE_CLASS_GROUP_SHIFTS} classes per doubling (512, 640, 768, 896, 1024, 1280, ...).
+     */
     static int smallIdx(int normCapacity) {
-        int tableIdx = 0;
-        int i = normCapacity >>> 10;
-        while (i != 0) {
-            i >>>= 1;
-            tableIdx ++;
+        if (normCapacity <= 512) {
+            return 0;
+        }
+        int log2Group = log2(normCapacity - 1);
+        int delta = normCapacity - (1 << log2Group) >>> log2Group - SIZE_CLASS_GROUP_SHIFTS;
+        return (log2Group - 9 << SIZE_CLASS_GROUP_SHIFTS) + delta;
+    }
+
+    /**
+     * Returns the size of the small size class with the given index. This is the inverse of {@link #smallIdx(int)}.
+     */
+    static int smallSize(int smallIdx) {
+        if (smallIdx == 0) {
+            return 512;
+        }
+        int group = smallIdx - 1 >>> SIZE_CLASS_GROUP_SHIFTS;
+        int delta = (smallIdx - 1 & (1 << SIZE_CLASS_GROUP_SHIFTS) - 1) + 1;
+        return (512 << group) + (delta << group + 9 - SIZE_CLASS_GROUP_SHIFTS);
+    }
+
+    /**
+     * Returns the size of the run that backs {@link PoolSubpage}s whose elements are {@code normCapacity} bytes.
+     */
+    int subpageRunSize(int normCapacity) {
+        if (isTiny(normCapacity)) {
+            return pageSize;
         }
-        return tableIdx;
+        return smallRunSizes[smallIdx(normCapacity)];
     }
 
-    // capacity < pageSize
+    private static int log2(int val) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(val);
+    }
+
+    // capacity <= maxSmallSize
     boolean isTinyOrSmall(int normCapacity) {
-        return (normCapacity & subpageOverflowMask) == 0;
+        return normCapacity <= maxSmallSize;
     }
 
     // normCapacity < 512
@@ -123,12 +242,23 @@ abstract class PoolArena<T> {
         return (normCapacity & 0xFFFFFE00) == 0;
     }
 
+    SizeClass sizeClass(int normCapacity) {
+        if (!isTinyOrSmall(normCapacity)) {
+            return SizeClass.Normal;
+        }
+        return isTiny(normCapacity) ? SizeClass.Tiny : SizeClass.Small;
+    }
+
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        if (!pendingFrees.isEmpty()) {
+            freePendingFrees(cache);
+        }
         final int normCapacity = normalizeCapacity(reqCapacity);
         if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
             int tableIdx;
             PoolSubpage<T>[] table;
-            if (isTiny(normCapacity)) { // < 512
+            boolean tiny = isTiny(normCapacity);
+            if (tiny) { // < 512
                 if (cache.allocateTiny(this, buf, reqCapacity, normCapacity)) {
                     // was able to allocate out of the cache so move on
                     return;
@@ -144,14 +274,17 @@ abstract class PoolArena<T> {
                 table = smallSubpagePools;
             }
 
-            synchronized (this) {
-                final PoolSubpage<T> head = table[tableIdx];
+            // Only lock the head of the pool of the size class, so allocations of different size classes and of
+            // normal sizes do not contend with each other.
+            final PoolSubpage<T> head = table[tableIdx];
+            synchronized (head) {
                 final PoolSubpage<T> s = head.next;
                 if (s != head) {
                     assert s.doNotDestroy && s.elemSize == normCapacity;
                     long handle = s.allocate();
                     assert handle >= 0;
                     s.chunk.initBufWithSubpage(buf, handle, reqCapacity);
+                    ++ head.allocations;
                     return;
                 }
             }
@@ -169,6 +302,11 @@ abstract class PoolArena<T> {
     }
 
     private synchronized void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+        if (!isTinyOrSmall(normCapacity)) {
+            // Tiny and small allocations are counted by PoolChunk.allocateSubpage().
+            ++ allocationsNormal;
+        }
+
         if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
             q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
             q075.allocate(buf, reqCapacity, normCapacity) || q100.allocate(buf, reqCapacity, normCapacity)) {
@@ -177,6 +315,7 @@ abstract class PoolArena<T> {
 
         // Add a new chunk.
         PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
+        parent.pooledChunkMemory.addAndGet(chunkSize);
         long handle = c.allocate(normCapacity);
         assert handle > 0;
         c.initBuf(buf, handle, reqCapacity);
@@ -185,11 +324,16 @@ abstract class PoolArena<T> {
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
         buf.initUnpooled(newUnpooledChunk(reqCapacity), reqCapacity);
+        activeBytesHuge.addAndGet(reqCapacity);
+        allocationsHuge.incrementAndGet();
     }
 
     void free(PoolChunk<T> chunk, long handle, int normCapacity, boolean sameThreads) {
         if (chunk.unpooled) {
+            int size = chunk.chunkSize();
             destroyChunk(chunk);
+            activeBytesHuge.addAndGet(-size);
+            deallocationsHuge.incrementAndGet();
         } else {
             if (sameThreads) {
                 PoolThreadCache cache = parent.threadCache.get();
@@ -199,29 +343,158 @@ abstract class PoolArena<T> {
                 }
             }
 
-            synchronized (this) {
-                chunk.parent.free(chunk, handle);
+            Thread owner = this.owner;
+            if (owner != null && owner != Thread.currentThread()) {
+                // Hand the memory back to the owner instead of contending for the lock of the arena.
+                pendingFrees.offer(PendingFree.newInstance(chunk, handle, normCapacity));
+                if (this.owner == null) {
+                    // The owner gave up the arena in the meantime, so nobody may consume the queue anymore.
+                    freePendingFrees(null);
+                }
+                return;
             }
+
+            freeChunk(chunk, handle, sizeClass(normCapacity));
         }
     }
 
-    PoolSubpage<T> findSubpagePoolHead(int elemSize) {
-        int tableIdx;
-        PoolSubpage<T>[] table;
-        if (isTiny(elemSize)) { // < 512
-            tableIdx = elemSize >>> 4;
-            table = tinySubpagePools;
-        } else {
-            tableIdx = 0;
-            elemSize >>>= 10;
-            while (elemSize != 0) {
-                elemSize >>>= 1;
-                tableIdx ++;
+    /**
+     * Tries to make the current thread the owner of this arena.
+     *
+     * @return {@code true} if the current thread is the owner now.
+     */
+    synchronized boolean claimOwnership() {
+        if (owner != null) {
+            return owner == Thread.currentThread();
+        }
+        owner = Thread.currentThread();
+        return true;
+    }
+
+    /**
+     * Gives up the ownership of the given thread and frees all memory which was handed back to it.
+     */
+    synchronized void releaseOwnership(Thread thread) {
+        if (owner == thread) {
+            owner = null;
+            freePendingFrees(null);
+        }
+    }
+
+    boolean isOwnedBy(Thread thread) {
+        return owner == thread;
+    }
+
+    /**
+     * Frees all memory which was handed back to the owner of this arena by other threads. If possible it is put in
+     * the given {@link PoolThreadCache} of the current thread.
+     */
+    private void freePendingFrees(PoolThreadCache cache) {
+        if (cache != null && (isDirect() ? cache.directArena : cache.heapArena) != this) {
+            cache = null;
+        }
+        synchronized (this) {
+            for (;;) {
+                PendingFree pendingFree = pendingFrees.poll();
+                if (pendingFree == null) {
+                    break;
+                }
+                @SuppressWarnings("unchecked")
+                PoolChunk<T> chunk = (PoolChunk<T>) pendingFree.chunk;
+                long handle = pendingFree.handle;
+                int normCapacity = pendingFree.normCapacity;
+                // The node is recycled once the next one was polled, so make sure it does not keep the chunk alive.
+                pendingFree.chunk = null;
+
+                if (cache == null || !cache.add(this, chunk, handle, normCapacity)) {
+                    freeChunk(chunk, handle, sizeClass(normCapacity));
+                }
+            }
+        }
+    }
+
+    void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
+        if (sizeClass != SizeClass.Normal && chunk.freeSubpage(handle)) {
+            // The subpage is still in use, so the lock of the arena is not needed.
+            return;
+        }
+        synchronized (this) {
+            if (sizeClass == SizeClass.Normal) {
+                ++ deallocationsNormal;
             }
-            table = smallSubpagePools;
+            chunk.parent.free(chunk, handle);
+
+            // Only chunks in qInit are kept when they are not used anymore, all others are destroyed by their list.
+            if (chunk.parent == qInit && chunk.isUnused()) {
+                if (parent.chunkIdleTimeoutNanos > 0) {
+                    chunk.unusedSince = System.nanoTime();
+                }
+                releaseUnusedChunks0();
+            }
+        }
+    }
+
+    /**
+     * Releases all pooled chunks of this arena which are not used by any buffer and are idle for longer than the
+     * configured idle timeout, or while the pooled memory exceeds the configured maximum.
+     *
+     * @return the number of chunks that were released.
+     */
+    int releaseUnusedChunks() {
+        if (!pendingFrees.isEmpty()) {
+            freePendingFrees(null);
+        }
+        if (parent.chunkIdleTimeoutNanos <= 0 && !parent.exceedsMaxPooledChunkMemory()) {
+            // Nothing to do so no need to acquire the lock.
+            return 0;
+        }
+        synchronized (this) {
+            return releaseUnusedChunks0();
+        }
+    }
+
+    /**
+     * Releases all pooled chunks of this arena which are not used by any buffer, no matter how long they are idle.
+     *
+     * @return the number of chunks that were released.
+     */
+    int releaseAllUnusedChunks() {
+        if (!pendingFrees.isEmpty()) {
+            freePendingFrees(null);
+        }
+        synchronized (this) {
+            // Chunks which only hold empty subpages may have made it to q000 before their last element was freed.
+            return qInit.releaseUnusedChunks(0, 0, true) + q000.releaseUnusedChunks(0, 0, true);
+        }
+    }
+
+    // Must be called while holding the lock of the arena.
+    private int releaseUnusedChunks0() {
+        long idleTimeoutNanos = parent.chunkIdleTimeoutNanos;
+        if (idleTimeoutNanos <= 0 && !parent.exceedsMaxPooledChunkMemory()) {
+            return 0;
         }
+        return qInit.releaseUnusedChunks(idleTimeoutNanos > 0 ? System.nanoTime() : 0, idleTimeoutNanos, false);
+    }
 
-        return table[tableIdx];
+    /**
+     * Destroys a pooled {@link PoolChunk} which was already removed from its {@link PoolChunkList}.
+     * Must be called while holding the lock of the arena.
+     */
+    void destroyPooledChunk(PoolChunk<T> chunk) {
+        assert !chunk.unpooled;
+        int chunkSize = chunk.chunkSize();
+        releasedChunks ++;
+        releasedBytes += chunkSize;
+        parent.pooledChunkMemory.addAndGet(-chunkSize);
+        destroyChunk(chunk);
+    }
+
+    PoolSubpage<T> findSubpagePoolHead(int elemSize) {
+        if (isTiny(elemSize)) { // < 512
+            return tinySubpagePools[tinyIdx(elemSize)];
+        }
+        return smallSubpagePools[smallIdx(elemSize)];
     }
 
     int normalizeCapacity(int reqCapacity) {
@@ -233,6 +506,16 @@ abstract class PoolArena<T> {
         }
 
         if (!isTiny(reqCapacity)) { // >= 512
+            if (reqCapacity <= maxSmallSize) {
+                // Size classes: round up to the next multiple of a quarter of the power of two group.
+                if (reqCapacity <= 512) {
+                    return 512;
+                }
+                int shift = log2(reqCapacity - 1) - SIZE_CLASS_GROUP_SHIFTS;
+                int mask = (1 << shift) - 1;
+                return reqCapacity + mask & ~mask;
+            }
+
             // Doubled
 
             int normalizedCapacity = reqCapacity;
@@ -302,6 +585,187 @@ abstract class PoolArena<T> {
         }
     }
 
+    @Override
+    public int numThreadCaches() {
+        return numThreadCaches.get();
+    }
+
+    @Override
+    public int numTinySubpages() {
+        return tinySubpagePools.length;
+    }
+
+    @Override
+    public int numSmallSubpages() {
+        return smallSubpagePools.length;
+    }
+
+    @Override
+    public int numChunkLists() {
+        return chunkListMetrics.size();
+    }
+
+    @Override
+    public List<PoolSubpageMetric> tinySubpages() {
+        return subpageMetricList(tinySubpagePools);
+    }
+
+    @Override
+    public List<PoolSubpageMetric> smallSubpages() {
+        return subpageMetricList(smallSubpagePools);
+    }
+
+    @Override
+    public List<PoolChunkListMetric> chunkLists() {
+        return chunkListMetrics;
+    }
+
+    private static List<PoolSubpageMetric> subpageMetricList(PoolSubpage<?>[] pages) {
+        List<PoolSubpageMetric> metrics = new ArrayList<PoolSubpageMetric>();
+        for (PoolSubpage<?> head : pages) {
+            synchronized (head) {
+                for (PoolSubpage<?> s = head.next; s != head; s = s.next) {
+                    metrics.add(s);
+                }
+            }
+        }
+        return Collections.unmodifiableList(metrics);
+    }
+
+    private static long numAllocations(PoolSubpage<?>[] pages) {
+        long val = 0;
+        for (PoolSubpage<?> head : pages) {
+            synchronized (head) {
+                val += head.allocations;
+            }
+        }
+        return val;
+    }
+
+    private static long numDeallocations(PoolSubpage<?>[] pages) {
+        long val = 0;
+        for (PoolSubpage<?> head : pages) {
+            synchronized (head) {
+                val += head.deallocations;
+            }
+        }
+        return val;
+    }
+
+    private static long numActiveAllocations(PoolSubpage<?>[] pages) {
+        long val = 0;
+        for (PoolSubpage<?> head : pages) {
+            synchronized (head) {
+                val += head.allocations - head.deallocations;
+            }
+        }
+        return val;
+    }
+
+    @Override
+    public long numAllocations() {
+        return numTinyAllocations() + numSmallAllocations() + numNormalAllocations() + allocationsHuge.get();
+    }
+
+    @Override
+    public long numTinyAllocations() {
+        return numAllocations(tinySubpagePools);
+    }
+
+    @Override
+    public long numSmallAllocations() {
+        return numAllocations(smallSubpagePools);
+    }
+
+    @Override
+    public synchronized long numNormalAllocations() {
+        return allocationsNormal;
+    }
+
+    @Override
+    public long numHugeAllocations() {
+        return allocationsHuge.get();
+    }
+
+    @Override
+    public long numDeallocations() {
+        return numTinyDeallocations() + numSmallDeallocations() + numNormalDeallocations() +
+                deallocationsHuge.get();
+    }
+
+    @Override
+    public long numTinyDeallocations() {
+        return numDeallocations(tinySubpagePools);
+    }
+
+    @Override
+    public long numSmallDeallocations() {
+        return numDeallocations(smallSubpagePools);
+    }
+
+    @Override
+    public synchronized long numNormalDeallocations() {
+        return deallocationsNormal;
+    }
+
+    @Override
+    public long numHugeDeallocations() {
+        return deallocationsHuge.get();
+    }
+
+    @Override
+    public long numActiveAllocations() {
+        long val = numActiveAllocations(tinySubpagePools) + numActiveAllocations(smallSubpagePools);
+        synchronized (this) {
+            val += allocationsNormal - deallocationsNormal;
+        }
+        val += allocationsHuge.get() - deallocationsHuge.get();
+        return Math.max(val, 0);
+    }
+
+    @Override
+    public long numActiveTinyAllocations() {
+        return Math.max(numActiveAllocations(tinySubpagePools), 0);
+    }
+
+    @Override
+    public long numActiveSmallAllocations() {
+        return Math.max(numActiveAllocations(smallSubpagePools), 0);
+    }
+
+    @Override
+    public synchronized long numActiveNormalAllocations() {
+        return Math.max(allocationsNormal - deallocationsNormal, 0);
+    }
+
+    @Override
+    public long numActiveHugeAllocations() {
+        return Math.max(allocationsHuge.get() - deallocationsHuge.get(), 0);
+    }
+
+    @Override
+    public synchronized long numReleasedChunks() {
+        return releasedChunks;
+    }
+
+    @Override
+    public synchronized long numReleasedBytes() {
+        return releasedBytes;
+    }
+
+    @Override
+    public long numActiveBytes() {
+        long val = activeBytesHuge.get();
+        synchronized (this) {
+            for (int i = 0; i < chunkListMetrics.size(); i ++) {
+                for (PoolChunkMetric m: chunkListMetrics.get(i)) {
+                    val += m.chunkSize();
+                }
+            }
+        }
+        return Math.max(0, val);
+    }
+
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
@@ -335,47 +799,36 @@ abstract class PoolArena<T> {
             .append(q100)
             .append(StringUtil.NEWLINE)
             .append("tiny subpages:");
-        for (int i = 1; i < tinySubpagePools.length; i ++) {
-            PoolSubpage<T> head = tinySubpagePools[i];
-            if (head.next == head) {
-                continue;
-            }
-
-            buf.append(StringUtil.NEWLINE)
-               .append(i)
-               .append(": ");
-            PoolSubpage<T> s = head.next;
-            for (;;) {
-                buf.append(s);
-                s = s.next;
-                if (s == head) {
-                    break;
-                }
-            }
-        }
+        appendPoolSubPages(buf, tinySubpagePools);
         buf.append(StringUtil.NEWLINE)
            .append("small subpages:");
-        for (int i = 1; i < smallSubpagePools.length; i ++) {
-            PoolSubpage<T> head = smallSubpagePools[i];
-            if (head.next == head) {
-                continue;
-            }
+        appendPoolSubPages(buf, smallSubpagePools);
+        buf.append(StringUtil.NEWLINE);
 
-            buf.append(StringUtil.NEWLINE)
-               .append(i)
-               .append(": ");
-            PoolSubpage<T> s = head.next;
-            for (;;) {
-                buf.append(s);
-                s = s.next;
-                if (s == head) {
-                    break;
+        return buf.toString();
+    }
+
+    private static void appendPoolSubPages(StringBuilder buf, PoolSubpage<?>[] subpages) {
+        for (int i = 1; i < subpages.length; i ++) {
+            PoolSubpage<?> head = subpages[i];
+            synchronized (head) {
+                if (head.next == head) {
+                    continue;
+                }
+
+                buf.append(StringUtil.NEWLINE)
+                   .append(i)
+                   .append(": ");
+                PoolSubpage<?> s = head.next;
+                for (;;) {
+                    buf.append(s);
+                    s = s.next;
+                    if (s == head) {
+                        break;
+                    }
                 }
             }
         }
-        buf.append(StringUtil.NEWLINE);
-
-        return buf.toString();
     }
 
     static final class HeapArena extends PoolArena<byte[]> {
@@ -419,6 +872,40 @@ abstract class PoolArena<T> {
         }
     }
 
+    /**
+     * Memory which was freed by a thread that does not own the arena.
+     */
+    private static final class PendingFree extends RecyclableMpscLinkedQueueNode<PendingFree> {
+
+        private static final Recycler<PendingFree> RECYCLER = new Recycler<PendingFree>() {
+            @Override
+            protected PendingFree newObject(Handle<PendingFree> handle) {
+                return new PendingFree(handle);
+            }
+        };
+
+        static PendingFree newInstance(PoolChunk<?> chunk, long handle, int normCapacity) {
+            PendingFree pendingFree = RECYCLER.get();
+            pendingFree.chunk = chunk;
+            pendingFree.handle = handle;
+            pendingFree.normCapacity = normCapacity;
+            return pendingFree;
+        }
+
+        PoolChunk<?> chunk;
+        long handle;
+        int normCapacity;
+
+        private PendingFree(Recycler.Handle<PendingFree> handle) {
+            super(handle);
+        }
+
+        @Override
+        public PendingFree value() {
+            return this;
+        }
+    }
+
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
         private static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
@@ -435,17 +922,37 @@ abstract class PoolArena<T> {
         @Override
         protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize) {
             return new PoolChunk<ByteBuffer>(
-                    this, ByteBuffer.allocateDirect(chunkSize), pageSize, maxOrder, pageShifts, chunkSize);
+                    this, allocateDirect(parent.directChunkProvider, chunkSize),
+                    pageSize, maxOrder, pageShifts, chunkSize);
         }
 
         @Override
         protected PoolChunk<ByteBuffer> newUnpooledChunk(int capacity) {
-            return new PoolChunk<ByteBuffer>(this, ByteBuffer.allocateDirect(capacity), capacity);
+            return new PoolChunk<ByteBuffer>(this, allocateDirect(DirectChunkProvider.DEFAULT, capacity), capacity);
+        }
+
+        private ByteBuffer allocateDirect(DirectChunkProvider provider, int capacity) {
+            DirectMemoryBudget budget = parent.directMemoryBudget;
+            // The provider may allocate more than the capacity, for example to align the memory.
+            int allocationSize = provider.allocationSize(capacity);
+            budget.reserve(allocationSize);
+            boolean success = false;
+            try {
+                ByteBuffer memory = provider.allocate(capacity);
+                success = true;
+                return memory;
+            } finally {
+                if (!success) {
+                    budget.release(allocationSize);
+                }
+            }
         }
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            PlatformDependent.freeDirectBuffer(chunk.memory);
+            DirectChunkProvider provider = chunk.unpooled ? DirectChunkProvider.DEFAULT : parent.directChunkProvider;
+            provider.free(chunk.memory);
+            parent.directMemoryBudget.release(provider.allocationSize(chunk.chunkSize()));
         }
 
         @Override
@@ -31,8 +31,8 @@ package io.netty.buffer;
  * marked as reserved so it is always used by exactly one ByteBuf and no more)
  *
  * For simplicity all sizes are normalized according to PoolArena#normalizeCapacity method
- * This ensures that when we request for memory segments of size >= pageSize the normalizedCapacity
- * equals the next nearest power of 2
+ * This ensures that tiny and small requests are rounded up to their size class (see PoolArena#smallIdx) and
+ * that when we request for memory segments of normal size the normalizedCapacity equals the next nearest power of 2
  *
  * To search for the first offset in chunk that has at least requested size available we construct a
  * complete balanced binary tree and store it in an array (just like heaps) - memoryMap
@@ -87,8 +87,10 @@ package io.netty.buffer;
  *
  * Algorithm: [allocateSubpage(size)]
  * ----------
- * 1) use allocateNode(maxOrder) to find an empty (i.e., unused) leaf (i.e., page)
- * 2) use this handle to construct the PoolSubpage object or if it already exists just call init(normCapacity)
+ * 1) Compute runSize = PoolArena#subpageRunSize(size), this is pageSize for tiny sizes and a run of one or more pages
+ *    for small sizes which is chosen so that only a small part of the run is wasted
+ * 2) use allocateNode(d) with d = log_2(chunkSize/runSize) to find an empty (i.e., unused) run of pages
+ * 3) use this handle to construct the PoolSubpage object or if it already exists just call init(normCapacity)
  *    note that this PoolSubpage object is added to subpagesPool in the PoolArena when we init() it
  *
  * Note:
@@ -101,7 +103,7 @@ package io.netty.buffer;
  * the second value (i.e, x) indicates that the first node which is free to be allocated is at depth x (from root)
  */
 
-final class PoolChunk<T> {
+final class PoolChunk<T> implements PoolChunkMetric {
 
     final PoolArena<T> arena;
     final T memory;
@@ -110,8 +112,6 @@ final class PoolChunk<T> {
     private final byte[] memoryMap;
     private final byte[] depthMap;
     private final PoolSubpage<T>[] subpages;
-    /** Used to determine if the requested capacity is equal to or greater than pageSize. */
-    private final int subpageOverflowMask;
     private final int pageSize;
     private final int pageShifts;
     private final int maxOrder;
@@ -122,6 +122,8 @@ final class PoolChunk<T> {
     private final byte unusable;
 
     private int freeBytes;
+    // The value of System.nanoTime() when the chunk was not used by any allocation anymore.
+    long unusedSince;
 
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
@@ -140,7 +142,6 @@ final class PoolChunk<T> {
         this.chunkSize = chunkSize;
         unusable = (byte) (maxOrder + 1);
         log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
         assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
@@ -171,7 +172,6 @@ final class PoolChunk<T> {
         memoryMap = null;
         depthMap = null;
         subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
         maxOrder = 0;
@@ -186,8 +186,16 @@ final class PoolChunk<T> {
         return new PoolSubpage[size];
     }
 
-    int usage() {
-        final int freeBytes = this.freeBytes;
+    @Override
+    public int usage() {
+        final int freeBytes;
+        synchronized (arena) {
+            freeBytes = this.freeBytes;
+        }
+        return usage(freeBytes);
+    }
+
+    private int usage(int freeBytes) {
         if (freeBytes == 0) {
             return 100;
         }
@@ -200,10 +208,10 @@ final class PoolChunk<T> {
     }
 
     long allocate(int normCapacity) {
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
-            return allocateRun(normCapacity);
-        } else {
+        if (arena.isTinyOrSmall(normCapacity)) {
             return allocateSubpage(normCapacity);
+        } else {
+            return allocateRun(normCapacity);
         }
     }
 
@@ -306,47 +314,66 @@ final class PoolChunk<T> {
      * @return index in memoryMap
      */
     private long allocateSubpage(int normCapacity) {
-        int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
+        final int runSize = arena.subpageRunSize(normCapacity);
+        assert runSize >= pageSize;
+        int d = maxOrder - (log2(runSize) - pageShifts);
         int id = allocateNode(d);
         if (id < 0) {
             return id;
         }
 
         final PoolSubpage<T>[] subpages = this.subpages;
-        final int pageSize = this.pageSize;
 
-        freeBytes -= pageSize;
+        freeBytes -= runSize;
 
         int subpageIdx = subpageIdx(id);
-        PoolSubpage<T> subpage = subpages[subpageIdx];
-        if (subpage == null) {
-            subpage = new PoolSubpage<T>(this, id, runOffset(id), pageSize, normCapacity);
-            subpages[subpageIdx] = subpage;
-        } else {
-            subpage.init(normCapacity);
+        PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
+        synchronized (head) {
+            PoolSubpage<T> subpage = subpages[subpageIdx];
+            if (subpage == null || subpage.runSize != runSize) {
+                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), runSize, normCapacity);
+                subpages[subpageIdx] = subpage;
+            } else {
+                subpage.init(head, normCapacity);
+            }
+            ++ head.allocations;
+            return subpage.allocate();
         }
-        return subpage.allocate();
     }
 
     /**
-     * Free a subpage or a run of pages
+     * Free an element of a subpage while only holding the lock of the subpage pool of its size class.
      * When a subpage is freed from PoolSubpage, it might be added back to subpage pool of the owning PoolArena
      * If the subpage pool in PoolArena has at least one other PoolSubpage of given elemSize, we can
      * completely free the owning Page so it is available for subsequent allocations
      *
      * @param handle handle to free
+     * @return {@code true} if the subpage is still in use. {@code false} if the subpage was removed from its pool and
+     *         its run of pages must be freed via {@link #free(long)} while holding the lock of the arena.
      */
-    void free(long handle) {
+    boolean freeSubpage(long handle) {
         int memoryMapIdx = (int) handle;
         int bitmapIdx = (int) (handle >>> Integer.SIZE);
+        assert bitmapIdx != 0;
 
-        if (bitmapIdx != 0) { // free a subpage
-            PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
-            assert subpage != null && subpage.doNotDestroy;
-            if (subpage.free(bitmapIdx & 0x3FFFFFFF)) {
-                return;
-            }
+        // The subpage can not be reused for another size class while one of its elements is allocated.
+        PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
+        PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.elemSize);
+        synchronized (head) {
+            assert subpage.doNotDestroy;
+            ++ head.deallocations;
+            return subpage.free(head, bitmapIdx & 0x3FFFFFFF);
         }
+    }
+
+    /**
+     * Free a run of pages. Runs which back a subpage are only freed once {@link #freeSubpage(long)} returned
+     * {@code false}.
+     *
+     * @param handle handle to free
+     */
+    void free(long handle) {
+        int memoryMapIdx = (int) handle;
         freeBytes += runLength(memoryMapIdx);
         setValue(memoryMapIdx, depth(memoryMapIdx));
         updateParentsFree(memoryMapIdx);
@@ -382,6 +409,46 @@ final class PoolChunk<T> {
             runOffset(memoryMapIdx) + (bitmapIdx & 0x3FFFFFFF) * subpage.elemSize, reqCapacity, subpage.elemSize);
     }
 
+    /**
+     * Returns {@code true} if no memory of this chunk is allocated. Must be called while holding the lock of the arena.
+     */
+    boolean isUnused() {
+        return freeBytes == chunkSize;
+    }
+
+    /**
+     * Frees the runs of all subpages which do not hold any element anymore. The last subpage of each size class is
+     * kept in its pool even if it is empty, which would keep the chunk in use forever. Must be called while holding
+     * the lock of the arena.
+     */
+    void freeUnusedSubpages() {
+        for (PoolSubpage<T> subpage: subpages) {
+            if (subpage == null) {
+                continue;
+            }
+            boolean unused;
+            PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.elemSize);
+            synchronized (head) {
+                unused = subpage.releaseIfUnused();
+            }
+            if (unused) {
+                free(subpage.memoryMapIdx);
+            }
+        }
+    }
+
+    @Override
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public int freeBytes() {
+        synchronized (arena) {
+            return freeBytes;
+        }
+    }
+
     private byte value(int id) {
         return memoryMap[id];
     }
@@ -411,16 +478,22 @@ final class PoolChunk<T> {
     }
 
     private int subpageIdx(int memoryMapIdx) {
-        return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
+        // index of the first page of the run, as the run of a PoolSubpage may consist of more than one page
+        return runOffset(memoryMapIdx) >>> pageShifts;
     }
 
     @Override
     public String toString() {
+        final int freeBytes;
+        synchronized (arena) {
+            freeBytes = this.freeBytes;
+        }
+
         return new StringBuilder()
             .append("Chunk(")
             .append(Integer.toHexString(System.identityHashCode(this)))
             .append(": ")
-            .append(usage())
+            .append(usage(freeBytes))
             .append("%, ")
             .append(chunkSize - freeBytes)
             .append('/')
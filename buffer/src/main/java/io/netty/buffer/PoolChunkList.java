@@ -18,7 +18,14 @@ package io.netty.buffer;
 
 import io.netty.util.internal.StringUtil;
 
-final class PoolChunkList<T> {
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+final class PoolChunkList<T> implements PoolChunkListMetric {
+    private static final Iterator<PoolChunkMetric> EMPTY_METRICS = Collections.<PoolChunkMetric>emptyList().iterator();
+
     private final PoolArena<T> arena;
     private final PoolChunkList<T> nextList;
     PoolChunkList<T> prevList;
@@ -65,13 +72,58 @@ final class PoolChunkList<T> {
         chunk.free(handle);
         if (chunk.usage() < minUsage) {
             remove(chunk);
-            if (prevList == null) {
-                assert chunk.usage() == 0;
-                arena.destroyChunk(chunk);
-            } else {
-                prevList.add(chunk);
+            moveToPrev(chunk);
+        }
+    }
+
+    /**
+     * Moves the {@link PoolChunk} down the linked-list of {@link PoolChunkList}s until it reaches the list that
+     * matches its usage, so a chunk which is not used anymore is destroyed even if it was in a list of high usage.
+     */
+    private void moveToPrev(PoolChunk<T> chunk) {
+        if (prevList == null) {
+            assert chunk.usage() == 0;
+            arena.destroyPooledChunk(chunk);
+        } else {
+            prevList.move(chunk);
+        }
+    }
+
+    private void move(PoolChunk<T> chunk) {
+        assert chunk.usage() < maxUsage;
+
+        if (chunk.usage() < minUsage) {
+            moveToPrev(chunk);
+        } else {
+            add0(chunk);
+        }
+    }
+
+    /**
+     * Removes and destroys all chunks of this list which are not used by any allocation and are either idle for at
+     * least {@code idleTimeoutNanos} or are not needed because the pooled memory exceeds the configured maximum.
+     * If {@code force} is {@code true} all unused chunks are destroyed, including those which are only kept in use
+     * by empty subpages.
+     * Must be called while holding the lock of the arena.
+     *
+     * @return the number of destroyed chunks.
+     */
+    int releaseUnusedChunks(long now, long idleTimeoutNanos, boolean force) {
+        int released = 0;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (force && !cur.isUnused()) {
+                cur.freeUnusedSubpages();
             }
+            if (cur.isUnused() && (force || arena.parent.exceedsMaxPooledChunkMemory() ||
+                    idleTimeoutNanos > 0 && now - cur.unusedSince >= idleTimeoutNanos)) {
+                remove(cur);
+                arena.destroyPooledChunk(cur);
+                released ++;
+            }
+            cur = next;
         }
+        return released;
     }
 
     void add(PoolChunk<T> chunk) {
@@ -79,7 +131,10 @@ final class PoolChunkList<T> {
             nextList.add(chunk);
             return;
         }
+        add0(chunk);
+    }
 
+    private void add0(PoolChunk<T> chunk) {
         chunk.parent = this;
         if (head == null) {
             head = chunk;
@@ -108,6 +163,34 @@ final class PoolChunkList<T> {
         }
     }
 
+    @Override
+    public int minUsage() {
+        return Math.max(1, minUsage);
+    }
+
+    @Override
+    public int maxUsage() {
+        return Math.min(maxUsage, 100);
+    }
+
+    @Override
+    public Iterator<PoolChunkMetric> iterator() {
+        synchronized (arena) {
+            if (head == null) {
+                return EMPTY_METRICS;
+            }
+            List<PoolChunkMetric> metrics = new ArrayList<PoolChunkMetric>();
+            for (PoolChunk<T> cur = head;;) {
+                metrics.add(cur);
+                cur = cur.next;
+                if (cur == null) {
+                    break;
+                }
+            }
+            return metrics.iterator();
+        }
+    }
+
     @Override
     public String toString() {
         if (head == null) {
@@ -16,13 +16,13 @@
 
 package io.netty.buffer;
 
-final class PoolSubpage<T> {
+final class PoolSubpage<T> implements PoolSubpageMetric {
 
     final PoolChunk<T> chunk;
-    private final int memoryMapIdx;
+    final int memoryMapIdx;
     private final int runOffset;
-    private final int pageSize;
-    private final long[] bitmap;
+    final int runSize;
+    private long[] bitmap;
 
     PoolSubpage<T> prev;
     PoolSubpage<T> next;
@@ -34,49 +34,64 @@ final class PoolSubpage<T> {
     private int nextAvail;
     private int numAvail;
 
+    // Only used by the head of a pool, guarded by it.
+    long allocations;
+    long deallocations;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     /** Special constructor that creates a linked list head */
-    PoolSubpage(int pageSize) {
+    PoolSubpage(int runSize) {
         chunk = null;
         memoryMapIdx = -1;
         runOffset = -1;
         elemSize = -1;
-        this.pageSize = pageSize;
+        this.runSize = runSize;
         bitmap = null;
     }
 
-    PoolSubpage(PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int pageSize, int elemSize) {
+    /**
+     * Creates a new sub-page which is backed by the run of pages at {@code runOffset}. The run consists of one page
+     * for tiny sizes and may consist of more than one page for small sizes.
+     */
+    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int runSize, int elemSize) {
         this.chunk = chunk;
         this.memoryMapIdx = memoryMapIdx;
         this.runOffset = runOffset;
-        this.pageSize = pageSize;
-        bitmap = new long[pageSize >>> 10]; // pageSize / 16 / 64
-        init(elemSize);
+        this.runSize = runSize;
+        init(head, elemSize);
     }
 
-    void init(int elemSize) {
+    /**
+     * Must be called while holding the lock of the arena and of the given {@code head}.
+     */
+    void init(PoolSubpage<T> head, int elemSize) {
         doNotDestroy = true;
         this.elemSize = elemSize;
         if (elemSize != 0) {
-            maxNumElems = numAvail = pageSize / elemSize;
+            maxNumElems = numAvail = runSize / elemSize;
             nextAvail = 0;
             bitmapLength = maxNumElems >>> 6;
             if ((maxNumElems & 63) != 0) {
                 bitmapLength ++;
             }
 
+            if (bitmap == null || bitmap.length < bitmapLength) {
+                bitmap = new long[bitmapLength];
+            }
+
             for (int i = 0; i < bitmapLength; i ++) {
                 bitmap[i] = 0;
             }
         }
 
-        addToPool();
+        addToPool(head);
     }
 
     /**
-     * Returns the bitmap index of the subpage allocation.
+     * Returns the bitmap index of the subpage allocation. Must be called while holding the lock of the head of the
+     * pool.
      */
     long allocate() {
         if (elemSize == 0) {
@@ -101,10 +116,12 @@ final class PoolSubpage<T> {
     }
 
     /**
+     * Must be called while holding the lock of the given {@code head}.
+     *
      * @return {@code true} if this subpage is in use.
      *         {@code false} if this subpage is not used by its chunk and thus it's OK to be released.
      */
-    boolean free(int bitmapIdx) {
+    boolean free(PoolSubpage<T> head, int bitmapIdx) {
 
         if (elemSize == 0) {
             return true;
@@ -118,7 +135,7 @@ final class PoolSubpage<T> {
         setNextAvail(bitmapIdx);
 
         if (numAvail ++ == 0) {
-            addToPool();
+            addToPool(head);
             return true;
         }
 
@@ -138,8 +155,22 @@ final class PoolSubpage<T> {
         }
     }
 
-    private void addToPool() {
-        PoolSubpage<T> head = chunk.arena.findSubpagePoolHead(elemSize);
+    /**
+     * Removes this subpage from its pool if no element is allocated out of it, even if it is the last subpage of the
+     * pool. Must be called while holding the lock of the head of the pool.
+     *
+     * @return {@code true} if this subpage was removed and so its run may be freed.
+     */
+    boolean releaseIfUnused() {
+        if (!doNotDestroy || elemSize == 0 || numAvail != maxNumElems) {
+            return false;
+        }
+        doNotDestroy = false;
+        removeFromPool();
+        return true;
+    }
+
+    private void addToPool(PoolSubpage<T> head) {
         assert prev == null && next == null;
         prev = head;
         next = head.next;
@@ -208,6 +239,39 @@ final class PoolSubpage<T> {
         }
 
         return String.valueOf('(') + memoryMapIdx + ": " + (maxNumElems - numAvail) + '/' + maxNumElems +
-               ", offset: " + runOffset + ", length: " + pageSize + ", elemSize: " + elemSize + ')';
+               ", offset: " + runOffset + ", length: " + runSize + ", elemSize: " + elemSize + ')';
+    }
+
+    // The element size, and so the pool of this subpage, can only change while holding the lock of the arena.
+    // The state of the elements is guarded by the head of the pool.
+
+    @Override
+    public int maxNumElements() {
+        synchronized (chunk.arena) {
+            synchronized (chunk.arena.findSubpagePoolHead(elemSize)) {
+                return maxNumElems;
+            }
+        }
+    }
+
+    @Override
+    public int numAvailable() {
+        synchronized (chunk.arena) {
+            synchronized (chunk.arena.findSubpagePoolHead(elemSize)) {
+                return numAvail;
+            }
+        }
+    }
+
+    @Override
+    public int elementSize() {
+        synchronized (chunk.arena) {
+            return elemSize;
+        }
+    }
+
+    @Override
+    public int pageSize() {
+        return runSize;
     }
 }
@@ -17,6 +17,7 @@
 package io.netty.buffer;
 
 
+import io.netty.buffer.PoolArena.SizeClass;
 import io.netty.util.ThreadDeathWatcher;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -29,7 +30,7 @@ import java.nio.ByteBuffer;
  * technics of <a href="https://www.facebook.com/notes/facebook-engineering/scalable-memory-allocation-using-jemalloc/
  * 480222803919">Scalable memory allocation using jemalloc</a>.
  */
-final class PoolThreadCache {
+final class PoolThreadCache implements PoolThreadCacheMetric {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
 
@@ -50,6 +51,13 @@ final class PoolThreadCache {
     private final int freeSweepAllocationThreshold;
 
     private int allocations;
+    private int directCacheFlushGeneration;
+
+    // Metrics which are only updated by the owning thread.
+    private long hits;
+    private long misses;
+    private long added;
+    private long freed;
 
     private final Thread thread = Thread.currentThread();
     private final Runnable freeTask = new Runnable() {
@@ -77,12 +85,17 @@ final class PoolThreadCache {
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
-            tinySubPageDirectCaches = createSubPageCaches(tinyCacheSize, PoolArena.numTinySubpagePools);
-            smallSubPageDirectCaches = createSubPageCaches(smallCacheSize, directArena.numSmallSubpagePools);
+            tinySubPageDirectCaches = createSubPageCaches(
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+            smallSubPageDirectCaches = createSmallSubPageCaches(
+                    smallCacheSize, normalCacheSize, maxCachedBufferCapacity, directArena);
 
-            numShiftsNormalDirect = log2(directArena.pageSize);
+            numShiftsNormalDirect = log2(directArena.maxSmallSize) + 1;
             normalDirectCaches = createNormalCaches(
                     normalCacheSize, maxCachedBufferCapacity, directArena);
+
+            directArena.numThreadCaches.getAndIncrement();
+            directCacheFlushGeneration = directArena.parent.directCacheFlushGeneration.get();
         } else {
             // No directArea is configured so just null out all caches
             tinySubPageDirectCaches = null;
@@ -92,12 +105,16 @@ final class PoolThreadCache {
         }
         if (heapArena != null) {
             // Create the caches for the heap allocations
-            tinySubPageHeapCaches = createSubPageCaches(tinyCacheSize, PoolArena.numTinySubpagePools);
-            smallSubPageHeapCaches = createSubPageCaches(smallCacheSize, heapArena.numSmallSubpagePools);
+            tinySubPageHeapCaches = createSubPageCaches(
+                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
+            smallSubPageHeapCaches = createSmallSubPageCaches(
+                    smallCacheSize, normalCacheSize, maxCachedBufferCapacity, heapArena);
 
-            numShiftsNormalHeap = log2(heapArena.pageSize);
+            numShiftsNormalHeap = log2(heapArena.maxSmallSize) + 1;
             normalHeapCaches = createNormalCaches(
                     normalCacheSize, maxCachedBufferCapacity, heapArena);
+
+            heapArena.numThreadCaches.getAndIncrement();
         } else {
             // No heapArea is configured so just null out all caches
             tinySubPageHeapCaches = null;
@@ -111,13 +128,14 @@ final class PoolThreadCache {
         ThreadDeathWatcher.watch(thread, freeTask);
     }
 
-    private static <T> SubPageMemoryRegionCache<T>[] createSubPageCaches(int cacheSize, int numCaches) {
+    private static <T> SubPageMemoryRegionCache<T>[] createSubPageCaches(
+            int cacheSize, int numCaches, SizeClass sizeClass) {
         if (cacheSize > 0) {
             @SuppressWarnings("unchecked")
             SubPageMemoryRegionCache<T>[] cache = new SubPageMemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
                 // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize);
+                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, sizeClass);
             }
             return cache;
         } else {
@@ -125,11 +143,38 @@ final class PoolThreadCache {
         }
     }
 
+    /**
+     * Creates the caches for the small size classes. Size classes which are smaller than a page use
+     * {@code smallCacheSize} entries, bigger ones {@code normalCacheSize} entries and are only cached up to
+     * {@code maxCachedBufferCapacity}.
+     */
+    private static <T> SubPageMemoryRegionCache<T>[] createSmallSubPageCaches(
+            int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
+        if (smallCacheSize <= 0 && normalCacheSize <= 0) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        SubPageMemoryRegionCache<T>[] cache = new SubPageMemoryRegionCache[area.numSmallSubpagePools];
+        for (int i = 0; i < cache.length; i++) {
+            int size = PoolArena.smallSize(i);
+            if (size < area.pageSize) {
+                if (smallCacheSize > 0) {
+                    cache[i] = new SubPageMemoryRegionCache<T>(smallCacheSize, SizeClass.Small);
+                }
+            } else if (normalCacheSize > 0 && size <= maxCachedBufferCapacity) {
+                cache[i] = new SubPageMemoryRegionCache<T>(normalCacheSize, SizeClass.Small);
+            }
+        }
+        return cache;
+    }
+
     private static <T> NormalMemoryRegionCache<T>[] createNormalCaches(
             int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
-        if (cacheSize > 0) {
-            int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
+        // normal allocations start at twice the size of the biggest small size class.
+        int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
+        if (cacheSize > 0 && max >= area.maxSmallSize << 1) {
+            int arraySize = log2(max / (area.maxSmallSize << 1)) + 1;
 
             @SuppressWarnings("unchecked")
             NormalMemoryRegionCache<T>[] cache = new NormalMemoryRegionCache[arraySize];
@@ -176,9 +221,15 @@ final class PoolThreadCache {
     private boolean allocate(MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
         if (cache == null) {
             // no cache found so just return false here
+            misses ++;
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity);
+        if (allocated) {
+            hits ++;
+        } else {
+            misses ++;
+        }
         if (++ allocations >= freeSweepAllocationThreshold) {
             allocations = 0;
             trim();
@@ -192,6 +243,10 @@ final class PoolThreadCache {
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     boolean add(PoolArena<?> area, PoolChunk chunk, long handle, int normCapacity) {
+        if (area.isDirect() && flushDirectCachesIfRequested()) {
+            // Unused direct memory is about to be released, so do not hold on to more of it.
+            return false;
+        }
         MemoryRegionCache<?> cache;
         if (area.isTinyOrSmall(normCapacity)) {
             if (PoolArena.isTiny(normCapacity)) {
@@ -205,7 +260,11 @@ final class PoolThreadCache {
         if (cache == null) {
             return false;
         }
-        return cache.add(chunk, handle);
+        if (cache.add(chunk, handle)) {
+            added ++;
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -223,6 +282,16 @@ final class PoolThreadCache {
                 free(tinySubPageHeapCaches) +
                 free(smallSubPageHeapCaches) +
                 free(normalHeapCaches);
+        freed += numFreed;
+
+        if (directArena != null) {
+            directArena.numThreadCaches.getAndDecrement();
+            directArena.releaseOwnership(thread);
+        }
+        if (heapArena != null) {
+            heapArena.numThreadCaches.getAndDecrement();
+            heapArena.releaseOwnership(thread);
+        }
 
         if (numFreed > 0 && logger.isDebugEnabled()) {
             logger.debug("Freed {} thread-local buffer(s) from thread: {}", numFreed, thread.getName());
@@ -248,29 +317,102 @@ final class PoolThreadCache {
         return cache.free();
     }
 
+    /**
+     * Frees all cached direct buffers if the {@link PooledByteBufAllocator} asked for it since the last time.
+     * Returns {@code true} if the caches were flushed.
+     */
+    boolean flushDirectCachesIfRequested() {
+        if (directArena == null) {
+            return false;
+        }
+        int generation = directArena.parent.directCacheFlushGeneration.get();
+        if (generation == directCacheFlushGeneration) {
+            return false;
+        }
+        directCacheFlushGeneration = generation;
+        freed += free(tinySubPageDirectCaches) +
+                free(smallSubPageDirectCaches) +
+                free(normalDirectCaches);
+        return true;
+    }
+
     void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        flushDirectCachesIfRequested();
+        freed += trim(tinySubPageDirectCaches) +
+                trim(smallSubPageDirectCaches) +
+                trim(normalDirectCaches) +
+                trim(tinySubPageHeapCaches) +
+                trim(smallSubPageHeapCaches) +
+                trim(normalHeapCaches);
+
+        // Piggyback on the sweep of the cache to give idle chunks back even if no buffer is released anymore.
+        if (directArena != null) {
+            directArena.releaseUnusedChunks();
+        }
+        if (heapArena != null) {
+            heapArena.releaseUnusedChunks();
+        }
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    private static int trim(MemoryRegionCache<?>[] caches) {
         if (caches == null) {
-            return;
+            return 0;
         }
+        int numFreed = 0;
         for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+            numFreed += trim(c);
         }
+        return numFreed;
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
+    private static int trim(MemoryRegionCache<?> cache) {
         if (cache == null) {
-            return;
+            return 0;
         }
-        cache.trim();
+        return cache.trim();
+    }
+
+    @Override
+    public long numHits() {
+        return hits;
+    }
+
+    @Override
+    public long numMisses() {
+        return misses;
+    }
+
+    @Override
+    public long numAdded() {
+        return added;
+    }
+
+    @Override
+    public long numFreed() {
+        return freed;
+    }
+
+    @Override
+    public int numCached() {
+        return size(tinySubPageDirectCaches) +
+                size(smallSubPageDirectCaches) +
+                size(normalDirectCaches) +
+                size(tinySubPageHeapCaches) +
+                size(smallSubPageHeapCaches) +
+                size(normalHeapCaches);
+    }
+
+    private static int size(MemoryRegionCache<?>[] caches) {
+        if (caches == null) {
+            return 0;
+        }
+        int size = 0;
+        for (MemoryRegionCache<?> c: caches) {
+            if (c != null) {
+                size += c.size();
+            }
+        }
+        return size;
     }
 
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
@@ -309,8 +451,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by TINY or SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size) {
-            super(size);
+        SubPageMemoryRegionCache(int size, SizeClass sizeClass) {
+            super(size, sizeClass);
         }
 
         @Override
@@ -325,7 +467,7 @@ final class PoolThreadCache {
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
         NormalMemoryRegionCache(int size) {
-            super(size);
+            super(size, SizeClass.Normal);
         }
 
         @Override
@@ -344,18 +486,20 @@ final class PoolThreadCache {
     private abstract static class MemoryRegionCache<T> {
         private final Entry<T>[] entries;
         private final int maxUnusedCached;
+        private final SizeClass sizeClass;
         private int head;
         private int tail;
         private int maxEntriesInUse;
         private int entriesInUse;
 
         @SuppressWarnings("unchecked")
-        MemoryRegionCache(int size) {
+        MemoryRegionCache(int size, SizeClass sizeClass) {
             entries = new Entry[powerOfTwo(size)];
             for (int i = 0; i < entries.length; i++) {
                 entries[i] = new Entry<T>();
             }
             maxUnusedCached = size / 2;
+            this.sizeClass = sizeClass;
         }
 
         private static int powerOfTwo(int res) {
@@ -424,10 +568,11 @@ final class PoolThreadCache {
             entriesInUse = 0;
             maxEntriesInUse = 0;
             for (int i = head;; i = nextIdx(i)) {
-                if (freeEntry(entries[i])) {
+                if (freeEntry(entries[i], sizeClass)) {
                     numFreed++;
                 } else {
-                    // all cleared
+                    // all cleared, the cache may still be used afterwards so keep head and tail consistent.
+                    head = i;
                     return numFreed;
                 }
             }
@@ -435,40 +580,42 @@ final class PoolThreadCache {
 
         /**
          * Free up cached {@link PoolChunk}s if not allocated frequently enough.
+         * Returns the number of freed entries.
          */
-        private void trim() {
+        private int trim() {
             int free = size() - maxEntriesInUse;
             entriesInUse = 0;
             maxEntriesInUse = 0;
 
             if (free <= maxUnusedCached) {
-                return;
+                return 0;
             }
 
+            int numFreed = 0;
             int i = head;
             for (; free > 0; free--) {
-                if (!freeEntry(entries[i])) {
+                if (!freeEntry(entries[i], sizeClass)) {
                     // all freed
                     break;
                 }
+                numFreed ++;
                 i = nextIdx(i);
             }
 
             // Update head to point to te correct entry
             // See https://github.com/netty/netty/issues/2924
             head = i;
+            return numFreed;
         }
 
         @SuppressWarnings({ "unchecked", "rawtypes" })
-        private static boolean freeEntry(Entry entry) {
+        private static boolean freeEntry(Entry entry, SizeClass sizeClass) {
             PoolChunk chunk = entry.chunk;
             if (chunk == null) {
                 return false;
             }
-            // need to synchronize on the area from which it was allocated before.
-            synchronized (chunk.arena) {
-                chunk.parent.free(chunk, entry.handle);
-            }
+            // the arena takes care of synchronizing on itself before the chunk is freed.
+            chunk.arena.freeChunk(chunk, entry.handle, sizeClass);
             entry.chunk = null;
             return true;
         }
@@ -476,7 +623,7 @@ final class PoolThreadCache {
         /**
          * Return the number of cached entries.
          */
-        private int size()  {
+        int size()  {
             return tail - head & entries.length - 1;
         }
 
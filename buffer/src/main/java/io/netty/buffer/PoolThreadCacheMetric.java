@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * Metrics for the thread-local cache of a {@link Thread} that allocates via the {@link PooledByteBufAllocator}.
+ *
+ * The counters are only updated by the owning {@link Thread} and so may lag behind when read from another one.
+ */
+public interface PoolThreadCacheMetric {
+
+    /**
+     * Return the number of allocations that were served out of the cache.
+     */
+    long numHits();
+
+    /**
+     * Return the number of allocations that could not be served out of the cache and so needed to go to the arena.
+     */
+    long numMisses();
+
+    /**
+     * Return the number of buffers that were released into the cache instead of being returned to the arena.
+     */
+    long numAdded();
+
+    /**
+     * Return the number of cached buffers which were given back to the arena because they were not used frequently
+     * enough or the cache was freed.
+     */
+    long numFreed();
+
+    /**
+     * Return the number of buffers that are currently held by the cache.
+     */
+    int numCached();
+}
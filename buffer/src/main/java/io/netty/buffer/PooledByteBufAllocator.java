@@ -17,15 +17,22 @@
 package io.netty.buffer;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalAccess;
 import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class PooledByteBufAllocator extends AbstractByteBufAllocator {
+public class PooledByteBufAllocator extends AbstractByteBufAllocator implements BudgetedByteBufAllocator {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PooledByteBufAllocator.class);
     private static final int DEFAULT_NUM_HEAP_ARENA;
@@ -38,6 +45,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final long DEFAULT_CHUNK_IDLE_TIMEOUT;
+    private static final long DEFAULT_MAX_POOLED_CHUNK_MEMORY;
+    private static final long DEFAULT_MAX_DIRECT_MEMORY;
+    private static final long DEFAULT_RELEASE_UNUSED_DIRECT_MEMORY_INTERVAL;
+    private static final boolean DEFAULT_ARENA_AFFINITY;
+    private static final String DEFAULT_HUGE_PAGES;
+    private static final int DEFAULT_HUGE_PAGE_SIZE;
+    private static final DirectChunkProvider DEFAULT_DIRECT_CHUNK_PROVIDER;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -94,6 +109,33 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
 
+        // the number of milliseconds after which a chunk which is not used anymore is released, 0 disables it.
+        DEFAULT_CHUNK_IDLE_TIMEOUT = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkIdleTimeout", 0));
+
+        // the number of bytes of pooled chunks above which chunks are released as soon as they are not used anymore,
+        // 0 disables it.
+        DEFAULT_MAX_POOLED_CHUNK_MEMORY = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.maxPooledChunkMemory", 0));
+
+        // the maximum number of bytes of direct memory an allocator may allocate, 0 disables the limit.
+        DEFAULT_MAX_DIRECT_MEMORY = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.maxDirectMemory", 0));
+
+        // the minimum number of milliseconds between two releases of unused direct memory which were asked for by
+        // releaseUnusedDirectMemory().
+        DEFAULT_RELEASE_UNUSED_DIRECT_MEMORY_INTERVAL = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.releaseUnusedDirectMemoryInterval", 100));
+
+        // if each FastThreadLocalAccess thread, like the threads of an EventLoopGroup, should own an arena on its own.
+        DEFAULT_ARENA_AFFINITY = SystemPropertyUtil.getBoolean("io.netty.allocator.arenaAffinity", false);
+
+        // if the chunks of the direct arenas should be backed by huge pages: "" to not use them, "transparent" to align
+        // chunks so they can be backed by transparent huge pages or the path of a hugetlbfs mount point.
+        DEFAULT_HUGE_PAGES = SystemPropertyUtil.get("io.netty.allocator.hugePages", "").trim();
+        DEFAULT_HUGE_PAGE_SIZE = SystemPropertyUtil.getInt("io.netty.allocator.hugePageSize", 2 * 1024 * 1024);
+        DEFAULT_DIRECT_CHUNK_PROVIDER = DirectChunkProvider.newInstance(DEFAULT_HUGE_PAGES, DEFAULT_HUGE_PAGE_SIZE);
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -113,6 +155,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.chunkIdleTimeout: {}", DEFAULT_CHUNK_IDLE_TIMEOUT);
+            logger.debug("-Dio.netty.allocator.maxPooledChunkMemory: {}", DEFAULT_MAX_POOLED_CHUNK_MEMORY);
+            logger.debug("-Dio.netty.allocator.maxDirectMemory: {}", DEFAULT_MAX_DIRECT_MEMORY);
+            logger.debug("-Dio.netty.allocator.releaseUnusedDirectMemoryInterval: {}",
+                    DEFAULT_RELEASE_UNUSED_DIRECT_MEMORY_INTERVAL);
+            logger.debug("-Dio.netty.allocator.arenaAffinity: {}", DEFAULT_ARENA_AFFINITY);
+            logger.debug("-Dio.netty.allocator.hugePages: {} ({})", DEFAULT_HUGE_PAGES, DEFAULT_DIRECT_CHUNK_PROVIDER);
+            logger.debug("-Dio.netty.allocator.hugePageSize: {}", DEFAULT_HUGE_PAGE_SIZE);
         }
     }
 
@@ -124,8 +174,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final List<PoolArenaMetric> heapArenaMetrics;
+    private final List<PoolArenaMetric> directArenaMetrics;
+    private final long maxPooledChunkMemory;
+    private final boolean arenaAffinity;
 
     final PoolThreadLocalCache threadCache;
+    final long chunkIdleTimeoutNanos;
+    final AtomicLong pooledChunkMemory = new AtomicLong();
+    final DirectMemoryBudget directMemoryBudget;
+    final DirectChunkProvider directChunkProvider = DEFAULT_DIRECT_CHUNK_PROVIDER;
+    // Incremented whenever unused direct memory is released, which makes each thread cache flush its direct buffers.
+    final AtomicInteger directCacheFlushGeneration = new AtomicInteger();
+    private final AtomicLong nextUnusedDirectMemoryReleaseNanos = new AtomicLong(System.nanoTime());
 
     public PooledByteBufAllocator() {
         this(false);
@@ -146,11 +207,77 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize,
+                DEFAULT_CHUNK_IDLE_TIMEOUT, DEFAULT_MAX_POOLED_CHUNK_MEMORY);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkIdleTimeoutMillis the number of milliseconds after which a pooled chunk which is not used by any
+     *                               buffer anymore is released. {@code 0} disables the release of idle chunks.
+     * @param maxPooledChunkMemory   the number of bytes of pooled chunks above which chunks are released as soon as
+     *                               they are not used by any buffer anymore. {@code 0} disables the limit.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  long chunkIdleTimeoutMillis, long maxPooledChunkMemory) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize,
+                chunkIdleTimeoutMillis, maxPooledChunkMemory, DEFAULT_MAX_DIRECT_MEMORY);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkIdleTimeoutMillis the number of milliseconds after which a pooled chunk which is not used by any
+     *                               buffer anymore is released. {@code 0} disables the release of idle chunks.
+     * @param maxPooledChunkMemory   the number of bytes of pooled chunks above which chunks are released as soon as
+     *                               they are not used by any buffer anymore. {@code 0} disables the limit.
+     * @param maxDirectMemory        the maximum number of bytes of direct memory this allocator may allocate for
+     *                               pooled and huge chunks. {@code 0} disables the limit.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  long chunkIdleTimeoutMillis, long maxPooledChunkMemory, long maxDirectMemory) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize, normalCacheSize,
+                chunkIdleTimeoutMillis, maxPooledChunkMemory, maxDirectMemory, DEFAULT_ARENA_AFFINITY);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkIdleTimeoutMillis the number of milliseconds after which a pooled chunk which is not used by any
+     *                               buffer anymore is released. {@code 0} disables the release of idle chunks.
+     * @param maxPooledChunkMemory   the number of bytes of pooled chunks above which chunks are released as soon as
+     *                               they are not used by any buffer anymore. {@code 0} disables the limit.
+     * @param maxDirectMemory        the maximum number of bytes of direct memory this allocator may allocate for
+     *                               pooled and huge chunks. {@code 0} disables the limit.
+     * @param arenaAffinity          {@code true} if each {@link FastThreadLocalAccess} thread, like the threads of
+     *                               an {@code EventLoopGroup}, should own an arena as long as there are arenas left.
+     *                               Memory freed by other threads is then handed back to the owner via a lock-free
+     *                               queue instead of contending for the lock of its arena.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  long chunkIdleTimeoutMillis, long maxPooledChunkMemory, long maxDirectMemory,
+                                  boolean arenaAffinity) {
         super(preferDirect);
+        if (chunkIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "chunkIdleTimeoutMillis: " + chunkIdleTimeoutMillis + " (expected: >= 0)");
+        }
+        if (maxPooledChunkMemory < 0) {
+            throw new IllegalArgumentException(
+                    "maxPooledChunkMemory: " + maxPooledChunkMemory + " (expected: >= 0)");
+        }
         threadCache = new PoolThreadLocalCache();
+        directMemoryBudget = new DirectMemoryBudget(maxDirectMemory);
         this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
+        chunkIdleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(chunkIdleTimeoutMillis);
+        this.maxPooledChunkMemory = maxPooledChunkMemory;
+        this.arenaAffinity = arenaAffinity;
         final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         if (nHeapArena < 0) {
@@ -164,20 +291,31 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
+            List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
-                heapArenas[i] = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                heapArenas[i] = arena;
+                metrics.add(arena);
             }
+            heapArenaMetrics = Collections.unmodifiableList(metrics);
         } else {
             heapArenas = null;
+            heapArenaMetrics = Collections.emptyList();
         }
 
         if (nDirectArena > 0) {
             directArenas = newArenaArray(nDirectArena);
+            List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
-                directArenas[i] = new PoolArena.DirectArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena.DirectArena arena = new PoolArena.DirectArena(
+                        this, pageSize, maxOrder, pageShifts, chunkSize);
+                directArenas[i] = arena;
+                metrics.add(arena);
             }
+            directArenaMetrics = Collections.unmodifiableList(metrics);
         } else {
             directArenas = null;
+            directArenaMetrics = Collections.emptyList();
         }
     }
 
@@ -261,17 +399,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         @Override
         protected PoolThreadCache initialValue() {
             final int idx = index.getAndIncrement();
+            final boolean claimArena = arenaAffinity && Thread.currentThread() instanceof FastThreadLocalAccess;
             final PoolArena<byte[]> heapArena;
             final PoolArena<ByteBuffer> directArena;
 
             if (heapArenas != null) {
-                heapArena = heapArenas[Math.abs(idx % heapArenas.length)];
+                heapArena = claimArena ? claimArena(heapArenas, idx) : heapArenas[Math.abs(idx % heapArenas.length)];
             } else {
                 heapArena = null;
             }
 
             if (directArenas != null) {
-                directArena = directArenas[Math.abs(idx % directArenas.length)];
+                directArena = claimArena ?
+                        claimArena(directArenas, idx) : directArenas[Math.abs(idx % directArenas.length)];
             } else {
                 directArena = null;
             }
@@ -285,24 +425,211 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         protected void onRemoval(PoolThreadCache value) {
             value.free();
         }
+
+        /**
+         * Returns the least used arena which is not owned by any thread yet and makes the current thread its owner.
+         * If all arenas are owned already, the arena is shared with its owner.
+         */
+        private <T> PoolArena<T> claimArena(PoolArena<T>[] arenas, int idx) {
+            for (;;) {
+                PoolArena<T> leastUsedArena = null;
+                for (PoolArena<T> arena: arenas) {
+                    if (arena.isOwnedBy(null) && (leastUsedArena == null ||
+                            arena.numThreadCaches.get() < leastUsedArena.numThreadCaches.get())) {
+                        leastUsedArena = arena;
+                    }
+                }
+                if (leastUsedArena == null) {
+                    return arenas[Math.abs(idx % arenas.length)];
+                }
+                if (leastUsedArena.claimOwnership()) {
+                    return leastUsedArena;
+                }
+                // Claimed by another thread in the meantime, try again.
+            }
+        }
+    }
+
+    /**
+     * Return the number of heap arenas.
+     */
+    public int numHeapArenas() {
+        return heapArenaMetrics.size();
+    }
+
+    /**
+     * Return the number of direct arenas.
+     */
+    public int numDirectArenas() {
+        return directArenaMetrics.size();
+    }
+
+    /**
+     * Return a {@link List} of all heap {@link PoolArenaMetric}s that are provided by this pool.
+     */
+    public List<PoolArenaMetric> heapArenas() {
+        return heapArenaMetrics;
+    }
+
+    /**
+     * Return a {@link List} of all direct {@link PoolArenaMetric}s that are provided by this pool.
+     */
+    public List<PoolArenaMetric> directArenas() {
+        return directArenaMetrics;
+    }
+
+    /**
+     * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
+     */
+    public int numThreadLocalCaches() {
+        PoolArena<?>[] arenas = heapArenas != null ? heapArenas : directArenas;
+        if (arenas == null) {
+            return 0;
+        }
+
+        int total = 0;
+        for (PoolArena<?> arena : arenas) {
+            total += arena.numThreadCaches();
+        }
+
+        return total;
+    }
+
+    /**
+     * Return the size of the tiny cache.
+     */
+    public int tinyCacheSize() {
+        return tinyCacheSize;
+    }
+
+    /**
+     * Return the size of the small cache.
+     */
+    public int smallCacheSize() {
+        return smallCacheSize;
+    }
+
+    /**
+     * Return the size of the normal cache.
+     */
+    public int normalCacheSize() {
+        return normalCacheSize;
+    }
+
+    /**
+     * Return the number of bytes which are currently held by the pooled chunks of all arenas.
+     */
+    public long pooledChunkMemory() {
+        return pooledChunkMemory.get();
+    }
+
+    @Override
+    public long maxDirectMemory() {
+        return directMemoryBudget.max();
+    }
+
+    @Override
+    public long usedDirectMemory() {
+        return directMemoryBudget.used();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The unused chunks of all direct arenas are released at most once per
+     * {@code io.netty.allocator.releaseUnusedDirectMemoryInterval} milliseconds. Each release also makes the thread
+     * local caches give back their direct buffers, so that cached buffers do not keep their chunks in use: the cache of
+     * the calling thread right away and the caches of other threads the next time they cache a buffer or are trimmed.
+     * Their chunks are then released by the next call.</p>
+     */
+    @Override
+    public long releaseUnusedDirectMemory() {
+        if (directArenas == null) {
+            return 0;
+        }
+        boolean release = false;
+        long nowNanos = System.nanoTime();
+        long nextReleaseNanos = nextUnusedDirectMemoryReleaseNanos.get();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RELEASE_UNUSED_DIRECT_MEMORY_INTERVAL);
+        if (nowNanos - nextReleaseNanos >= 0 &&
+                nextUnusedDirectMemoryReleaseNanos.compareAndSet(nextReleaseNanos, nowNanos + intervalNanos)) {
+            directCacheFlushGeneration.incrementAndGet();
+            release = true;
+        }
+        if (threadCache.isSet()) {
+            threadCache.get().flushDirectCachesIfRequested();
+        }
+        if (!release) {
+            return 0;
+        }
+        long used = directMemoryBudget.used();
+        for (PoolArena<ByteBuffer> arena: directArenas) {
+            arena.releaseAllUnusedChunks();
+        }
+        return Math.max(0, used - directMemoryBudget.used());
     }
 
-//    Too noisy at the moment.
-//
-//    public String toString() {
-//        StringBuilder buf = new StringBuilder();
-//        buf.append(heapArenas.length);
-//        buf.append(" heap arena(s):");
-//        buf.append(StringUtil.NEWLINE);
-//        for (PoolArena<byte[]> a: heapArenas) {
-//            buf.append(a);
-//        }
-//        buf.append(directArenas.length);
-//        buf.append(" direct arena(s):");
-//        buf.append(StringUtil.NEWLINE);
-//        for (PoolArena<ByteBuffer> a: directArenas) {
-//            buf.append(a);
-//        }
-//        return buf.toString();
-//    }
+    boolean exceedsMaxPooledChunkMemory() {
+        return maxPooledChunkMemory > 0 && pooledChunkMemory.get() > maxPooledChunkMemory;
+    }
+
+    /**
+     * Release all pooled chunks which are not used by any buffer anymore and are idle for longer than the configured
+     * idle timeout, or while the pooled memory exceeds the configured maximum. This is done automatically when
+     * buffers are released or the thread-local caches are trimmed, but can also be called periodically to give
+     * back memory of an allocator which is not used at all anymore.
+     *
+     * @return the number of released chunks.
+     */
+    public int releaseUnusedChunks() {
+        int released = 0;
+        if (heapArenas != null) {
+            for (PoolArena<byte[]> arena: heapArenas) {
+                released += arena.releaseUnusedChunks();
+            }
+        }
+        if (directArenas != null) {
+            for (PoolArena<ByteBuffer> arena: directArenas) {
+                released += arena.releaseUnusedChunks();
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Return the {@link PoolThreadCacheMetric} of the thread local cache that is used by the calling {@link Thread}.
+     */
+    public PoolThreadCacheMetric threadCacheMetric() {
+        return threadCache.get();
+    }
+
+    /**
+     * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
+     * and so should not called too frequently.
+     */
+    public String dumpStats() {
+        int heapArenasLen = heapArenas == null ? 0 : heapArenas.length;
+        StringBuilder buf = new StringBuilder(512)
+                .append(heapArenasLen)
+                .append(" heap arena(s):")
+                .append(StringUtil.NEWLINE);
+        if (heapArenasLen > 0) {
+            for (PoolArena<byte[]> a: heapArenas) {
+                buf.append(a);
+            }
+        }
+
+        int directArenasLen = directArenas == null ? 0 : directArenas.length;
+
+        buf.append(directArenasLen)
+           .append(" direct arena(s):")
+           .append(StringUtil.NEWLINE);
+        if (directArenasLen > 0) {
+            for (PoolArena<ByteBuffer> a: directArenas) {
+                buf.append(a);
+            }
+        }
+
+        return buf.toString();
+    }
 }
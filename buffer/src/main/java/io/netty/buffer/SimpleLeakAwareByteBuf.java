@@ -86,4 +86,26 @@ final class SimpleLeakAwareByteBuf extends WrappedByteBuf {
     public ByteBuf readSlice(int length) {
         return new SimpleLeakAwareByteBuf(super.readSlice(length), leak);
     }
+
+    @Override
+    public ByteBuf retainedSlice() {
+        return retainedSlice(readerIndex(), readableBytes());
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        // Retain this buffer instead of the wrapped one so the leak is closed once the last reference is released.
+        return PooledSlicedByteBuf.newInstance(unwrap(), this, index, length);
+    }
+
+    @Override
+    public ByteBuf retainedDuplicate() {
+        return PooledDuplicatedByteBuf.newInstance(unwrap(), this, readerIndex(), writerIndex());
+    }
+
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        skipBytes(length);
+        return retainedSlice(readerIndex() - length, length);
+    }
 }
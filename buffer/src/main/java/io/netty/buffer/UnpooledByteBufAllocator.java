@@ -17,10 +17,12 @@ package io.netty.buffer;
 
 import io.netty.util.internal.PlatformDependent;
 
+import java.nio.ByteBuffer;
+
 /**
  * Simplistic {@link ByteBufAllocator} implementation that does not pool anything.
  */
-public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator {
+public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator implements BudgetedByteBufAllocator {
 
     /**
      * Default instance
@@ -28,6 +30,8 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator {
     public static final UnpooledByteBufAllocator DEFAULT =
             new UnpooledByteBufAllocator(PlatformDependent.directBufferPreferred());
 
+    private final DirectMemoryBudget directMemoryBudget;
+
     /**
      * Create a new instance
      *
@@ -35,7 +39,20 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator {
      *                     a heap buffer
      */
     public UnpooledByteBufAllocator(boolean preferDirect) {
+        this(preferDirect, 0);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param preferDirect    {@code true} if {@link #buffer(int)} should try to allocate a direct buffer rather than
+     *                        a heap buffer
+     * @param maxDirectMemory the maximum number of bytes of direct memory this allocator may allocate. {@code 0}
+     *                        disables the limit.
+     */
+    public UnpooledByteBufAllocator(boolean preferDirect, long maxDirectMemory) {
         super(preferDirect);
+        directMemoryBudget = new DirectMemoryBudget(maxDirectMemory);
     }
 
     @Override
@@ -47,9 +64,9 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator {
     protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
         ByteBuf buf;
         if (PlatformDependent.hasUnsafe()) {
-            buf = new UnpooledUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
+            buf = new InstrumentedUnpooledUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
         } else {
-            buf = new UnpooledDirectByteBuf(this, initialCapacity, maxCapacity);
+            buf = new InstrumentedUnpooledDirectByteBuf(this, initialCapacity, maxCapacity);
         }
 
         return toLeakAwareBuffer(buf);
@@ -59,4 +76,74 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator {
     public boolean isDirectBufferPooled() {
         return false;
     }
+
+    @Override
+    public long maxDirectMemory() {
+        return directMemoryBudget.max();
+    }
+
+    @Override
+    public long usedDirectMemory() {
+        return directMemoryBudget.used();
+    }
+
+    @Override
+    public long releaseUnusedDirectMemory() {
+        // Direct memory is freed as soon as a buffer is released.
+        return 0;
+    }
+
+    private static ByteBuffer allocateDirect(DirectMemoryBudget budget, int capacity) {
+        budget.reserve(capacity);
+        boolean success = false;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+            success = true;
+            return buffer;
+        } finally {
+            if (!success) {
+                budget.release(capacity);
+            }
+        }
+    }
+
+    private static final class InstrumentedUnpooledUnsafeDirectByteBuf extends UnpooledUnsafeDirectByteBuf {
+        InstrumentedUnpooledUnsafeDirectByteBuf(
+                UnpooledByteBufAllocator alloc, int initialCapacity, int maxCapacity) {
+            super(alloc, initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected ByteBuffer allocateDirect(int initialCapacity) {
+            return UnpooledByteBufAllocator.allocateDirect(
+                    ((UnpooledByteBufAllocator) alloc()).directMemoryBudget, initialCapacity);
+        }
+
+        @Override
+        protected void freeDirect(ByteBuffer buffer) {
+            int capacity = buffer.capacity();
+            super.freeDirect(buffer);
+            ((UnpooledByteBufAllocator) alloc()).directMemoryBudget.release(capacity);
+        }
+    }
+
+    private static final class InstrumentedUnpooledDirectByteBuf extends UnpooledDirectByteBuf {
+        InstrumentedUnpooledDirectByteBuf(
+                UnpooledByteBufAllocator alloc, int initialCapacity, int maxCapacity) {
+            super(alloc, initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected ByteBuffer allocateDirect(int initialCapacity) {
+            return UnpooledByteBufAllocator.allocateDirect(
+                    ((UnpooledByteBufAllocator) alloc()).directMemoryBudget, initialCapacity);
+        }
+
+        @Override
+        protected void freeDirect(ByteBuffer buffer) {
+            int capacity = buffer.capacity();
+            super.freeDirect(buffer);
+            ((UnpooledByteBufAllocator) alloc()).directMemoryBudget.release(capacity);
+        }
+    }
 }
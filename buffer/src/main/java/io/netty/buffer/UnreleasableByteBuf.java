@@ -65,6 +65,27 @@ final class UnreleasableByteBuf extends WrappedByteBuf {
         return new UnreleasableByteBuf(buf.duplicate());
     }
 
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        // Retaining is a no-op for an unreleasable buffer, so there is no need for a retained slice.
+        return readSlice(length);
+    }
+
+    @Override
+    public ByteBuf retainedSlice() {
+        return slice();
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        return slice(index, length);
+    }
+
+    @Override
+    public ByteBuf retainedDuplicate() {
+        return duplicate();
+    }
+
     @Override
     public ByteBuf retain(int increment) {
         return this;
@@ -1477,6 +1477,117 @@ public abstract class AbstractByteBufTest {
         assertEquals(buffer.capacity() - 2, buffer.slice(1, buffer.capacity() - 2).writerIndex());
     }
 
+    @Test
+    public void testRetainedSlice() {
+        for (int i = 0; i < buffer.capacity(); i ++) {
+            buffer.setByte(i, (byte) random.nextInt());
+        }
+
+        ByteBuf slice = buffer.retainedSlice(1, 16);
+        assertEquals(2, buffer.refCnt());
+        assertEquals(1, slice.refCnt());
+        assertSame(buffer.order(), slice.order());
+        assertEquals(0, slice.readerIndex());
+        assertEquals(16, slice.writerIndex());
+        assertEquals(16, slice.capacity());
+        for (int i = 0; i < slice.capacity(); i ++) {
+            assertEquals(buffer.getByte(i + 1), slice.getByte(i));
+        }
+
+        // Make sure the buffer content is shared.
+        slice.setByte(0, (byte) (slice.getByte(0) + 1));
+        assertEquals(buffer.getByte(1), slice.getByte(0));
+
+        // A non-retained view of the slice must go through the slice's reference count.
+        ByteBuf view = slice.slice();
+        assertEquals(1, view.refCnt());
+
+        assertTrue(slice.release());
+        assertEquals(0, slice.refCnt());
+        assertEquals(1, buffer.refCnt());
+    }
+
+    @Test
+    public void testRetainedSliceOfRetainedSlice() {
+        for (int i = 0; i < buffer.capacity(); i ++) {
+            buffer.setByte(i, (byte) random.nextInt());
+        }
+
+        ByteBuf slice = buffer.retainedSlice(2, 10);
+        ByteBuf slice2 = slice.retainedSlice(1, 4);
+        assertEquals(2, buffer.refCnt());
+        assertEquals(2, slice.refCnt());
+        assertEquals(1, slice2.refCnt());
+        for (int i = 0; i < slice2.capacity(); i ++) {
+            assertEquals(buffer.getByte(i + 3), slice2.getByte(i));
+        }
+
+        assertFalse(slice.release());
+        assertEquals(2, buffer.refCnt());
+        assertTrue(slice2.release());
+        assertEquals(1, buffer.refCnt());
+    }
+
+    @Test
+    public void testRetainedDuplicate() {
+        final int readerIndex = CAPACITY / 3;
+        final int writerIndex = CAPACITY * 2 / 3;
+        buffer.setIndex(readerIndex, writerIndex);
+
+        ByteBuf duplicate = buffer.retainedDuplicate();
+        assertEquals(2, buffer.refCnt());
+        assertEquals(1, duplicate.refCnt());
+        assertEquals(readerIndex, duplicate.readerIndex());
+        assertEquals(writerIndex, duplicate.writerIndex());
+        assertEquals(buffer.capacity(), duplicate.capacity());
+        assertSame(buffer.order(), duplicate.order());
+
+        duplicate.setByte(1, (byte) (buffer.getByte(1) + 1));
+        assertEquals(buffer.getByte(1), duplicate.getByte(1));
+
+        assertTrue(duplicate.release());
+        assertEquals(1, buffer.refCnt());
+    }
+
+    @Test
+    public void testReadRetainedSlice() {
+        buffer.clear();
+        buffer.writeInt(0x01020304);
+        buffer.writeInt(0x05060708);
+
+        ByteBuf slice = buffer.readRetainedSlice(4);
+        assertEquals(4, buffer.readerIndex());
+        assertEquals(4, slice.readableBytes());
+        assertEquals(buffer.getInt(0), slice.readInt());
+        assertTrue(slice.release());
+
+        try {
+            buffer.readRetainedSlice(5);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+        assertEquals(4, buffer.readerIndex());
+        assertEquals(1, buffer.refCnt());
+    }
+
+    @Test(expected = IllegalReferenceCountException.class)
+    public void testRetainedSliceAfterRelease() {
+        releasedBuffer().retainedSlice();
+    }
+
+    @Test(expected = IllegalReferenceCountException.class)
+    public void testRetainedDuplicateAfterRelease() {
+        releasedBuffer().retainedDuplicate();
+    }
+
+    @Test(expected = IllegalReferenceCountException.class)
+    public void testReleasedRetainedSliceNotAccessible() {
+        ByteBuf slice = buffer.retainedSlice(0, 8);
+        assertTrue(slice.release());
+        slice.getByte(0);
+    }
+
     @Test
     @SuppressWarnings("ObjectEqualsNull")
     public void testEquals() {
@@ -20,6 +20,7 @@ import org.junit.Test;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -865,4 +866,68 @@ public abstract class AbstractCompositeByteBufTest extends AbstractByteBufTest {
         assertNotSame(EMPTY_BUFFER, cbuf.internalComponentAtOffset(1));
         cbuf.release();
     }
+
+    @Test
+    public void testForEachComponent() {
+        CompositeByteBuf cbuf = compositeBuffer();
+        cbuf.addComponent(wrappedBuffer(new byte[] { 1, 2, 3 }));
+        cbuf.addComponent(EMPTY_BUFFER);
+        cbuf.addComponent(wrappedBuffer(new byte[] { 4, 5 }));
+        cbuf.addComponent(wrappedBuffer(new byte[] { 6, 7, 8, 9 }));
+        cbuf.writerIndex(9).readerIndex(1);
+
+        final List<Integer> visited = new ArrayList<Integer>();
+        assertEquals(-1, cbuf.forEachComponent(new CompositeByteBuf.ComponentVisitor() {
+            @Override
+            public boolean visit(ByteBuf component, int index, int length) {
+                for (int i = index; i < index + length; i ++) {
+                    visited.add((int) component.getByte(i));
+                }
+                return true;
+            }
+        }));
+        assertEquals(Arrays.asList(2, 3, 4, 5, 6, 7, 8, 9), visited);
+
+        visited.clear();
+        assertEquals(3, cbuf.forEachComponent(2, 5, new CompositeByteBuf.ComponentVisitor() {
+            @Override
+            public boolean visit(ByteBuf component, int index, int length) {
+                visited.add(length);
+                return visited.size() < 2;
+            }
+        }));
+        assertEquals(Arrays.asList(1, 2), visited);
+        cbuf.release();
+    }
+
+    @Test
+    public void testManyComponents() {
+        CompositeByteBuf cbuf = compositeBuffer(Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i ++) {
+            cbuf.addComponent(wrappedBuffer(new byte[] { (byte) i }));
+        }
+        // Insert in the middle, so the components need to be moved.
+        cbuf.addComponent(50, wrappedBuffer(new byte[] { -1, -2 }));
+        cbuf.writerIndex(cbuf.capacity());
+
+        assertEquals(101, cbuf.numComponents());
+        assertEquals(102, cbuf.readableBytes());
+        assertEquals(49, cbuf.getByte(49));
+        assertEquals(-2, cbuf.getByte(51));
+        assertEquals(50, cbuf.getByte(52));
+        assertEquals(50, cbuf.toComponentIndex(51));
+        assertEquals(99, cbuf.getByte(101));
+
+        ByteBuffer[] nioBuffers = cbuf.nioBuffers(49, 4);
+        assertEquals(3, nioBuffers.length);
+        assertEquals(1, nioBuffers[0].remaining());
+        assertEquals(2, nioBuffers[1].remaining());
+        assertEquals(1, nioBuffers[2].remaining());
+
+        cbuf.removeComponents(10, 80);
+        assertEquals(21, cbuf.numComponents());
+        assertEquals(10, cbuf.toByteIndex(10));
+        assertEquals(89, cbuf.getByte(10));
+        cbuf.release();
+    }
 }
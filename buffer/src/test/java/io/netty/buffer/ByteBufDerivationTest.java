@@ -16,10 +16,12 @@
 
 package io.netty.buffer;
 
+import io.netty.util.ResourceLeak;
 import org.junit.Test;
 
 import java.nio.ByteOrder;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -199,6 +201,75 @@ public class ByteBufDerivationTest {
         }
     }
 
+    @Test
+    public void testRetainedSliceOfRetainedSlice() throws Exception {
+        ByteBuf buf = Unpooled.buffer(8);
+        ByteBuf slice = buf.retainedSlice(1, 7);
+        ByteBuf slice2 = slice.retainedSlice(1, 5);
+
+        assertThat(slice, instanceOf(PooledSlicedByteBuf.class));
+        assertThat(slice2, instanceOf(PooledSlicedByteBuf.class));
+        assertThat(slice2.unwrap(), sameInstance(buf));
+        assertThat(slice2.arrayOffset(), is(2));
+        assertThat(slice2.capacity(), is(5));
+
+        ByteBuf dup = slice2.retainedDuplicate();
+        assertThat(dup.unwrap(), sameInstance(buf));
+        assertThat(dup.capacity(), is(5));
+
+        assertThat(buf.refCnt(), is(2));
+        assertThat(slice2.refCnt(), is(2));
+        assertThat(dup.release(), is(true));
+        assertThat(slice2.release(), is(true));
+        assertThat(slice.release(), is(true));
+        assertThat(buf.release(), is(true));
+    }
+
+    @Test
+    public void testRetainedSliceIsRecycled() throws Exception {
+        ByteBuf buf = Unpooled.buffer(8);
+        ByteBuf slice = buf.retainedSlice(0, 4);
+        assertThat(slice.release(), is(true));
+
+        ByteBuf slice2 = buf.retainedSlice(2, 6);
+        assertThat(slice2, sameInstance(slice));
+        assertThat(slice2.refCnt(), is(1));
+        assertThat(slice2.capacity(), is(6));
+        assertThat(slice2.arrayOffset(), is(2));
+        assertThat(slice2.release(), is(true));
+        assertThat(buf.release(), is(true));
+    }
+
+    @Test
+    public void testRetainedSliceOfLeakAwareBuffer() throws Exception {
+        final AtomicInteger closed = new AtomicInteger();
+        ResourceLeak leak = new ResourceLeak() {
+            @Override
+            public void record() {
+            }
+
+            @Override
+            public void record(Object hint) {
+            }
+
+            @Override
+            public boolean close() {
+                return closed.incrementAndGet() == 1;
+            }
+        };
+
+        ByteBuf buf = new SimpleLeakAwareByteBuf(Unpooled.buffer(8).writeLong(1), leak);
+        ByteBuf frame = buf.readRetainedSlice(4);
+        assertThat(buf.readerIndex(), is(4));
+        assertThat(frame.unwrap(), sameInstance(buf.unwrap()));
+
+        // The leak must only be closed once the frame which still references the buffer is released.
+        assertThat(buf.release(), is(false));
+        assertThat(closed.get(), is(0));
+        assertThat(frame.release(), is(true));
+        assertThat(closed.get(), is(1));
+    }
+
     private static int nestLevel(ByteBuf buf) {
         int depth = 0;
         for (ByteBuf b = buf.order(ByteOrder.BIG_ENDIAN);;) {
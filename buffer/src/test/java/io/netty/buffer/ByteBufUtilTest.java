@@ -20,6 +20,7 @@ import static org.junit.Assert.assertTrue;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
 
+import java.nio.ByteOrder;
 import java.util.Random;
 
 import org.junit.Assert;
@@ -105,4 +106,138 @@ public class ByteBufUtilTest {
 
         Assert.assertEquals(buf, buf2);
     }
+
+    private static ByteBuf[] buffersOf(byte[] bytes) {
+        // Heap, direct, sliced, composite and little endian buffers take different paths.
+        ByteBuf heap = Unpooled.wrappedBuffer(bytes);
+        ByteBuf direct = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+        ByteBuf sliced = Unpooled.buffer(bytes.length + 3).writerIndex(3).writeBytes(bytes).slice(3, bytes.length);
+        ByteBuf composite = Unpooled.wrappedBuffer(
+                Unpooled.wrappedBuffer(bytes, 0, bytes.length / 2),
+                Unpooled.directBuffer().writeBytes(bytes, bytes.length / 2, bytes.length - bytes.length / 2));
+        ByteBuf littleEndian = Unpooled.directBuffer(bytes.length).order(ByteOrder.LITTLE_ENDIAN).writeBytes(bytes);
+        return new ByteBuf[] { heap, direct, sliced, composite, littleEndian };
+    }
+
+    @Test
+    public void testIndexOf() {
+        Random rand = new Random(42);
+        for (int length = 0; length < 80; length ++) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i ++) {
+                bytes[i] = (byte) (rand.nextInt(8) - 4);
+            }
+            for (ByteBuf buf: buffersOf(bytes)) {
+                for (int from = 0; from <= length; from += 3) {
+                    for (int to = from; to <= length; to += 5) {
+                        for (byte value = -5; value < 5; value ++) {
+                            Assert.assertEquals(naiveIndexOf(bytes, from, to, value),
+                                                ByteBufUtil.indexOf(buf, from, to, value));
+                            Assert.assertEquals(naiveLastIndexOf(bytes, to, from, value),
+                                                ByteBufUtil.indexOf(buf, to, from, value));
+                        }
+                    }
+                }
+                buf.release();
+            }
+        }
+    }
+
+    private static int naiveIndexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i ++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int naiveLastIndexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from - 1; i >= to; i --) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testEqualsAndCompare() {
+        Random rand = new Random(42);
+        for (int length = 0; length < 40; length ++) {
+            byte[] a = new byte[length];
+            rand.nextBytes(a);
+            for (int diff = -1; diff < length; diff ++) {
+                byte[] b = a.clone();
+                if (diff >= 0) {
+                    b[diff] = (byte) (b[diff] + rand.nextInt(255) + 1);
+                }
+                int expected = naiveCompare(a, b);
+                for (ByteBuf bufA: buffersOf(a)) {
+                    for (ByteBuf bufB: buffersOf(b)) {
+                        Assert.assertEquals(diff < 0, ByteBufUtil.equals(bufA, bufB));
+                        if (bufA.order() == ByteOrder.BIG_ENDIAN && bufB.order() == ByteOrder.BIG_ENDIAN) {
+                            Assert.assertEquals(expected, Integer.signum(ByteBufUtil.compare(bufA, bufB)));
+                        }
+                        bufB.release();
+                    }
+                    bufA.release();
+                }
+            }
+        }
+    }
+
+    private static int naiveCompare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i ++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return Integer.signum(diff);
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    public void testIndexOfNeedle() {
+        Random rand = new Random(42);
+        byte[] bytes = new byte[4096];
+        for (int i = 0; i < bytes.length; i ++) {
+            bytes[i] = (byte) ('a' + rand.nextInt(3));
+        }
+        ByteBuf haystack = Unpooled.wrappedBuffer(bytes);
+        for (int needleLength = 1; needleLength < 24; needleLength ++) {
+            for (int start = 0; start < bytes.length - needleLength; start += 97) {
+                ByteBuf needle = Unpooled.directBuffer().writeBytes(bytes, start, needleLength);
+                int expected = naiveIndexOf(bytes, needle);
+                Assert.assertEquals(expected, ByteBufUtil.indexOf(needle, haystack));
+                // Too short for Boyer-Moore-Horspool.
+                ByteBuf shortHaystack = haystack.slice(start, Math.min(128, bytes.length - start));
+                int expectedShort = naiveIndexOf(bytes, needle, start, start + shortHaystack.capacity());
+                Assert.assertEquals(expectedShort < 0 ? -1 : expectedShort - start,
+                                    ByteBufUtil.indexOf(needle, shortHaystack));
+                needle.release();
+            }
+        }
+        ByteBuf needle = Unpooled.copiedBuffer("dddd", CharsetUtil.US_ASCII);
+        Assert.assertEquals(-1, ByteBufUtil.indexOf(needle, haystack));
+        Assert.assertEquals(0, ByteBufUtil.indexOf(Unpooled.EMPTY_BUFFER, haystack));
+        needle.release();
+    }
+
+    private static int naiveIndexOf(byte[] bytes, ByteBuf needle) {
+        return naiveIndexOf(bytes, needle, 0, bytes.length);
+    }
+
+    private static int naiveIndexOf(byte[] bytes, ByteBuf needle, int from, int to) {
+        byte[] pattern = ByteBufUtil.getBytes(needle);
+        outer: for (int i = from; i <= to - pattern.length; i ++) {
+            for (int j = 0; j < pattern.length; j ++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class DirectChunkProviderTest {
+
+    @Test
+    public void testDefaultIfNotConfigured() {
+        assertSame(DirectChunkProvider.DEFAULT, DirectChunkProvider.newInstance("", 2 * 1024 * 1024));
+        assertSame(DirectChunkProvider.DEFAULT, DirectChunkProvider.newInstance("transparent", 3 * 1024 * 1024));
+        assertSame(DirectChunkProvider.DEFAULT,
+                DirectChunkProvider.newInstance("/does/not/exist/netty-huge-pages", 2 * 1024 * 1024));
+    }
+
+    @Test
+    public void testAligned() {
+        assumeTrue(PlatformDependent.hasUnsafe());
+        int alignment = 64 * 1024;
+        DirectChunkProvider provider = DirectChunkProvider.newInstance("transparent", alignment);
+        assertTrue(provider instanceof DirectChunkProvider.Aligned);
+        assertEquals(alignment * 5, provider.allocationSize(alignment * 4));
+
+        for (int i = 0; i < 8; i ++) {
+            ByteBuffer memory = provider.allocate(alignment * 4);
+            assertEquals(alignment * 4, memory.capacity());
+            assertEquals(0, memory.position());
+            assertEquals(0, PlatformDependent.directBufferAddress(memory) & alignment - 1);
+            memory.putLong(memory.capacity() - 8, 42);
+            assertEquals(42, memory.getLong(memory.capacity() - 8));
+            provider.free(memory);
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws Exception {
+        File dir = File.createTempFile("netty-huge-pages-", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        try {
+            testMappedFile(dir);
+        } finally {
+            dir.delete();
+        }
+    }
+
+    private static void testMappedFile(File dir) {
+        int hugePageSize = 64 * 1024;
+        DirectChunkProvider provider = DirectChunkProvider.newInstance(dir.getPath(), hugePageSize);
+        assertTrue(provider instanceof DirectChunkProvider.MappedFile);
+        assertEquals(hugePageSize * 2, provider.allocationSize(hugePageSize * 2));
+
+        ByteBuffer memory = provider.allocate(hugePageSize * 2);
+        assertTrue(memory.isDirect());
+        assertEquals(hugePageSize * 2, memory.capacity());
+        // The file is removed as soon as it was mapped.
+        assertEquals(0, dir.list().length);
+        memory.putLong(hugePageSize, 42);
+        assertEquals(42, memory.getLong(hugePageSize));
+        provider.free(memory);
+
+        // Not a multiple of the huge page size so normal pages are used.
+        memory = provider.allocate(hugePageSize + 4096);
+        assertTrue(memory.isDirect());
+        assertEquals(hugePageSize + 4096, memory.capacity());
+        provider.free(memory);
+    }
+}
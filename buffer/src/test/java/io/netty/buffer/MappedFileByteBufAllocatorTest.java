@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MappedFileByteBufAllocatorTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("netty-", ".tmp");
+        file.deleteOnExit();
+        write(file, "0123456789abcdef");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(CharsetUtil.US_ASCII));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        MappedFileByteBufAllocator alloc = new MappedFileByteBufAllocator();
+        MappedFileByteBuf buf = alloc.map(file);
+        assertTrue(buf.isDirect());
+        assertEquals(file.getCanonicalFile(), buf.file());
+        assertEquals(0, buf.position());
+        assertEquals("0123456789abcdef", buf.toString(CharsetUtil.US_ASCII));
+
+        ByteBuf slice = buf.slice(10, 6);
+        assertEquals("abcdef", slice.toString(CharsetUtil.US_ASCII));
+        assertTrue(slice.release());
+        assertEquals(0, buf.refCnt());
+
+        MappedFileByteBuf part = alloc.map(file, 4, 4);
+        assertEquals(4, part.position());
+        assertEquals("4567", part.toString(CharsetUtil.US_ASCII));
+        assertTrue(part.release());
+    }
+
+    @Test
+    public void testRegionReused() throws IOException {
+        MappedFileByteBufAllocator alloc = new MappedFileByteBufAllocator(1);
+        MappedFileByteBuf buf = alloc.map(file);
+        MappedFileByteBuf buf2 = alloc.map(file);
+        assertSame(buf.region, buf2.region);
+        assertTrue(buf.release());
+        assertTrue(buf2.release());
+        assertEquals(1, alloc.cachedRegions());
+
+        // The region stays mapped and is reused by later requests.
+        MappedFileByteBuf buf3 = alloc.map(file);
+        assertSame(buf.region, buf3.region);
+        assertEquals("0123456789abcdef", buf3.toString(CharsetUtil.US_ASCII));
+        assertTrue(buf3.release());
+
+        alloc.trim();
+        assertEquals(0, alloc.cachedRegions());
+    }
+
+    @Test
+    public void testRegionRemappedIfModified() throws IOException {
+        MappedFileByteBufAllocator alloc = new MappedFileByteBufAllocator();
+        MappedFileByteBuf buf = alloc.map(file);
+        long lastModified = file.lastModified();
+        write(file, "fedcba9876543210");
+        assertTrue(file.setLastModified(lastModified + 2000));
+        MappedFileByteBuf buf2 = alloc.map(file);
+        assertNotSame(buf.region, buf2.region);
+        assertEquals("fedcba9876543210", buf2.toString(CharsetUtil.US_ASCII));
+        assertEquals(1, alloc.cachedRegions());
+        assertTrue(buf.release());
+        assertTrue(buf2.release());
+        assertEquals(1, alloc.cachedRegions());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRegionsEvicted() throws IOException {
+        MappedFileByteBufAllocator alloc = new MappedFileByteBufAllocator(2);
+        MappedFileByteBuf buf = alloc.map(file, 0, 4);
+        MappedFileByteBuf buf2 = alloc.map(file, 4, 4);
+        MappedFileByteBuf buf3 = alloc.map(file, 8, 4);
+        // Regions are not evicted as long as they are used.
+        assertEquals(3, alloc.cachedRegions());
+
+        assertTrue(buf.release());
+        assertEquals(2, alloc.cachedRegions());
+        assertTrue(buf2.release());
+        assertTrue(buf3.release());
+        assertEquals(2, alloc.cachedRegions());
+
+        // The region of buf was evicted.
+        MappedFileByteBuf buf4 = alloc.map(file, 0, 4);
+        assertNotSame(buf.region, buf4.region);
+        assertEquals("0123", buf4.toString(CharsetUtil.US_ASCII));
+        assertTrue(buf4.release());
+        assertEquals(2, alloc.cachedRegions());
+    }
+
+    @Test
+    public void testNoCache() throws IOException {
+        MappedFileByteBufAllocator alloc = new MappedFileByteBufAllocator(0);
+        MappedFileByteBuf buf = alloc.map(file);
+        assertEquals(1, alloc.cachedRegions());
+        assertTrue(buf.release());
+        assertEquals(0, alloc.cachedRegions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMapBeyondEndOfFile() throws IOException {
+        new MappedFileByteBufAllocator().map(file, 8, 9);
+    }
+}
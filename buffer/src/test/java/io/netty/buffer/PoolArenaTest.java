@@ -25,11 +25,57 @@ public class PoolArenaTest {
 
     @Test
     public void testNormalizeCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999);
-        int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 16, 512, 1024, 1024, 2048};
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 11, 13, 8192 << 11);
+        int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025, 9216, 32768, 32769, 40000};
+        int[] expectedResult = {0, 16, 512, 1024, 1024, 1280, 10240, 32768, 65536, 65536};
         for (int i = 0; i < reqCapacities.length; i ++) {
             Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
         }
     }
+
+    @Test
+    public void testSmallSizeClasses() throws Exception {
+        int[] sizes = {512, 640, 768, 896, 1024, 1280, 1536, 1792, 2048, 2560};
+        for (int i = 0; i < sizes.length; i ++) {
+            Assert.assertEquals(i, PoolArena.smallIdx(sizes[i]));
+            Assert.assertEquals(sizes[i], PoolArena.smallSize(i));
+        }
+        for (int i = 0; i < 32; i ++) {
+            Assert.assertEquals(i, PoolArena.smallIdx(PoolArena.smallSize(i)));
+        }
+    }
+
+    @Test
+    public void testCalculateRunSize() throws Exception {
+        // 8192 % 16 == 0
+        Assert.assertEquals(8192, PoolArena.calculateRunSize(16, 8192, 8192 << 4));
+        // 8192 % 3072 == 2048 which is more than 1/8 of the run, 16384 % 3072 == 1024 is fine.
+        Assert.assertEquals(16384, PoolArena.calculateRunSize(3072, 8192, 8192 << 4));
+        // 32768 % 10240 == 2048
+        Assert.assertEquals(32768, PoolArena.calculateRunSize(10240, 8192, 8192 << 4));
+        // No run up to the maximum wastes at most 1/8, so the one with the least waste is used.
+        Assert.assertEquals(32768, PoolArena.calculateRunSize(24576, 8192, 32768));
+    }
+
+    @Test
+    public void testAllocateSmallSizeClasses() throws Exception {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        ByteBuf[] buffers = new ByteBuf[64];
+        for (int i = 0; i < buffers.length; i ++) {
+            buffers[i] = allocator.directBuffer(9216);
+            buffers[i].writerIndex(buffers[i].capacity());
+        }
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        Assert.assertEquals(buffers.length, metric.numSmallAllocations());
+        Assert.assertEquals(0, metric.numNormalAllocations());
+        for (PoolSubpageMetric subpage: metric.smallSubpages()) {
+            Assert.assertEquals(10240, subpage.elementSize());
+            Assert.assertEquals(32768, subpage.pageSize());
+            Assert.assertEquals(3, subpage.maxNumElements());
+        }
+        for (ByteBuf buf: buffers) {
+            Assert.assertTrue(buf.release());
+        }
+        Assert.assertEquals(0, metric.numActiveAllocations());
+    }
 }
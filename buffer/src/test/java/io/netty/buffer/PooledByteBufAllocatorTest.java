@@ -0,0 +1,361 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.*;
+
+public class PooledByteBufAllocatorTest {
+
+    @Test
+    public void testArenaMetricsNoCache() {
+        testArenaMetrics0(new PooledByteBufAllocator(true, 2, 2, 8192, 11, 0, 0, 0), 100, 0, 100, 100);
+    }
+
+    @Test
+    public void testArenaMetricsCache() {
+        testArenaMetrics0(new PooledByteBufAllocator(true, 2, 2, 8192, 11, 1000, 1000, 1000), 100, 1, 1, 0);
+    }
+
+    private static void testArenaMetrics0(
+            PooledByteBufAllocator allocator, int num, int expectedActive, int expectedAlloc, int expectedDealloc) {
+        for (int i = 0; i < num; i++) {
+            assertTrue(allocator.directBuffer().release());
+            assertTrue(allocator.heapBuffer().release());
+        }
+
+        assertArenaMetrics(allocator.directArenas(), expectedActive, expectedAlloc, expectedDealloc);
+        assertArenaMetrics(allocator.heapArenas(), expectedActive, expectedAlloc, expectedDealloc);
+    }
+
+    private static void assertArenaMetrics(
+            List<PoolArenaMetric> arenaMetrics, int expectedActive, int expectedAlloc, int expectedDealloc) {
+        int active = 0;
+        int alloc = 0;
+        int dealloc = 0;
+        for (PoolArenaMetric arena : arenaMetrics) {
+            active += arena.numActiveAllocations();
+            alloc += arena.numAllocations();
+            dealloc += arena.numDeallocations();
+        }
+        assertEquals(expectedActive, active);
+        assertEquals(expectedAlloc, alloc);
+        assertEquals(expectedDealloc, dealloc);
+    }
+
+    @Test
+    public void testHugeAllocationMetrics() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 0, 0, 0, 0);
+        ByteBuf buffer = allocator.directBuffer(16384);
+
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        assertEquals(1, metric.numHugeAllocations());
+        assertEquals(1, metric.numActiveHugeAllocations());
+        assertEquals(16384, metric.numActiveBytes());
+
+        assertTrue(buffer.release());
+        assertEquals(1, metric.numHugeDeallocations());
+        assertEquals(0, metric.numActiveHugeAllocations());
+        assertEquals(0, metric.numActiveBytes());
+    }
+
+    @Test
+    public void testChunkAndSubpageMetrics() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        ByteBuf tiny = allocator.directBuffer(16);
+        ByteBuf normal = allocator.directBuffer(65536);
+
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        assertEquals(1, metric.numTinyAllocations());
+        assertEquals(1, metric.numNormalAllocations());
+        assertEquals(8192 << 11, metric.numActiveBytes());
+
+        int chunks = 0;
+        for (PoolChunkListMetric list : metric.chunkLists()) {
+            for (PoolChunkMetric chunk : list) {
+                assertEquals(8192 << 11, chunk.chunkSize());
+                assertEquals(chunk.chunkSize() - 65536 - 8192, chunk.freeBytes());
+                chunks ++;
+            }
+        }
+        assertEquals(1, chunks);
+
+        List<PoolSubpageMetric> subpages = metric.tinySubpages();
+        assertEquals(1, subpages.size());
+        PoolSubpageMetric subpage = subpages.get(0);
+        assertEquals(16, subpage.elementSize());
+        assertEquals(8192, subpage.pageSize());
+        assertEquals(8192 / 16, subpage.maxNumElements());
+        assertEquals(8192 / 16 - 1, subpage.numAvailable());
+
+        assertTrue(tiny.release());
+        assertTrue(normal.release());
+        assertEquals(0, metric.numActiveAllocations());
+    }
+
+    @Test
+    public void testThreadCacheMetric() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 1000, 1000, 1000);
+        PoolThreadCacheMetric metric = allocator.threadCacheMetric();
+        assertEquals(1, allocator.numThreadLocalCaches());
+
+        assertTrue(allocator.directBuffer(16).release());
+        assertEquals(0, metric.numHits());
+        assertEquals(1, metric.numMisses());
+        assertEquals(1, metric.numAdded());
+        assertEquals(1, metric.numCached());
+
+        assertTrue(allocator.directBuffer(16).release());
+        assertEquals(1, metric.numHits());
+        assertEquals(1, metric.numMisses());
+        assertEquals(2, metric.numAdded());
+        assertEquals(1, metric.numCached());
+    }
+
+    @Test
+    public void testUnusedChunksAreKeptByDefault() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        assertTrue(allocator.directBuffer(65536).release());
+
+        assertEquals(0, allocator.releaseUnusedChunks());
+        assertEquals(8192 << 11, allocator.pooledChunkMemory());
+        assertEquals(0, allocator.directArenas().get(0).numReleasedChunks());
+    }
+
+    @Test
+    public void testReleaseUnusedChunksWhenExceedingMaxPooledChunkMemory() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, 0, chunkSize - 1);
+        assertTrue(allocator.directBuffer(65536).release());
+        assertEquals(0, allocator.pooledChunkMemory());
+
+        PoolArenaMetric metric = allocator.directArenas().get(0);
+        assertEquals(1, metric.numReleasedChunks());
+        assertEquals(chunkSize, metric.numReleasedBytes());
+    }
+
+    @Test
+    public void testUnusedChunksAreKeptBelowMaxPooledChunkMemory() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, 0, chunkSize);
+        assertTrue(allocator.directBuffer(65536).release());
+        assertEquals(chunkSize, allocator.pooledChunkMemory());
+        assertEquals(0, allocator.directArenas().get(0).numReleasedChunks());
+    }
+
+    @Test
+    public void testEmptyChunkIsReleasedFromHighUsageList() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        // Use the whole chunk so it is moved to the list of chunks with 100% usage.
+        assertTrue(allocator.directBuffer(chunkSize - 1).release());
+        assertEquals(0, allocator.pooledChunkMemory());
+        assertEquals(1, allocator.directArenas().get(0).numReleasedChunks());
+    }
+
+    @Test
+    public void testReleaseIdleChunks() throws Exception {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, 10, 0);
+        assertTrue(allocator.directBuffer(65536).release());
+        assertEquals(8192 << 11, allocator.pooledChunkMemory());
+
+        Thread.sleep(100);
+        assertEquals(1, allocator.releaseUnusedChunks());
+        assertEquals(0, allocator.pooledChunkMemory());
+        assertEquals(1, allocator.directArenas().get(0).numReleasedChunks());
+    }
+
+    @Test
+    public void testUsedDirectMemory() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        assertEquals(0, allocator.maxDirectMemory());
+
+        ByteBuf buffer = allocator.directBuffer(65536);
+        assertEquals(chunkSize, allocator.usedDirectMemory());
+        ByteBuf hugeBuffer = allocator.directBuffer(chunkSize * 2);
+        assertEquals(chunkSize * 3, allocator.usedDirectMemory());
+        assertTrue(hugeBuffer.release());
+        assertEquals(chunkSize, allocator.usedDirectMemory());
+        // The chunk stays pooled.
+        assertTrue(buffer.release());
+        assertEquals(chunkSize, allocator.usedDirectMemory());
+        // Unless unused memory is released explicitly.
+        assertEquals(chunkSize, allocator.releaseUnusedDirectMemory());
+        assertEquals(0, allocator.usedDirectMemory());
+    }
+
+    @Test
+    public void testReleaseUnusedDirectMemoryIsRateLimited() throws Exception {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        assertTrue(allocator.directBuffer(65536).release());
+        assertEquals(chunkSize, allocator.releaseUnusedDirectMemory());
+
+        assertTrue(allocator.directBuffer(65536).release());
+        // Too soon after the last release.
+        assertEquals(0, allocator.releaseUnusedDirectMemory());
+        assertEquals(chunkSize, allocator.usedDirectMemory());
+
+        Thread.sleep(200);
+        assertEquals(chunkSize, allocator.releaseUnusedDirectMemory());
+        assertEquals(0, allocator.usedDirectMemory());
+    }
+
+    @Test
+    public void testReleaseUnusedDirectMemoryFlushesThreadCaches() throws Exception {
+        int chunkSize = 8192 << 11;
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 512, 256, 64);
+        assertTrue(allocator.directBuffer(1024).release());
+        assertEquals(1, allocator.threadCacheMetric().numCached());
+
+        // A buffer cached by another thread is given back the next time that thread caches a buffer.
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+        final CountDownLatch released = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    assertTrue(allocator.directBuffer(2048).release());
+                    released.countDown();
+                    queue.take();
+                    assertTrue(allocator.directBuffer(4096).release());
+                    queue.add(allocator.threadCacheMetric().numCached());
+                } catch (Throwable cause) {
+                    queue.add(cause);
+                }
+            }
+        });
+        thread.start();
+        released.await();
+
+        // The cache of the calling thread is flushed right away, but the chunk is still used by the other cache.
+        assertEquals(0, allocator.releaseUnusedDirectMemory());
+        assertEquals(0, allocator.threadCacheMetric().numCached());
+        assertEquals(chunkSize, allocator.usedDirectMemory());
+
+        queue.add(Boolean.TRUE);
+        thread.join();
+        assertEquals(0, queue.take());
+        Thread.sleep(200);
+        allocator.releaseUnusedDirectMemory();
+        assertEquals(0, allocator.usedDirectMemory());
+    }
+
+    @Test
+    public void testDirectMemoryBudgetExceeded() {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, 0, 0, chunkSize + 65536);
+        assertEquals(chunkSize + 65536, allocator.maxDirectMemory());
+
+        ByteBuf buffer = allocator.directBuffer(chunkSize / 2);
+        try {
+            // Needs a second chunk.
+            allocator.directBuffer(chunkSize / 2 + 1);
+            fail();
+        } catch (DirectMemoryBudgetExceededException expected) {
+            // expected
+        }
+        try {
+            allocator.directBuffer(chunkSize * 2);
+            fail();
+        } catch (DirectMemoryBudgetExceededException expected) {
+            // expected
+        }
+        assertEquals(chunkSize, allocator.usedDirectMemory());
+
+        // Heap memory is not accounted.
+        assertTrue(allocator.heapBuffer(chunkSize * 2).release());
+
+        // Once the buffer is released the pooled chunk can be used again.
+        assertTrue(buffer.release());
+        assertTrue(allocator.directBuffer(chunkSize / 2 + 1).release());
+        // The chunk was fully used, so it is destroyed once it becomes empty again.
+        assertEquals(0, allocator.usedDirectMemory());
+    }
+
+    @Test
+    public void testArenaAffinity() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 2, 8192, 11, 0, 0, 0, 0, 0, 0, true);
+        EventExecutor executor1 = new DefaultEventExecutor();
+        EventExecutor executor2 = new DefaultEventExecutor();
+        try {
+            Callable<ByteBuf> allocate = new Callable<ByteBuf>() {
+                @Override
+                public ByteBuf call() {
+                    return allocator.directBuffer(65536);
+                }
+            };
+            ByteBuf buffer1 = executor1.submit(allocate).syncUninterruptibly().getNow();
+            ByteBuf buffer2 = executor2.submit(allocate).syncUninterruptibly().getNow();
+
+            // Each executor owns an arena.
+            PoolArenaMetric arena1 = allocator.directArenas().get(0);
+            PoolArenaMetric arena2 = allocator.directArenas().get(1);
+            assertEquals(1, arena1.numActiveAllocations());
+            assertEquals(1, arena2.numActiveAllocations());
+
+            // Released by a foreign thread, so the memory is handed back to the owner.
+            assertTrue(buffer1.release());
+            assertTrue(buffer2.release());
+            assertEquals(1, arena1.numActiveAllocations());
+            assertEquals(1, arena2.numActiveAllocations());
+
+            // The owner frees the memory with its next allocation.
+            assertTrue(executor1.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return allocator.directBuffer(65536).release();
+                }
+            }).syncUninterruptibly().getNow());
+            assertEquals(2, arena1.numAllocations());
+            assertEquals(0, arena1.numActiveAllocations());
+
+            // Or it is freed when unused chunks are released.
+            allocator.releaseUnusedChunks();
+            assertEquals(0, arena2.numActiveAllocations());
+        } finally {
+            executor1.shutdownGracefully().syncUninterruptibly();
+            executor2.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testNoArenaAffinityForOtherThreads() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, 0, 0, 0, true);
+        ByteBuf buffer = allocator.directBuffer(65536);
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        assertEquals(1, arena.numActiveAllocations());
+        assertTrue(buffer.release());
+        assertEquals(0, arena.numActiveAllocations());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UnpooledByteBufAllocatorTest {
+
+    @Test
+    public void testUsedDirectMemory() {
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(true);
+        assertEquals(0, allocator.maxDirectMemory());
+
+        ByteBuf buffer = allocator.directBuffer(1024);
+        assertEquals(1024, allocator.usedDirectMemory());
+        buffer.capacity(4096);
+        assertEquals(4096, allocator.usedDirectMemory());
+        buffer.capacity(512);
+        assertEquals(512, allocator.usedDirectMemory());
+        assertTrue(buffer.release());
+        assertEquals(0, allocator.usedDirectMemory());
+
+        assertTrue(allocator.heapBuffer(1024).release());
+        assertEquals(0, allocator.usedDirectMemory());
+    }
+
+    @Test
+    public void testDirectMemoryBudgetExceeded() {
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(true, 1024);
+        assertEquals(1024, allocator.maxDirectMemory());
+
+        ByteBuf buffer = allocator.directBuffer(1000);
+        try {
+            allocator.directBuffer(25);
+            fail();
+        } catch (DirectMemoryBudgetExceededException expected) {
+            // expected
+        }
+        try {
+            buffer.capacity(1025);
+            fail();
+        } catch (DirectMemoryBudgetExceededException expected) {
+            // expected
+        }
+        assertEquals(1000, buffer.capacity());
+        assertEquals(1000, allocator.usedDirectMemory());
+
+        ByteBuf buffer2 = allocator.directBuffer(24);
+        assertEquals(1024, allocator.usedDirectMemory());
+        assertTrue(buffer.release());
+        assertTrue(buffer2.release());
+        assertEquals(0, allocator.usedDirectMemory());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxDirectMemory() {
+        new UnpooledByteBufAllocator(true, -1);
+    }
+}
@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.AsciiStringCache;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.TooLongFrameException;
@@ -106,6 +107,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     protected final boolean validateHeaders;
     private final HeaderParser headerParser;
     private final LineParser lineParser;
+    private final AsciiStringCache headerNames = new AsciiStringCache();
 
     private HttpMessage message;
     private long chunkSize;
@@ -694,7 +696,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             }
         }
 
-        name = sb.substring(nameStart, nameEnd);
+        name = headerNames.intern(sb, nameStart, nameEnd - nameStart);
         valueStart = findNonWhitespace(sb, colonEnd);
         if (valueStart == length) {
             value = EMPTY_VALUE;
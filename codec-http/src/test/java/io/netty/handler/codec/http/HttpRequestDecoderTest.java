@@ -21,6 +21,7 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.*;
@@ -86,6 +87,25 @@ public class HttpRequestDecoderTest {
         assertNull(channel.readInbound());
     }
 
+    @Test
+    public void testHeaderNamesAreInterned() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(CONTENT_CRLF_DELIMITERS)));
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(CONTENT_CRLF_DELIMITERS)));
+        HttpRequest req1 = channel.readInbound();
+        ((LastHttpContent) channel.readInbound()).release();
+        HttpRequest req2 = channel.readInbound();
+        ((LastHttpContent) channel.readInbound()).release();
+
+        List<CharSequence> names1 = new ArrayList<CharSequence>(req1.headers().names());
+        List<CharSequence> names2 = new ArrayList<CharSequence>(req2.headers().names());
+        assertEquals(names1.size(), names2.size());
+        for (CharSequence name: names1) {
+            assertSame(name, names2.get(names2.indexOf(name)));
+        }
+        assertFalse(channel.finish());
+    }
+
     private static void checkHeaders(HttpHeaders headers) {
         assertEquals(7, headers.names().size());
         checkHeader(headers, "Upgrade", "WebSocket");
@@ -23,7 +23,10 @@ import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
 import static io.netty.handler.codec.http2.Http2Exception.connectionError;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
-import io.netty.util.ByteString;
+import io.netty.handler.codec.AsciiStringCache;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http2.Http2Headers.PseudoHeaderName;
+import io.netty.util.AsciiString;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,8 +35,44 @@ import com.twitter.hpack.Decoder;
 import com.twitter.hpack.HeaderListener;
 
 public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2HeadersDecoder.Configuration {
+    /**
+     * The names of the HPACK static table (RFC 7541, Appendix A) which have a constant in {@link HttpHeaderNames}.
+     */
+    private static final AsciiString[] STATIC_NAMES = {
+            HttpHeaderNames.ACCEPT_CHARSET, HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderNames.ACCEPT_LANGUAGE,
+            HttpHeaderNames.ACCEPT_RANGES, HttpHeaderNames.ACCEPT, HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN,
+            HttpHeaderNames.AGE, HttpHeaderNames.ALLOW, HttpHeaderNames.AUTHORIZATION, HttpHeaderNames.CACHE_CONTROL,
+            HttpHeaderNames.CONTENT_DISPOSITION, HttpHeaderNames.CONTENT_ENCODING, HttpHeaderNames.CONTENT_LANGUAGE,
+            HttpHeaderNames.CONTENT_LENGTH, HttpHeaderNames.CONTENT_LOCATION, HttpHeaderNames.CONTENT_RANGE,
+            HttpHeaderNames.CONTENT_TYPE, HttpHeaderNames.COOKIE, HttpHeaderNames.DATE, HttpHeaderNames.ETAG,
+            HttpHeaderNames.EXPECT, HttpHeaderNames.EXPIRES, HttpHeaderNames.FROM, HttpHeaderNames.HOST,
+            HttpHeaderNames.IF_MATCH, HttpHeaderNames.IF_MODIFIED_SINCE, HttpHeaderNames.IF_NONE_MATCH,
+            HttpHeaderNames.IF_RANGE, HttpHeaderNames.IF_UNMODIFIED_SINCE, HttpHeaderNames.LAST_MODIFIED,
+            HttpHeaderNames.LOCATION, HttpHeaderNames.MAX_FORWARDS, HttpHeaderNames.PROXY_AUTHENTICATE,
+            HttpHeaderNames.PROXY_AUTHORIZATION, HttpHeaderNames.RANGE, HttpHeaderNames.REFERER,
+            HttpHeaderNames.RETRY_AFTER, HttpHeaderNames.SERVER, HttpHeaderNames.SET_COOKIE,
+            HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderNames.USER_AGENT, HttpHeaderNames.VARY, HttpHeaderNames.VIA,
+            HttpHeaderNames.WWW_AUTHENTICATE, new AsciiString(PseudoHeaderName.AUTHORITY.value().array()),
+            new AsciiString(PseudoHeaderName.METHOD.value().array()),
+            new AsciiString(PseudoHeaderName.PATH.value().array()),
+            new AsciiString(PseudoHeaderName.SCHEME.value().array()),
+            new AsciiString(PseudoHeaderName.STATUS.value().array())
+    };
+
+    /**
+     * The values of the HPACK static table (RFC 7541, Appendix A).
+     */
+    private static final AsciiString[] STATIC_VALUES = {
+            new AsciiString("GET"), new AsciiString("POST"), new AsciiString("/"), new AsciiString("/index.html"),
+            new AsciiString("http"), new AsciiString("https"), new AsciiString("200"), new AsciiString("204"),
+            new AsciiString("206"), new AsciiString("304"), new AsciiString("400"), new AsciiString("404"),
+            new AsciiString("500"), new AsciiString("gzip, deflate")
+    };
+
     private final Decoder decoder;
     private final Http2HeaderTable headerTable;
+    private final AsciiStringCache names = new AsciiStringCache(STATIC_NAMES);
+    private final AsciiStringCache values = new AsciiStringCache(STATIC_VALUES);
 
     public DefaultHttp2HeadersDecoder() {
         this(DEFAULT_MAX_HEADER_SIZE, DEFAULT_HEADER_TABLE_SIZE);
@@ -62,7 +101,14 @@ public class DefaultHttp2HeadersDecoder implements Http2HeadersDecoder, Http2Hea
             HeaderListener listener = new HeaderListener() {
                 @Override
                 public void addHeader(byte[] key, byte[] value, boolean sensitive) {
-                    headers.add(new ByteString(key, false), new ByteString(value, false));
+                    // hpack never modifies the arrays it hands over, so they can be shared on a cache miss.
+                    // Sensitive values are never cached to keep them out of the lookup table.
+                    AsciiString name = names.intern(key, 0, key.length, false);
+                    if (sensitive) {
+                        headers.add(name, new AsciiString(value, false));
+                    } else {
+                        headers.add(name, values.intern(value, 0, value.length, false));
+                    }
                 }
             };
 
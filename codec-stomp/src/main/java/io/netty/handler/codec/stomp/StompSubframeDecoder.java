@@ -18,13 +18,13 @@ package io.netty.handler.codec.stomp;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.AsciiStringCache;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.ReplayingDecoder;
 import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.stomp.StompSubframeDecoder.State;
 import io.netty.util.internal.AppendableCharSequence;
-import io.netty.util.internal.StringUtil;
 
 import java.util.List;
 import java.util.Locale;
@@ -71,6 +71,14 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
 
     private final int maxLineLength;
     private final int maxChunkSize;
+    private final AppendableCharSequence line = new AppendableCharSequence(128);
+    private final AsciiStringCache headerNames = new AsciiStringCache(
+            StompHeaders.ACCEPT_VERSION, StompHeaders.HOST, StompHeaders.LOGIN, StompHeaders.PASSCODE,
+            StompHeaders.HEART_BEAT, StompHeaders.VERSION, StompHeaders.SESSION, StompHeaders.SERVER,
+            StompHeaders.DESTINATION, StompHeaders.ID, StompHeaders.ACK, StompHeaders.TRANSACTION,
+            StompHeaders.RECEIPT, StompHeaders.MESSAGE_ID, StompHeaders.SUBSCRIPTION, StompHeaders.RECEIPT_ID,
+            StompHeaders.MESSAGE, StompHeaders.CONTENT_LENGTH, StompHeaders.CONTENT_TYPE);
+    private final AsciiStringCache headerValues = new AsciiStringCache();
     private int alreadyReadChunkSize;
     private LastStompContentSubframe lastContent;
     private long contentLength;
@@ -168,7 +176,7 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
     }
 
     private StompCommand readCommand(ByteBuf in) {
-        String commandStr = readLine(in, maxLineLength);
+        String commandStr = readLine(in).toString();
         StompCommand command = null;
         try {
             command = StompCommand.valueOf(commandStr);
@@ -191,12 +199,9 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
 
     private State readHeaders(ByteBuf buffer, StompHeaders headers) {
         for (;;) {
-            String line = readLine(buffer, maxLineLength);
-            if (!line.isEmpty()) {
-                String[] split = StringUtil.split(line, ':');
-                if (split.length == 2) {
-                    headers.add(split[0], split[1]);
-                }
+            AppendableCharSequence line = readLine(buffer);
+            if (line.length() > 0) {
+                readHeader(line, headers);
             } else {
                 long contentLength = -1;
                 if (headers.contains(StompHeaders.CONTENT_LENGTH))  {
@@ -218,6 +223,34 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
         }
     }
 
+    /**
+     * Adds the header in {@code line} if it consists of exactly a name and a value separated by a colon. Trailing
+     * colons are ignored.
+     */
+    private void readHeader(AppendableCharSequence line, StompHeaders headers) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == ':') {
+            end --;
+        }
+
+        int colon = -1;
+        for (int i = 0; i < end; i ++) {
+            if (line.charAt(i) == ':') {
+                if (colon >= 0) {
+                    // More than one separator.
+                    return;
+                }
+                colon = i;
+            }
+        }
+        if (colon < 0) {
+            return;
+        }
+
+        headers.add(headerNames.intern(line, 0, colon),
+                    headerValues.intern(line, colon + 1, end - colon - 1));
+    }
+
     private static long getContentLength(StompHeaders headers, long defaultValue) {
         return headers.getLong(StompHeaders.CONTENT_LENGTH, defaultValue);
     }
@@ -240,18 +273,19 @@ public class StompSubframeDecoder extends ReplayingDecoder<State> {
         }
     }
 
-    private static String readLine(ByteBuf buffer, int maxLineLength) {
-        AppendableCharSequence buf = new AppendableCharSequence(128);
+    private AppendableCharSequence readLine(ByteBuf buffer) {
+        AppendableCharSequence buf = line;
+        buf.reset();
         int lineLength = 0;
         for (;;) {
             byte nextByte = buffer.readByte();
             if (nextByte == StompConstants.CR) {
                 nextByte = buffer.readByte();
                 if (nextByte == StompConstants.LF) {
-                    return buf.toString();
+                    return buf;
                 }
             } else if (nextByte == StompConstants.LF) {
-                return buf.toString();
+                return buf;
             } else {
                 if (lineLength >= maxLineLength) {
                     throw new TooLongFrameException("An STOMP line is larger than " + maxLineLength + " bytes.");
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+import io.netty.util.internal.MathUtil;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A bounded table which maps a range of bytes or characters to a canonical {@link AsciiString} instance, so that a
+ * decoder which sees the same protocol tokens (header names, methods, common header values) over and over again does
+ * not need to allocate a new {@link AsciiString} and {@code byte[]} for each of them.
+ * <p>
+ * The table is direct-mapped: every token hashes to exactly one slot, and a miss replaces whatever the slot held
+ * before. The memory used by a cache is therefore bounded by its capacity and the maximum length of the tokens it
+ * accepts, no matter what a remote peer sends. The {@link AsciiString}s given to the constructor are only used to
+ * warm up the table and may be evicted like any other entry.
+ * <p>
+ * This class is not thread-safe. It is meant to be owned by a single decoder and so by a single channel.
+ */
+public final class AsciiStringCache {
+
+    public static final int DEFAULT_CAPACITY = 128;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final AsciiString[] entries;
+    private final int[] hashes;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * Creates a new instance with the {@linkplain #DEFAULT_CAPACITY default capacity} and
+     * {@linkplain #DEFAULT_MAX_LENGTH default maximum token length}.
+     */
+    public AsciiStringCache(AsciiString... seeds) {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH, seeds);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param capacity the number of slots in the table, rounded up to the next power of two
+     * @param maxLength the maximum length of a token which is stored in the table. Longer tokens are always returned
+     *                  as a new {@link AsciiString}.
+     * @param seeds the canonical instances to put in the table up front
+     */
+    public AsciiStringCache(int capacity, int maxLength, AsciiString... seeds) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity + " (expected: > 0)");
+        }
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength: " + maxLength + " (expected: >= 0)");
+        }
+        checkNotNull(seeds, "seeds");
+
+        int size = MathUtil.findNextPositivePowerOfTwo(capacity);
+        entries = new AsciiString[size];
+        hashes = new int[size];
+        mask = size - 1;
+        this.maxLength = maxLength;
+
+        for (AsciiString seed: seeds) {
+            byte[] array = seed.array();
+            store(hash(array, 0, array.length), seed);
+        }
+    }
+
+    /**
+     * Returns the canonical {@link AsciiString} for the specified range of {@code value}. A copy of the range is made
+     * if the token is not in the table yet.
+     */
+    public AsciiString intern(byte[] value, int start, int length) {
+        return intern(value, start, length, true);
+    }
+
+    /**
+     * Returns the canonical {@link AsciiString} for the specified range of {@code value}.
+     *
+     * @param copy {@code false} if {@code value} may be shared by the new {@link AsciiString} when the token is not
+     *             in the table yet. See {@link AsciiString#AsciiString(byte[], int, int, boolean)}.
+     */
+    public AsciiString intern(byte[] value, int start, int length, boolean copy) {
+        checkRange(checkNotNull(value, "value").length, start, length);
+        if (length > maxLength) {
+            return new AsciiString(value, start, length, copy);
+        }
+
+        int hash = hash(value, start, length);
+        int index = hash & mask;
+        AsciiString entry = entries[index];
+        if (entry != null && hashes[index] == hash && contentEquals(entry, value, start, length)) {
+            return entry;
+        }
+        return store(hash, new AsciiString(value, start, length, copy));
+    }
+
+    /**
+     * Returns the canonical {@link AsciiString} for the specified range of {@code value}. Every character is
+     * truncated to 8 bits, as done by {@link AsciiString#AsciiString(CharSequence, int, int)}.
+     */
+    public AsciiString intern(CharSequence value, int start, int length) {
+        checkRange(checkNotNull(value, "value").length(), start, length);
+        if (length > maxLength) {
+            return new AsciiString(value, start, length);
+        }
+
+        int hash = 0;
+        for (int i = start, end = start + length; i < end; i++) {
+            hash = hash * 31 + (value.charAt(i) & 0xFF);
+        }
+        int index = hash & mask;
+        AsciiString entry = entries[index];
+        if (entry != null && hashes[index] == hash && entry.length() == length) {
+            byte[] array = entry.array();
+            int i = 0;
+            while (i < length && array[i] == (byte) value.charAt(start + i)) {
+                i++;
+            }
+            if (i == length) {
+                return entry;
+            }
+        }
+        return store(hash, new AsciiString(value, start, length));
+    }
+
+    /**
+     * Returns the canonical {@link AsciiString} for the specified range of {@code buffer}. This method does not
+     * modify the {@code readerIndex} or {@code writerIndex} of {@code buffer}.
+     */
+    public AsciiString intern(ByteBuf buffer, int index, int length) {
+        checkNotNull(buffer, "buffer");
+        if (buffer.hasArray()) {
+            return intern(buffer.array(), buffer.arrayOffset() + index, length, true);
+        }
+        checkRange(buffer.capacity(), index, length);
+        if (length > maxLength) {
+            return newAsciiString(buffer, index, length);
+        }
+
+        int hash = 0;
+        for (int i = index, end = index + length; i < end; i++) {
+            hash = hash * 31 + (buffer.getByte(i) & 0xFF);
+        }
+        int slot = hash & mask;
+        AsciiString entry = entries[slot];
+        if (entry != null && hashes[slot] == hash && entry.length() == length) {
+            byte[] array = entry.array();
+            int i = 0;
+            while (i < length && array[i] == buffer.getByte(index + i)) {
+                i++;
+            }
+            if (i == length) {
+                return entry;
+            }
+        }
+        return store(hash, newAsciiString(buffer, index, length));
+    }
+
+    private AsciiString store(int hash, AsciiString value) {
+        if (value.length() <= maxLength) {
+            int index = hash & mask;
+            entries[index] = value;
+            hashes[index] = hash;
+        }
+        return value;
+    }
+
+    private static AsciiString newAsciiString(ByteBuf buffer, int index, int length) {
+        byte[] array = new byte[length];
+        buffer.getBytes(index, array);
+        return new AsciiString(array, false);
+    }
+
+    private static int hash(byte[] value, int start, int length) {
+        int hash = 0;
+        for (int i = start, end = start + length; i < end; i++) {
+            hash = hash * 31 + (value[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static boolean contentEquals(AsciiString entry, byte[] value, int start, int length) {
+        if (entry.length() != length) {
+            return false;
+        }
+        byte[] array = entry.array();
+        for (int i = 0; i < length; i++) {
+            if (array[i] != value[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkRange(int capacity, int start, int length) {
+        if (start < 0 || length < 0 || start > capacity - length) {
+            throw new IndexOutOfBoundsException("expected: 0 <= start(" + start + ") <= start + length(" + length
+                    + ") <= capacity(" + capacity + ')');
+        }
+    }
+}
@@ -482,18 +482,19 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder {
     /**
      * Extract the sub-region of the specified buffer.
      * <p>
+     * By default this returns a {@linkplain ByteBuf#retainedSlice(int, int) retained slice}
+     * which shares the content of the cumulation buffer and is recycled once released,
+     * so extracting a frame does neither copy nor allocate in steady state.
      * If you are sure that the frame and its content are not accessed after
      * the current {@link #decode(ChannelHandlerContext, ByteBuf)}
-     * call returns, you can even avoid memory copy by returning the sliced
+     * call returns, you can even avoid the reference counting by returning the sliced
      * sub-region (i.e. <tt>return buffer.slice(index, length)</tt>).
      * It's often useful when you convert the extracted frame into an object.
      * Refer to the source code of {@link ObjectDecoder} to see how this method
-     * is overridden to avoid memory copy.
+     * is overridden.
      */
     protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
-        ByteBuf frame = ctx.alloc().buffer(length);
-        frame.writeBytes(buffer, index, length);
-        return frame;
+        return buffer.retainedSlice(index, length);
     }
 
     private void fail(long frameLength) {
@@ -170,6 +170,12 @@ final class ReplayingDecoderByteBuf extends ByteBuf {
         return this;
     }
 
+    @Override
+    public ByteBuf retainedDuplicate() {
+        reject();
+        return this;
+    }
+
     @Override
     public boolean getBoolean(int index) {
         checkIndex(index, 1);
@@ -527,6 +533,12 @@ final class ReplayingDecoderByteBuf extends ByteBuf {
         return buffer.readSlice(length);
     }
 
+    @Override
+    public ByteBuf readRetainedSlice(int length) {
+        checkReadableBytes(length);
+        return buffer.readRetainedSlice(length);
+    }
+
     @Override
     public ByteBuf readBytes(OutputStream out, int length) {
         reject();
@@ -749,6 +761,18 @@ final class ReplayingDecoderByteBuf extends ByteBuf {
         return buffer.slice(index, length);
     }
 
+    @Override
+    public ByteBuf retainedSlice() {
+        reject();
+        return this;
+    }
+
+    @Override
+    public ByteBuf retainedSlice(int index, int length) {
+        checkIndex(index, length);
+        return buffer.retainedSlice(index, length);
+    }
+
     @Override
     public int nioBufferCount() {
         return buffer.nioBufferCount();
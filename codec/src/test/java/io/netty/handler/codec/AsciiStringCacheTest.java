@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsciiStringCacheTest {
+
+    private static final AsciiString HOST = new AsciiString("host");
+
+    @Test
+    public void testSeedIsReturnedForAllSources() {
+        AsciiStringCache cache = new AsciiStringCache(HOST);
+        byte[] bytes = "xhosty".getBytes(CharsetUtil.US_ASCII);
+        ByteBuf heap = Unpooled.wrappedBuffer(bytes);
+        ByteBuf direct = Unpooled.directBuffer().writeBytes(bytes);
+        try {
+            assertSame(HOST, cache.intern(bytes, 1, 4));
+            assertSame(HOST, cache.intern("xhosty", 1, 4));
+            assertSame(HOST, cache.intern(heap, 1, 4));
+            assertSame(HOST, cache.intern(direct, 1, 4));
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
+
+    @Test
+    public void testMissIsCachedAndCopied() {
+        AsciiStringCache cache = new AsciiStringCache();
+        byte[] bytes = "Content-Type".getBytes(CharsetUtil.US_ASCII);
+        AsciiString first = cache.intern(bytes, 0, bytes.length);
+        assertEquals(new AsciiString("Content-Type"), first);
+        assertNotSame(bytes, first.array());
+
+        assertSame(first, cache.intern("Content-Type", 0, 12));
+        assertSame(first, cache.intern(bytes, 0, bytes.length, false));
+    }
+
+    @Test
+    public void testMissWithoutCopySharesArray() {
+        AsciiStringCache cache = new AsciiStringCache();
+        byte[] bytes = "accept".getBytes(CharsetUtil.US_ASCII);
+        assertSame(bytes, cache.intern(bytes, 0, bytes.length, false).array());
+    }
+
+    @Test
+    public void testCollisionReplacesEntry() {
+        // A single slot makes every token collide.
+        AsciiStringCache cache = new AsciiStringCache(1, 16, HOST);
+        AsciiString accept = cache.intern("accept", 0, 6);
+        assertEquals(new AsciiString("accept"), accept);
+        assertNotSame(HOST, cache.intern("host", 0, 4));
+        assertNotSame(accept, cache.intern("accept", 0, 6));
+    }
+
+    @Test
+    public void testTooLongIsNotCached() {
+        AsciiStringCache cache = new AsciiStringCache(16, 4);
+        AsciiString first = cache.intern("accept", 0, 6);
+        assertEquals(new AsciiString("accept"), first);
+        assertNotSame(first, cache.intern("accept", 0, 6));
+        assertSame(cache.intern("host", 0, 4), cache.intern("host", 0, 4));
+    }
+
+    @Test
+    public void testEmpty() {
+        AsciiStringCache cache = new AsciiStringCache();
+        AsciiString empty = cache.intern(new byte[0], 0, 0);
+        assertTrue(empty.isEmpty());
+        assertSame(empty, cache.intern("", 0, 0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        new AsciiStringCache().intern("host", 2, 3);
+    }
+}
@@ -21,15 +21,22 @@ import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link Timer} optimized for approximated I/O timeout scheduling.
@@ -62,6 +69,20 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
  * share it across your application.  One of the common mistakes, that makes
  * your application unresponsive, is to create a new instance for every connection.
  *
+ * <h3>Executing {@link TimerTask}s</h3>
+ *
+ * By default all {@link TimerTask}s are executed by the single worker thread, which means one slow
+ * {@link TimerTask} delays all the others.  If an {@link Executor} is specified in the constructor or via
+ * {@link #newTimeout(TimerTask, long, TimeUnit, Executor)} (for example the {@code EventLoop} of a
+ * {@code Channel}), the worker thread only takes care of the wheel and hands the expired {@link Timeout}s over to
+ * the {@link Executor}.  All the {@link Timeout}s which expire in the same tick for the same {@link Executor} are
+ * dispatched as one batch.
+ *
+ * <h3>Metrics</h3>
+ *
+ * {@link #pendingTimeouts()}, {@link #tickLagNanos()}, {@link #lastTickExpiredTimeouts()} and
+ * {@link #expiredTimeouts()} can be used to monitor if the timer keeps up with the scheduled {@link Timeout}s.
+ *
  * <h3>Implementation Details</h3>
  *
  * {@link HashedWheelTimer} is based on
@@ -107,9 +128,16 @@ public class HashedWheelTimer implements Timer {
     private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
     private final Queue<HashedWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
     private final Queue<Runnable> cancelledTimeouts = PlatformDependent.newMpscQueue();
+    private final Executor taskExecutor;
+    private final AtomicLong pendingTimeouts = new AtomicLong();
 
     private volatile long startTime;
 
+    // Metrics which are only updated by the worker thread.
+    private volatile long tickLagNanos;
+    private volatile int lastTickExpiredTimeouts;
+    private volatile long expiredTimeouts;
+
     /**
      * Creates a new timer with the default thread factory
      * ({@link Executors#defaultThreadFactory()}), default tick duration, and
@@ -191,6 +219,26 @@ public class HashedWheelTimer implements Timer {
     public HashedWheelTimer(
             ThreadFactory threadFactory,
             long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, null);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a
+     *                       background {@link Thread} which is dedicated to
+     *                       maintaining the wheel.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of the wheel
+     * @param taskExecutor   the {@link Executor} which executes the expired {@link TimerTask}s, or {@code null} if
+     *                       they should be executed by the background {@link Thread}
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is <= 0
+     */
+    public HashedWheelTimer(
+            ThreadFactory threadFactory,
+            long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
 
         if (threadFactory == null) {
             throw new NullPointerException("threadFactory");
@@ -218,6 +266,7 @@ public class HashedWheelTimer implements Timer {
                     "tickDuration: %d (expected: 0 < tickDuration in nanos < %d",
                     tickDuration, Long.MAX_VALUE / wheel.length));
         }
+        this.taskExecutor = taskExecutor;
         workerThread = threadFactory.newThread(worker);
 
         leak = leakDetector.open(this);
@@ -323,6 +372,19 @@ public class HashedWheelTimer implements Timer {
 
     @Override
     public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        return newTimeout(task, delay, unit, taskExecutor);
+    }
+
+    /**
+     * Schedules the specified {@link TimerTask} for one-time execution after the specified delay. Once the
+     * {@link Timeout} expired the {@link TimerTask} is executed by the given {@link Executor}, or by the worker thread
+     * if {@code executor} is {@code null}.
+     *
+     * @return a handle which is associated with the specified task
+     *
+     * @throws IllegalStateException       if this timer has been {@linkplain #stop() stopped} already
+     */
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit, Executor executor) {
         if (task == null) {
             throw new NullPointerException("task");
         }
@@ -334,13 +396,46 @@ public class HashedWheelTimer implements Timer {
         // Add the timeout to the timeout queue which will be processed on the next tick.
         // During processing all the queued HashedWheelTimeouts will be added to the correct HashedWheelBucket.
         long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
-        HashedWheelTimeout timeout = new HashedWheelTimeout(this, task, deadline);
+        HashedWheelTimeout timeout = new HashedWheelTimeout(this, task, deadline, executor);
+        pendingTimeouts.incrementAndGet();
         timeouts.add(timeout);
         return timeout;
     }
 
+    /**
+     * Returns the number of {@link Timeout}s which were neither expired nor cancelled yet.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * Returns the nanoseconds the worker thread started to process the last tick after the time it was supposed to.
+     * A growing value means that the worker thread can not keep up, usually because {@link TimerTask}s are executed
+     * by the worker thread and take too long.
+     */
+    public long tickLagNanos() {
+        return tickLagNanos;
+    }
+
+    /**
+     * Returns the number of {@link Timeout}s which expired during the last tick.
+     */
+    public int lastTickExpiredTimeouts() {
+        return lastTickExpiredTimeouts;
+    }
+
+    /**
+     * Returns the total number of {@link Timeout}s which expired since this timer was started.
+     */
+    public long expiredTimeouts() {
+        return expiredTimeouts;
+    }
+
     private final class Worker implements Runnable {
         private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        // The expired timeouts of the current tick which need to be dispatched to an Executor.
+        private final Map<Executor, TimeoutBatch> batches = new IdentityHashMap<Executor, TimeoutBatch>();
 
         private long tick;
 
@@ -364,7 +459,12 @@ public class HashedWheelTimer implements Timer {
                     HashedWheelBucket bucket =
                             wheel[idx];
                     transferTimeoutsToBuckets();
-                    bucket.expireTimeouts(deadline);
+                    int expired = bucket.expireTimeouts(deadline);
+
+                    tickLagNanos = Math.max(0, deadline - tickDuration * (tick + 1));
+                    lastTickExpiredTimeouts = expired;
+                    expiredTimeouts += expired;
+                    dispatchBatches();
                     tick++;
                 }
             } while (WORKER_STATE_UPDATER.get(HashedWheelTimer.this) == WORKER_STATE_STARTED);
@@ -410,6 +510,36 @@ public class HashedWheelTimer implements Timer {
             }
         }
 
+        /**
+         * Add the expired {@link HashedWheelTimeout} to the batch of its {@link Executor}.
+         */
+        void addToBatch(HashedWheelTimeout timeout) {
+            TimeoutBatch batch = batches.get(timeout.executor);
+            if (batch == null) {
+                batch = new TimeoutBatch();
+                batches.put(timeout.executor, batch);
+            }
+            batch.timeouts.add(timeout);
+        }
+
+        private void dispatchBatches() {
+            if (batches.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<Executor, TimeoutBatch> e: batches.entrySet()) {
+                TimeoutBatch batch = e.getValue();
+                try {
+                    e.getKey().execute(batch);
+                } catch (RejectedExecutionException ex) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("Failed to dispatch expired timeouts, executing them on the worker thread", ex);
+                    }
+                    batch.run();
+                }
+            }
+            batches.clear();
+        }
+
         private void processCancelledTasks() {
             for (;;) {
                 Runnable task = cancelledTimeouts.poll();
@@ -472,6 +602,21 @@ public class HashedWheelTimer implements Timer {
         }
     }
 
+    /**
+     * The expired {@link HashedWheelTimeout}s of one tick which are executed by the same {@link Executor}.
+     */
+    private static final class TimeoutBatch implements Runnable {
+        final List<HashedWheelTimeout> timeouts = new ArrayList<HashedWheelTimeout>();
+
+        @Override
+        public void run() {
+            List<HashedWheelTimeout> timeouts = this.timeouts;
+            for (int i = 0; i < timeouts.size(); i ++) {
+                timeouts.get(i).run();
+            }
+        }
+    }
+
     private static final class HashedWheelTimeout extends MpscLinkedQueueNode<Timeout>
             implements Timeout {
 
@@ -492,6 +637,8 @@ public class HashedWheelTimer implements Timer {
         private final HashedWheelTimer timer;
         private final TimerTask task;
         private final long deadline;
+        // The Executor which executes the task or null if it is executed by the worker thread.
+        final Executor executor;
 
         @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
         private volatile int state = ST_INIT;
@@ -508,10 +655,11 @@ public class HashedWheelTimer implements Timer {
         // The bucket to which the timeout was added
         HashedWheelBucket bucket;
 
-        HashedWheelTimeout(HashedWheelTimer timer, TimerTask task, long deadline) {
+        HashedWheelTimeout(HashedWheelTimer timer, TimerTask task, long deadline, Executor executor) {
             this.timer = timer;
             this.task = task;
             this.deadline = deadline;
+            this.executor = executor;
         }
 
         @Override
@@ -530,6 +678,7 @@ public class HashedWheelTimer implements Timer {
             if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
                 return false;
             }
+            timer.pendingTimeouts.decrementAndGet();
             // If a task should be canceled we create a new Runnable for this to another queue which will
             // be processed on each tick. So this means that we will have a GC latency of max. 1 tick duration
             // which is good enough. This way we can make again use of our MpscLinkedQueue and so minimize the
@@ -572,11 +721,27 @@ public class HashedWheelTimer implements Timer {
             return this;
         }
 
-        public void expire() {
+        /**
+         * Expire this timeout and either execute its {@link TimerTask} directly or add it to the batch of its
+         * {@link Executor}.
+         *
+         * @return {@code true} if the timeout expired, {@code false} if it was cancelled before
+         */
+        public boolean expire() {
             if (!compareAndSetState(ST_INIT, ST_EXPIRED)) {
-                return;
+                return false;
             }
+            timer.pendingTimeouts.decrementAndGet();
+
+            if (executor == null) {
+                run();
+            } else {
+                timer.worker.addToBatch(this);
+            }
+            return true;
+        }
 
+        void run() {
             try {
                 task.run(this);
             } catch (Throwable t) {
@@ -643,8 +808,11 @@ public class HashedWheelTimer implements Timer {
 
         /**
          * Expire all {@link HashedWheelTimeout}s for the given {@code deadline}.
+         *
+         * @return the number of expired {@link HashedWheelTimeout}s
          */
-        public void expireTimeouts(long deadline) {
+        public int expireTimeouts(long deadline) {
+            int expired = 0;
             HashedWheelTimeout timeout = head;
 
             // process all timeouts
@@ -652,7 +820,9 @@ public class HashedWheelTimer implements Timer {
                 boolean remove = false;
                 if (timeout.remainingRounds <= 0) {
                     if (timeout.deadline <= deadline) {
-                        timeout.expire();
+                        if (timeout.expire()) {
+                            expired ++;
+                        }
                     } else {
                         // The timeout was placed into a wrong slot. This should never happen.
                         throw new IllegalStateException(String.format(
@@ -671,6 +841,7 @@ public class HashedWheelTimer implements Timer {
                 }
                 timeout = next;
             }
+            return expired;
         }
 
         public void remove(HashedWheelTimeout timeout) {
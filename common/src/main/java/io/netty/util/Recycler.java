@@ -17,15 +17,20 @@
 package io.netty.util;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Light-weight object pool based on a thread-local stack.
@@ -39,6 +44,8 @@ public abstract class Recycler<T> {
     private static final AtomicInteger ID_GENERATOR = new AtomicInteger(Integer.MIN_VALUE);
     private static final int OWN_THREAD_ID = ID_GENERATOR.getAndIncrement();
     private static final int DEFAULT_MAX_CAPACITY;
+    private static final int DEFAULT_MAX_SHARED_CAPACITY_FACTOR;
+    private static final int DEFAULT_RATIO;
     private static final int INITIAL_CAPACITY;
 
     static {
@@ -52,27 +59,63 @@ public abstract class Recycler<T> {
         }
 
         DEFAULT_MAX_CAPACITY = maxCapacity;
+        DEFAULT_MAX_SHARED_CAPACITY_FACTOR = Math.max(1,
+                SystemPropertyUtil.getInt("io.netty.recycler.maxSharedCapacityFactor", 2));
+        DEFAULT_RATIO = Math.max(1, SystemPropertyUtil.getInt("io.netty.recycler.ratio", 1));
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.recycler.maxCapacity: {}", DEFAULT_MAX_CAPACITY);
+            logger.debug("-Dio.netty.recycler.maxSharedCapacityFactor: {}", DEFAULT_MAX_SHARED_CAPACITY_FACTOR);
+            logger.debug("-Dio.netty.recycler.ratio: {}", DEFAULT_RATIO);
         }
 
         INITIAL_CAPACITY = Math.min(DEFAULT_MAX_CAPACITY, 256);
     }
 
     private final int maxCapacity;
+    private final int maxSharedCapacity;
+    private final int ratioMask;
     private final FastThreadLocal<Stack<T>> threadLocal = new FastThreadLocal<Stack<T>>() {
         @Override
         protected Stack<T> initialValue() {
-            return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacity);
+            ThreadMetric metric = new ThreadMetric(Thread.currentThread(), maxSharedCapacity);
+            addThreadMetric(metric);
+            return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacity, ratioMask, metric);
         }
     };
 
+    // The metrics of all threads which use this Recycler, guarded by itself.
+    private final List<ThreadMetric> threadMetrics = new ArrayList<ThreadMetric>();
+    // The metrics of threads which are gone already, guarded by threadMetrics.
+    private final RecyclerMetricSnapshot retiredMetric = new RecyclerMetricSnapshot();
+
     protected Recycler() {
         this(DEFAULT_MAX_CAPACITY);
     }
 
     protected Recycler(int maxCapacity) {
+        this(maxCapacity, DEFAULT_MAX_SHARED_CAPACITY_FACTOR, DEFAULT_RATIO);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCapacity               the maximum number of objects which are pooled per {@link Thread}
+     * @param maxSharedCapacityFactor   the objects which were recycled by other {@link Thread}s and are not yet
+     *                                  transferred back are limited to {@code maxCapacity / maxSharedCapacityFactor}
+     * @param ratio                     only one out of {@code ratio} objects recycled by other {@link Thread}s is
+     *                                  pooled, the others are dropped. This will be rounded up to a power of two.
+     */
+    protected Recycler(int maxCapacity, int maxSharedCapacityFactor, int ratio) {
+        if (maxSharedCapacityFactor <= 0) {
+            throw new IllegalArgumentException(
+                    "maxSharedCapacityFactor: " + maxSharedCapacityFactor + " (expected: > 0)");
+        }
+        if (ratio <= 0) {
+            throw new IllegalArgumentException("ratio: " + ratio + " (expected: > 0)");
+        }
         this.maxCapacity = Math.max(0, maxCapacity);
+        maxSharedCapacity = Math.max(this.maxCapacity / maxSharedCapacityFactor, WeakOrderQueue.LINK_CAPACITY);
+        ratioMask = MathUtil.findNextPositivePowerOfTwo(ratio) - 1;
     }
 
     @SuppressWarnings("unchecked")
@@ -80,8 +123,11 @@ public abstract class Recycler<T> {
         Stack<T> stack = threadLocal.get();
         DefaultHandle<T> handle = stack.pop();
         if (handle == null) {
+            stack.metric.misses ++;
             handle = stack.newHandle();
             handle.value = newObject(handle);
+        } else {
+            stack.metric.hits ++;
         }
         return (T) handle.value;
     }
@@ -104,6 +150,48 @@ public abstract class Recycler<T> {
         return threadLocal.get().size;
     }
 
+    /**
+     * Returns the {@link RecyclerMetric} of this {@link Recycler}, which is the sum of the metrics of all the
+     * {@link Thread}s which used it.
+     * <p>
+     * The counters are only updated by the owning {@link Thread}s and so may lag behind.
+     */
+    public final RecyclerMetric metric() {
+        RecyclerMetricSnapshot snapshot = new RecyclerMetricSnapshot();
+        synchronized (threadMetrics) {
+            retireThreadMetrics();
+            snapshot.add(retiredMetric);
+            for (int i = 0; i < threadMetrics.size(); i ++) {
+                snapshot.add(threadMetrics.get(i));
+            }
+        }
+        return snapshot;
+    }
+
+    private void addThreadMetric(ThreadMetric metric) {
+        synchronized (threadMetrics) {
+            retireThreadMetrics();
+            threadMetrics.add(metric);
+        }
+    }
+
+    /**
+     * Fold the metrics of all the {@link Thread}s which are gone into {@link #retiredMetric}, so
+     * {@link #threadMetrics} does not grow if {@link Thread}s come and go.
+     */
+    private void retireThreadMetrics() {
+        assert Thread.holdsLock(threadMetrics);
+        for (Iterator<ThreadMetric> i = threadMetrics.iterator(); i.hasNext();) {
+            ThreadMetric metric = i.next();
+            if (metric.thread.get() == null) {
+                retiredMetric.add(metric);
+                // The pooled objects of the Thread will be garbage collected.
+                retiredMetric.numPendingTransfer -= metric.numPendingTransfer();
+                i.remove();
+            }
+        }
+    }
+
     protected abstract T newObject(Handle<T> handle);
 
     public interface Handle<T> {
@@ -134,12 +222,21 @@ public abstract class Recycler<T> {
             // we don't want to have a ref to the queue as the value in our weak map
             // so we null it out; to ensure there are no races with restoring it later
             // we impose a memory ordering here (no-op on x86)
+            Stack<?> stack = this.stack;
             Map<Stack<?>, WeakOrderQueue> delayedRecycled = DELAYED_RECYCLED.get();
             WeakOrderQueue queue = delayedRecycled.get(stack);
             if (queue == null) {
-                delayedRecycled.put(stack, queue = new WeakOrderQueue(stack, thread));
+                queue = WeakOrderQueue.allocate(stack, thread);
+                if (queue == null) {
+                    // No shared capacity left, drop the object.
+                    stack.metric.droppedByOtherThreads.incrementAndGet();
+                    return;
+                }
+                delayedRecycled.put(stack, queue);
+            }
+            if (!queue.add(this)) {
+                stack.metric.droppedByOtherThreads.incrementAndGet();
             }
-            queue.add(this);
         }
     }
 
@@ -154,7 +251,7 @@ public abstract class Recycler<T> {
     // a queue that makes only moderate guarantees about visibility: items are seen in the correct order,
     // but we aren't absolutely guaranteed to ever see anything at all, thereby keeping the queue cheap to maintain
     private static final class WeakOrderQueue {
-        private static final int LINK_CAPACITY = 16;
+        static final int LINK_CAPACITY = 16;
 
         // Let Link extend AtomicInteger for intrinsics. The Link itself will be used as writerIndex.
         @SuppressWarnings("serial")
@@ -171,30 +268,85 @@ public abstract class Recycler<T> {
         private WeakOrderQueue next;
         private final WeakReference<Thread> owner;
         private final int id = ID_GENERATOR.getAndIncrement();
+        // The capacity that is left for all the WeakOrderQueues of the stack, every Link reserves LINK_CAPACITY.
+        private final AtomicInteger availableSharedCapacity;
+        private final int ratioMask;
+        private int handleRecycleCount;
 
-        WeakOrderQueue(Stack<?> stack, Thread thread) {
+        private WeakOrderQueue(Stack<?> stack, Thread thread) {
             head = tail = new Link();
             owner = new WeakReference<Thread>(thread);
+            availableSharedCapacity = stack.metric.availableSharedCapacity;
+            ratioMask = stack.ratioMask;
             synchronized (stack) {
                 next = stack.head;
                 stack.head = this;
             }
         }
 
-        void add(DefaultHandle<?> handle) {
-            handle.lastRecycledId = id;
+        /**
+         * Allocate a new {@link WeakOrderQueue} or return {@code null} if the shared capacity of the stack is used up.
+         */
+        static WeakOrderQueue allocate(Stack<?> stack, Thread thread) {
+            return reserveSpace(stack.metric.availableSharedCapacity, LINK_CAPACITY) ?
+                    new WeakOrderQueue(stack, thread) : null;
+        }
+
+        private static boolean reserveSpace(AtomicInteger availableSharedCapacity, int space) {
+            for (;;) {
+                int available = availableSharedCapacity.get();
+                if (available < space) {
+                    return false;
+                }
+                if (availableSharedCapacity.compareAndSet(available, available - space)) {
+                    return true;
+                }
+            }
+        }
+
+        private void reclaimSpace(int space) {
+            availableSharedCapacity.addAndGet(space);
+        }
+
+        /**
+         * Release the shared capacity of all the {@link Link}s, called once the owner is gone and all data was
+         * transferred.
+         */
+        void reclaimAllSpace() {
+            int links = 0;
+            for (Link link = head; link != null; link = link.next) {
+                links ++;
+            }
+            head = null;
+            reclaimSpace(links * LINK_CAPACITY);
+        }
+
+        /**
+         * Add the {@link DefaultHandle} to this queue, returns {@code false} if it was dropped.
+         */
+        boolean add(DefaultHandle<?> handle) {
+            if ((handleRecycleCount ++ & ratioMask) != 0) {
+                // Drop the object to honor the ratio.
+                return false;
+            }
 
             Link tail = this.tail;
             int writeIndex;
             if ((writeIndex = tail.get()) == LINK_CAPACITY) {
+                if (!reserveSpace(availableSharedCapacity, LINK_CAPACITY)) {
+                    // No shared capacity left, drop the object.
+                    return false;
+                }
                 this.tail = tail = tail.next = new Link();
                 writeIndex = tail.get();
             }
+            handle.lastRecycledId = id;
             tail.elements[writeIndex] = handle;
             handle.stack = null;
             // we lazy set to ensure that setting stack to null appears before we unnull it in the owning thread;
             // this also means we guarantee visibility of an element in the queue if we see the index updated
             tail.lazySet(writeIndex + 1);
+            return true;
         }
 
         boolean hasFinalData() {
@@ -215,6 +367,7 @@ public abstract class Recycler<T> {
                     return false;
                 }
                 this.head = head = head.next;
+                reclaimSpace(LINK_CAPACITY);
             }
 
             final int srcStart = head.readIndex;
@@ -248,9 +401,11 @@ public abstract class Recycler<T> {
                     srcElems[i] = null;
                 }
                 dst.size = newDstSize;
+                dst.metric.transferred += newDstSize - dstSize;
 
                 if (srcEnd == LINK_CAPACITY && head.next != null) {
                     this.head = head.next;
+                    reclaimSpace(LINK_CAPACITY);
                 }
 
                 head.readIndex = srcEnd;
@@ -270,6 +425,8 @@ public abstract class Recycler<T> {
         // still recycling all items.
         final Recycler<T> parent;
         final Thread thread;
+        final int ratioMask;
+        final ThreadMetric metric;
         private DefaultHandle<?>[] elements;
         private final int maxCapacity;
         private int size;
@@ -277,10 +434,12 @@ public abstract class Recycler<T> {
         private volatile WeakOrderQueue head;
         private WeakOrderQueue cursor, prev;
 
-        Stack(Recycler<T> parent, Thread thread, int maxCapacity) {
+        Stack(Recycler<T> parent, Thread thread, int maxCapacity, int ratioMask, ThreadMetric metric) {
             this.parent = parent;
             this.thread = thread;
             this.maxCapacity = maxCapacity;
+            this.ratioMask = ratioMask;
+            this.metric = metric;
             elements = new DefaultHandle[Math.min(INITIAL_CAPACITY, maxCapacity)];
         }
 
@@ -364,6 +523,7 @@ public abstract class Recycler<T> {
                     }
                     if (prev != null) {
                         prev.next = next;
+                        cursor.reclaimAllSpace();
                     }
                 } else {
                     prev = cursor;
@@ -387,6 +547,7 @@ public abstract class Recycler<T> {
             int size = this.size;
             if (size >= maxCapacity) {
                 // Hit the maximum capacity - drop the possibly youngest object.
+                metric.dropped ++;
                 return;
             }
             if (size == elements.length) {
@@ -401,4 +562,91 @@ public abstract class Recycler<T> {
             return new DefaultHandle<T>(this);
         }
     }
+
+    /**
+     * The {@link RecyclerMetric} of one {@link Thread}. The counters are only updated by the owning {@link Thread},
+     * except for {@link #droppedByOtherThreads} and {@link #availableSharedCapacity}.
+     */
+    private static final class ThreadMetric implements RecyclerMetric {
+        final WeakReference<Thread> thread;
+        final int maxSharedCapacity;
+        final AtomicInteger availableSharedCapacity;
+        final AtomicLong droppedByOtherThreads = new AtomicLong();
+        long hits;
+        long misses;
+        long dropped;
+        long transferred;
+
+        ThreadMetric(Thread thread, int maxSharedCapacity) {
+            this.thread = new WeakReference<Thread>(thread);
+            this.maxSharedCapacity = maxSharedCapacity;
+            availableSharedCapacity = new AtomicInteger(maxSharedCapacity);
+        }
+
+        @Override
+        public long numHits() {
+            return hits;
+        }
+
+        @Override
+        public long numMisses() {
+            return misses;
+        }
+
+        @Override
+        public long numDropped() {
+            return dropped + droppedByOtherThreads.get();
+        }
+
+        @Override
+        public long numTransferred() {
+            return transferred;
+        }
+
+        @Override
+        public int numPendingTransfer() {
+            return maxSharedCapacity - availableSharedCapacity.get();
+        }
+    }
+
+    private static final class RecyclerMetricSnapshot implements RecyclerMetric {
+        long numHits;
+        long numMisses;
+        long numDropped;
+        long numTransferred;
+        int numPendingTransfer;
+
+        void add(RecyclerMetric metric) {
+            numHits += metric.numHits();
+            numMisses += metric.numMisses();
+            numDropped += metric.numDropped();
+            numTransferred += metric.numTransferred();
+            numPendingTransfer += metric.numPendingTransfer();
+        }
+
+        @Override
+        public long numHits() {
+            return numHits;
+        }
+
+        @Override
+        public long numMisses() {
+            return numMisses;
+        }
+
+        @Override
+        public long numDropped() {
+            return numDropped;
+        }
+
+        @Override
+        public long numTransferred() {
+            return numTransferred;
+        }
+
+        @Override
+        public int numPendingTransfer() {
+            return numPendingTransfer;
+        }
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+/**
+ * Metrics of a {@link Recycler}.
+ */
+public interface RecyclerMetric {
+
+    /**
+     * Return the number of {@link Recycler#get()} calls which were served by a pooled object.
+     */
+    long numHits();
+
+    /**
+     * Return the number of {@link Recycler#get()} calls which needed to create a new object.
+     */
+    long numMisses();
+
+    /**
+     * Return the number of recycled objects which were not pooled because the capacity was reached or because of
+     * the ratio for objects recycled by other {@link Thread}s.
+     */
+    long numDropped();
+
+    /**
+     * Return the number of objects which were recycled by another {@link Thread} and were transferred back to the
+     * pool of the {@link Thread} that created them.
+     */
+    long numTransferred();
+
+    /**
+     * Return the number of objects which were recycled by other {@link Thread}s and wait to be transferred back.
+     * As the capacity for these objects is reserved in chunks this is an upper bound.
+     */
+    int numPendingTransfer();
+}
@@ -18,6 +18,7 @@ package io.netty.util;
 
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadLocalRandom;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -26,7 +27,9 @@ import java.lang.ref.ReferenceQueue;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.netty.util.internal.StringUtil.*;
@@ -36,6 +39,12 @@ public final class ResourceLeakDetector<T> {
     private static final String PROP_LEVEL = "io.netty.leakDetectionLevel";
     private static final Level DEFAULT_LEVEL = Level.SIMPLE;
 
+    private static final String PROP_SAMPLING_INTERVAL = "io.netty.leakDetection.samplingInterval";
+    private static final int DEFAULT_SAMPLING_INTERVAL = 113;
+
+    private static final String PROP_TARGET_RECORDS = "io.netty.leakDetection.targetRecords";
+    private static final int DEFAULT_TARGET_RECORDS = 4;
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -51,7 +60,9 @@ public final class ResourceLeakDetector<T> {
         SIMPLE,
         /**
          * Enables advanced sampling resource leak detection which reports where the leaked object was accessed
-         * recently at the cost of high overhead.
+         * recently at the cost of high overhead.  The overhead can be tuned with the
+         * {@code io.netty.leakDetection.samplingInterval} and {@code io.netty.leakDetection.targetRecords} system
+         * properties, which makes it possible to keep this level enabled in production.
          */
         ADVANCED,
         /**
@@ -61,8 +72,29 @@ public final class ResourceLeakDetector<T> {
         PARANOID
     }
 
+    /**
+     * Receives the leaks detected by any {@link ResourceLeakDetector}.
+     *
+     * @see ResourceLeakDetector#addLeakListener(LeakListener)
+     */
+    public interface LeakListener {
+        /**
+         * Invoked when a leaked resource was garbage-collected.
+         *
+         * @param resourceType the type of the leaked resource
+         * @param records      the recent access records of the leaked resource, or an empty string if no records
+         *                     were kept because the leak was detected with {@link Level#SIMPLE}
+         */
+        void onLeak(String resourceType, String records);
+    }
+
     private static Level level;
 
+    private static final int SAMPLING_INTERVAL;
+    private static final int TARGET_RECORDS;
+
+    private static final List<LeakListener> leakListeners = new CopyOnWriteArrayList<LeakListener>();
+
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ResourceLeakDetector.class);
 
     static {
@@ -75,13 +107,16 @@ public final class ResourceLeakDetector<T> {
         }
 
         ResourceLeakDetector.level = level;
+        SAMPLING_INTERVAL = Math.max(1, SystemPropertyUtil.getInt(PROP_SAMPLING_INTERVAL, DEFAULT_SAMPLING_INTERVAL));
+        TARGET_RECORDS = Math.max(1, SystemPropertyUtil.getInt(PROP_TARGET_RECORDS, DEFAULT_TARGET_RECORDS));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-D{}: {}", PROP_LEVEL, level.name().toLowerCase());
+            logger.debug("-D{}: {}", PROP_SAMPLING_INTERVAL, SAMPLING_INTERVAL);
+            logger.debug("-D{}: {}", PROP_TARGET_RECORDS, TARGET_RECORDS);
         }
     }
 
-    private static final int DEFAULT_SAMPLING_INTERVAL = 113;
-
     /**
      * Sets the resource leak detection level.
      */
@@ -99,9 +134,28 @@ public final class ResourceLeakDetector<T> {
         return level;
     }
 
-    /** the linked list of active resources */
-    private final DefaultResourceLeak head = new DefaultResourceLeak(null);
-    private final DefaultResourceLeak tail = new DefaultResourceLeak(null);
+    /**
+     * Adds a {@link LeakListener} which is notified about every leak detected by any {@link ResourceLeakDetector},
+     * in addition to the leak being logged.  This allows to ship leak reports to a monitoring system.
+     */
+    public static void addLeakListener(LeakListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+        leakListeners.add(listener);
+    }
+
+    /**
+     * Removes a {@link LeakListener} which was added via {@link #addLeakListener(LeakListener)}.
+     *
+     * @return {@code true} if the listener was removed
+     */
+    public static boolean removeLeakListener(LeakListener listener) {
+        return leakListeners.remove(listener);
+    }
+
+    /** the set of active resources */
+    private final ConcurrentMap<DefaultResourceLeak, Boolean> allLeaks = PlatformDependent.newConcurrentHashMap();
 
     private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
     private final ConcurrentMap<String, Boolean> reportedLeaks = PlatformDependent.newConcurrentHashMap();
@@ -109,17 +163,14 @@ public final class ResourceLeakDetector<T> {
     private final String resourceType;
     private final int samplingInterval;
     private final long maxActive;
-    private long active;
     private final AtomicBoolean loggedTooManyActive = new AtomicBoolean();
 
-    private long leakCheckCnt;
-
     public ResourceLeakDetector(Class<?> resourceType) {
         this(simpleClassName(resourceType));
     }
 
     public ResourceLeakDetector(String resourceType) {
-        this(resourceType, DEFAULT_SAMPLING_INTERVAL, Long.MAX_VALUE);
+        this(resourceType, SAMPLING_INTERVAL, Long.MAX_VALUE);
     }
 
     public ResourceLeakDetector(Class<?> resourceType, int samplingInterval, long maxActive) {
@@ -140,9 +191,6 @@ public final class ResourceLeakDetector<T> {
         this.resourceType = resourceType;
         this.samplingInterval = samplingInterval;
         this.maxActive = maxActive;
-
-        head.next = tail;
-        tail.prev = head;
     }
 
     /**
@@ -158,7 +206,9 @@ public final class ResourceLeakDetector<T> {
         }
 
         if (level.ordinal() < Level.PARANOID.ordinal()) {
-            if (leakCheckCnt ++ % samplingInterval == 0) {
+            // Sample randomly instead of via a shared counter, so the detector does not become a point of contention
+            // and the overhead stays proportional to the allocation rate.
+            if (ThreadLocalRandom.current().nextInt(samplingInterval) == 0) {
                 reportLeak(level);
                 return new DefaultResourceLeak(obj);
             } else {
@@ -171,7 +221,8 @@ public final class ResourceLeakDetector<T> {
     }
 
     private void reportLeak(Level level) {
-        if (!logger.isErrorEnabled()) {
+        final boolean logEnabled = logger.isErrorEnabled();
+        if (!logEnabled && leakListeners.isEmpty()) {
             for (;;) {
                 @SuppressWarnings("unchecked")
                 DefaultResourceLeak ref = (DefaultResourceLeak) refQueue.poll();
@@ -185,7 +236,8 @@ public final class ResourceLeakDetector<T> {
 
         // Report too many instances.
         int samplingInterval = level == Level.PARANOID? 1 : this.samplingInterval;
-        if (active * samplingInterval > maxActive && loggedTooManyActive.compareAndSet(false, true)) {
+        if (logEnabled && (long) allLeaks.size() * samplingInterval > maxActive &&
+                loggedTooManyActive.compareAndSet(false, true)) {
             logger.error("LEAK: You are creating too many " + resourceType + " instances.  " +
                     resourceType + " is a shared resource that must be reused across the JVM," +
                     "so that only a few instances are created.");
@@ -206,7 +258,9 @@ public final class ResourceLeakDetector<T> {
             }
 
             String records = ref.toString();
-            if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
+            notifyLeakListeners(records);
+
+            if (logEnabled && reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
                 if (records.isEmpty()) {
                     logger.error("LEAK: {}.release() was not called before it's garbage-collected. " +
                             "Enable advanced leak reporting to find out where the leak occurred. " +
@@ -224,40 +278,36 @@ public final class ResourceLeakDetector<T> {
         }
     }
 
-    private final class DefaultResourceLeak extends PhantomReference<Object> implements ResourceLeak {
+    private void notifyLeakListeners(String records) {
+        for (LeakListener l: leakListeners) {
+            try {
+                l.onLeak(resourceType, records);
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown by {}.onLeak()", l.getClass().getName(), t);
+            }
+        }
+    }
 
-        private static final int MAX_RECORDS = 4;
+    private final class DefaultResourceLeak extends PhantomReference<Object> implements ResourceLeak {
 
         private final String creationRecord;
-        private final Deque<String> lastRecords = new ArrayDeque<String>();
-        private final AtomicBoolean freed;
-        private DefaultResourceLeak prev;
-        private DefaultResourceLeak next;
+        private final Deque<String> lastRecords;
+        private int recordAttempts;
+        private int droppedRecords;
 
         DefaultResourceLeak(Object referent) {
-            super(referent, referent != null? refQueue : null);
+            super(referent, refQueue);
 
-            if (referent != null) {
-                Level level = getLevel();
-                if (level.ordinal() >= Level.ADVANCED.ordinal()) {
-                    creationRecord = newRecord(null, 3);
-                } else {
-                    creationRecord = null;
-                }
-
-                // TODO: Use CAS to update the list.
-                synchronized (head) {
-                    prev = head;
-                    next = head.next;
-                    head.next.prev = this;
-                    head.next = this;
-                    active ++;
-                }
-                freed = new AtomicBoolean();
+            Level level = getLevel();
+            if (level.ordinal() >= Level.ADVANCED.ordinal()) {
+                creationRecord = newRecord(null, 3);
+                lastRecords = new ArrayDeque<String>();
             } else {
                 creationRecord = null;
-                freed = new AtomicBoolean(true);
+                lastRecords = null;
             }
+
+            allLeaks.put(this, Boolean.TRUE);
         }
 
         @Override
@@ -271,34 +321,37 @@ public final class ResourceLeakDetector<T> {
         }
 
         private void record0(Object hint, int recordsToSkip) {
-            if (creationRecord != null) {
-                String value = newRecord(hint, recordsToSkip);
+            if (creationRecord == null) {
+                return;
+            }
 
-                synchronized (lastRecords) {
-                    int size = lastRecords.size();
-                    if (size == 0 || !lastRecords.getLast().equals(value)) {
-                        lastRecords.add(value);
-                    }
-                    if (size > MAX_RECORDS) {
+            synchronized (lastRecords) {
+                // Once the target number of records was reached, keep recording with an exponentially decreasing
+                // probability so a resource which is touched very often does not capture a stack trace every time.
+                int excess = recordAttempts ++ - TARGET_RECORDS;
+                if (excess >= 0 && ThreadLocalRandom.current().nextInt(1 << Math.min(excess, 30)) != 0) {
+                    droppedRecords ++;
+                    return;
+                }
+            }
+
+            String value = newRecord(hint, recordsToSkip);
+
+            synchronized (lastRecords) {
+                int size = lastRecords.size();
+                if (size == 0 || !lastRecords.getLast().equals(value)) {
+                    if (size >= TARGET_RECORDS) {
                         lastRecords.removeFirst();
+                        droppedRecords ++;
                     }
+                    lastRecords.add(value);
                 }
             }
         }
 
         @Override
         public boolean close() {
-            if (freed.compareAndSet(false, true)) {
-                synchronized (head) {
-                    active --;
-                    prev.next = next;
-                    next.prev = prev;
-                    prev = null;
-                    next = null;
-                }
-                return true;
-            }
-            return false;
+            return allLeaks.remove(this) != null;
         }
 
         @Override
@@ -308,8 +361,10 @@ public final class ResourceLeakDetector<T> {
             }
 
             Object[] array;
+            int droppedRecords;
             synchronized (lastRecords) {
                 array = lastRecords.toArray();
+                droppedRecords = this.droppedRecords;
             }
 
             StringBuilder buf = new StringBuilder(16384)
@@ -328,6 +383,16 @@ public final class ResourceLeakDetector<T> {
                 }
             }
 
+            if (droppedRecords > 0) {
+                buf.append(droppedRecords)
+                   .append(" leak records were discarded because the leak record count is targeted to ")
+                   .append(TARGET_RECORDS)
+                   .append(". Use system property ")
+                   .append(PROP_TARGET_RECORDS)
+                   .append(" to increase the limit.")
+                   .append(NEWLINE);
+            }
+
             buf.append("Created at:")
                .append(NEWLINE)
                .append(creationRecord);
@@ -17,6 +17,7 @@ package io.netty.util.concurrent;
 
 import io.netty.util.internal.CallableEventExecutorAdapter;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.OneTimeTask;
 import io.netty.util.internal.RunnableEventExecutorAdapter;
 
 import java.util.Iterator;
@@ -24,6 +25,7 @@ import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,11 +48,19 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
+            scheduledTaskQueue = newScheduledTaskQueue();
         }
         return scheduledTaskQueue;
     }
 
+    /**
+     * Create a new {@link Queue} which will hold the scheduled tasks. The default implementation returns a
+     * {@link PriorityQueue}.
+     */
+    Queue<ScheduledFutureTask<?>> newScheduledTaskQueue() {
+        return new PriorityQueue<ScheduledFutureTask<?>>();
+    }
+
     private static  boolean isNullOrEmpty(Queue<ScheduledFutureTask<?>> queue) {
         return queue == null || queue.isEmpty();
     }
@@ -92,6 +102,9 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         assert inEventLoop();
 
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            return ((ScheduledTaskWheel) scheduledTaskQueue).pollExpired(nanoTime);
+        }
         ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
         if (scheduledTask == null) {
             return null;
@@ -108,12 +121,24 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      * Return the nanoseconds when the next scheduled task is ready to be run or {@code -1} if no task is scheduled.
      */
     protected final long nextScheduledTaskNano() {
+        return nextScheduledTaskNano(nanoTime());
+    }
+
+    /**
+     * Return the nanoseconds, relative to the given {@code nanoTime}, when the next scheduled task is ready to be run
+     * or {@code -1} if no task is scheduled. If the tasks are held by a {@link ScheduledTaskWheel} the returned value
+     * may be smaller than the actual delay.
+     */
+    final long nextScheduledTaskNano(long nanoTime) {
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            return ((ScheduledTaskWheel) scheduledTaskQueue).nextDelayNanos(nanoTime);
+        }
         ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
         if (scheduledTask == null) {
             return -1;
         }
-        return Math.max(0, scheduledTask.deadlineNanos() - nanoTime());
+        return Math.max(0, scheduledTask.deadlineNanos() - nanoTime);
     }
 
     final ScheduledFutureTask<?> peekScheduledTask() {
@@ -129,6 +154,9 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      */
     protected final boolean hasScheduledTasks() {
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            return nextScheduledTaskNano() == 0;
+        }
         ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue == null ? null : scheduledTaskQueue.peek();
         return scheduledTask != null && scheduledTask.deadlineNanos() <= nanoTime();
     }
@@ -208,9 +236,37 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return task;
     }
 
+    /**
+     * Removes a cancelled task from the scheduled task queue if it supports cheap removal. Otherwise the task is
+     * removed later by {@link #purgeCancelledScheduledTasks()} or when its deadline is reached.
+     * <p>
+     * This is called by {@link ScheduledFutureTask#cancel(boolean)} and thus must never throw.
+     */
+    final void removeScheduled(final ScheduledFutureTask<?> task) {
+        if (!(scheduledTaskQueue instanceof ScheduledTaskWheel)) {
+            return;
+        }
+        if (inEventLoop()) {
+            scheduledTaskQueue.remove(task);
+        } else if (!isShutdown()) {
+            try {
+                execute(new OneTimeTask() {
+                    @Override
+                    public void run() {
+                        scheduledTaskQueue.remove(task);
+                    }
+                });
+            } catch (RejectedExecutionException ignore) {
+                // The task queue is full or the executor was shut down in the meantime. The cancelled task is
+                // skipped when its deadline is reached, so it is just removed later.
+            }
+        }
+    }
+
     void purgeCancelledScheduledTasks() {
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
-        if (isNullOrEmpty(scheduledTaskQueue)) {
+        if (isNullOrEmpty(scheduledTaskQueue) || scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            // Cancelled tasks are removed from the ScheduledTaskWheel directly.
             return;
         }
         Iterator<ScheduledFutureTask<?>> i = scheduledTaskQueue.iterator();
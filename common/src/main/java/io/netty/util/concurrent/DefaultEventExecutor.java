@@ -39,12 +39,22 @@ public final class DefaultEventExecutor extends SingleThreadEventExecutor {
         super(parent, executor, true);
     }
 
+    public DefaultEventExecutor(EventExecutorGroup parent, Executor executor, int maxPendingTasks,
+                                RejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, true, maxPendingTasks, rejectedExecutionHandler);
+    }
+
     @Override
     protected void run() {
         Runnable task = takeTask();
         if (task != null) {
+            final DefaultEventExecutorMetric metric = this.metric;
+            final long startTime = metric == null ? 0 : ScheduledFutureTask.nanoTime();
             task.run();
             updateLastExecutionTime();
+            if (metric != null) {
+                metric.recordTasks(1, ScheduledFutureTask.nanoTime() - startTime);
+            }
         }
 
         if (confirmShutdown()) {
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link EventExecutorMetric} of a {@link SingleThreadEventExecutor}. All the {@code record} methods except for
+ * {@link #recordWakeup()} and {@link #sample(Runnable)} are only called by the event loop, so the counters have a
+ * single writer and are published via {@code lazySet}.
+ */
+final class DefaultEventExecutorMetric implements EventExecutorMetric {
+
+    static final int HISTOGRAM_BUCKETS = 24;
+
+    private final SingleThreadEventExecutor executor;
+    private final AtomicLong executedTasks = new AtomicLong();
+    private final AtomicLong taskTimeNanos = new AtomicLong();
+    private final AtomicLong ioTimeNanos = new AtomicLong();
+    private final AtomicLong wakeups = new AtomicLong();
+    private final AtomicLongArray delayHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    /**
+     * The task which is currently sampled to measure the queueing delay, or {@code null} if no task is sampled.
+     */
+    private final AtomicReference<SampledTask> sampled = new AtomicReference<SampledTask>();
+
+    DefaultEventExecutorMetric(SingleThreadEventExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public int pendingTasks() {
+        return executor.pendingTasks();
+    }
+
+    @Override
+    public int scheduledTasks() {
+        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = executor.scheduledTaskQueue;
+        return scheduledTaskQueue == null ? 0 : scheduledTaskQueue.size();
+    }
+
+    @Override
+    public long executedTasks() {
+        return executedTasks.get();
+    }
+
+    @Override
+    public long taskTimeNanos() {
+        return taskTimeNanos.get();
+    }
+
+    @Override
+    public long ioTimeNanos() {
+        return ioTimeNanos.get();
+    }
+
+    @Override
+    public long wakeups() {
+        return wakeups.get();
+    }
+
+    @Override
+    public long[] taskQueueDelayHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < histogram.length; i ++) {
+            histogram[i] = delayHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    void recordTasks(long tasks, long timeNanos) {
+        executedTasks.lazySet(executedTasks.get() + tasks);
+        taskTimeNanos.lazySet(taskTimeNanos.get() + timeNanos);
+    }
+
+    void recordIoTime(long timeNanos) {
+        ioTimeNanos.lazySet(ioTimeNanos.get() + timeNanos);
+    }
+
+    void recordWakeup() {
+        wakeups.incrementAndGet();
+    }
+
+    /**
+     * Called before the given task is added to the task queue. The task is sampled if no other task is sampled
+     * at the moment.
+     */
+    void sample(Runnable task) {
+        if (sampled.get() == null) {
+            sampled.compareAndSet(null, new SampledTask(task, ScheduledFutureTask.nanoTime()));
+        }
+    }
+
+    /**
+     * Called after the given task was taken from the task queue.
+     */
+    void polled(Runnable task) {
+        SampledTask sampled = this.sampled.get();
+        if (sampled != null && sampled.task == task) {
+            long delayMicros = TimeUnit.NANOSECONDS.toMicros(ScheduledFutureTask.nanoTime() - sampled.enqueueTime);
+            int bucket = Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(delayMicros));
+            delayHistogram.lazySet(bucket, delayHistogram.get(bucket) + 1);
+            this.sampled.lazySet(null);
+        }
+    }
+
+    /**
+     * Called when the task queue was found empty, or the given task will not be taken from the task queue, so the
+     * sampled task can not be in the task queue anymore.
+     */
+    void unsample(Runnable task) {
+        SampledTask sampled = this.sampled.get();
+        if (sampled != null && (task == null || sampled.task == task)) {
+            this.sampled.compareAndSet(sampled, null);
+        }
+    }
+
+    private static final class SampledTask {
+        final Runnable task;
+        final long enqueueTime;
+
+        SampledTask(Runnable task, long enqueueTime) {
+            this.task = task;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
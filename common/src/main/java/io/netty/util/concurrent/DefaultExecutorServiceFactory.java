@@ -144,5 +144,15 @@ public final class DefaultExecutorServiceFactory implements ExecutorServiceFacto
         public void setThreadLocalMap(InternalThreadLocalMap threadLocalMap) {
             this.threadLocalMap = threadLocalMap;
         }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            try {
+                // The pool retires idle workers, so clean up just like the threads of DefaultThreadFactory do.
+                FastThreadLocal.removeAll();
+            } finally {
+                super.onTermination(exception);
+            }
+        }
     }
 }
@@ -23,6 +23,16 @@ final class DefaultFutureListeners {
     private int size;
     private int progressiveSize; // the number of progressive listeners
 
+    @SuppressWarnings("unchecked")
+    DefaultFutureListeners(GenericFutureListener<? extends Future<?>> first) {
+        listeners = new GenericFutureListener[2];
+        listeners[0] = first;
+        size = 1;
+        if (first instanceof GenericProgressiveFutureListener) {
+            progressiveSize ++;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     DefaultFutureListeners(
             GenericFutureListener<? extends Future<?>> first, GenericFutureListener<? extends Future<?>> second) {
@@ -49,10 +49,13 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     private volatile Object result;
 
     /**
-     * One or more listeners. Can be a {@link GenericFutureListener} or a {@link DefaultFutureListeners}.
-     * If {@code null}, it means either 1) no listeners were added yet or 2) all listeners were notified.
+     * The first two listeners are stored inline, so adding and notifying them does not allocate. Any further
+     * listeners are stored in {@link #moreListeners}. A slot is {@code null} if its listener was removed.
+     * If all three are {@code null}, it means either 1) no listeners were added yet or 2) all listeners were notified.
      */
-    private Object listeners;
+    private GenericFutureListener<?> listener0;
+    private GenericFutureListener<?> listener1;
+    private DefaultFutureListeners moreListeners;
 
     /**
      * The list of the listeners that were added after the promise is done.  Initially {@code null} and lazily
@@ -141,16 +144,15 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
         synchronized (this) {
             if (!isDone()) {
-                if (listeners == null) {
-                    listeners = listener;
+                // Once moreListeners is in use new listeners must go there to retain the notification order.
+                if (moreListeners != null) {
+                    moreListeners.add(listener);
+                } else if (listener0 == null) {
+                    listener0 = listener;
+                } else if (listener1 == null) {
+                    listener1 = listener;
                 } else {
-                    if (listeners instanceof DefaultFutureListeners) {
-                        ((DefaultFutureListeners) listeners).add(listener);
-                    } else {
-                        final GenericFutureListener<? extends Future<V>> firstListener =
-                                (GenericFutureListener<? extends Future<V>>) listeners;
-                        listeners = new DefaultFutureListeners(firstListener, listener);
-                    }
+                    moreListeners = new DefaultFutureListeners(listener);
                 }
                 return this;
             }
@@ -187,10 +189,18 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
         synchronized (this) {
             if (!isDone()) {
-                if (listeners instanceof DefaultFutureListeners) {
-                    ((DefaultFutureListeners) listeners).remove(listener);
-                } else if (listeners == listener) {
-                    listeners = null;
+                if (listener0 == listener) {
+                    if (moreListeners == null) {
+                        // Keep the inline slots compact so that addListener() can fill them in order.
+                        listener0 = listener1;
+                        listener1 = null;
+                    } else {
+                        listener0 = null;
+                    }
+                } else if (listener1 == listener) {
+                    listener1 = null;
+                } else if (moreListeners != null) {
+                    moreListeners.remove(listener);
                 }
             }
         }
@@ -540,6 +550,10 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         waiters --;
     }
 
+    private boolean hasListeners() {
+        return listener0 != null || listener1 != null || moreListeners != null;
+    }
+
     private void notifyListeners() {
         // This method doesn't need synchronization because:
         // 1) This method is always called after synchronized (this) block.
@@ -547,8 +561,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         // 2) This method is called only when 'done' is true.  Once 'done'
         //    becomes true, the listener list is never modified - see add/removeListener()
 
-        Object listeners = this.listeners;
-        if (listeners == null) {
+        if (!hasListeners()) {
             return;
         }
 
@@ -559,40 +572,41 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             if (stackDepth < MAX_LISTENER_STACK_DEPTH) {
                 threadLocals.setFutureListenerStackDepth(stackDepth + 1);
                 try {
-                    if (listeners instanceof DefaultFutureListeners) {
-                        notifyListeners0(this, (DefaultFutureListeners) listeners);
-                    } else {
-                        final GenericFutureListener<? extends Future<V>> l =
-                                (GenericFutureListener<? extends Future<V>>) listeners;
-                        notifyListener0(this, l);
-                    }
+                    notifyListenersNow();
                 } finally {
-                    this.listeners = null;
                     threadLocals.setFutureListenerStackDepth(stackDepth);
                 }
                 return;
             }
         }
 
-        if (listeners instanceof DefaultFutureListeners) {
-            final DefaultFutureListeners dfl = (DefaultFutureListeners) listeners;
-            execute(executor, new Runnable() {
-                @Override
-                public void run() {
-                    notifyListeners0(DefaultPromise.this, dfl);
-                    DefaultPromise.this.listeners = null;
-                }
-            });
-        } else {
-            final GenericFutureListener<? extends Future<V>> l =
-                    (GenericFutureListener<? extends Future<V>>) listeners;
-            execute(executor, new Runnable() {
-                @Override
-                public void run() {
-                    notifyListener0(DefaultPromise.this, l);
-                    DefaultPromise.this.listeners = null;
-                }
-            });
+        // The listeners are read from the fields when the task runs, so there is no need to capture them.
+        execute(executor, new Runnable() {
+            @Override
+            public void run() {
+                notifyListenersNow();
+            }
+        });
+    }
+
+    private void notifyListenersNow() {
+        try {
+            GenericFutureListener<?> l = listener0;
+            if (l != null) {
+                notifyListener0(this, l);
+            }
+            l = listener1;
+            if (l != null) {
+                notifyListener0(this, l);
+            }
+            DefaultFutureListeners moreListeners = this.moreListeners;
+            if (moreListeners != null) {
+                notifyListeners0(this, moreListeners);
+            }
+        } finally {
+            listener0 = null;
+            listener1 = null;
+            moreListeners = null;
         }
     }
 
@@ -606,13 +620,13 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
     /**
      * Notifies the specified listener which were added after this promise is already done.
-     * This method ensures that the specified listener is not notified until {@link #listeners} becomes {@code null}
+     * This method ensures that the specified listener is not notified until all other listeners were notified
      * to avoid the case where the late listeners are notified even before the early listeners are notified.
      */
     private void notifyLateListener(final GenericFutureListener<?> l) {
         final EventExecutor executor = executor();
         if (executor.inEventLoop()) {
-            if (listeners == null && lateListeners == null) {
+            if (!hasListeners() && lateListeners == null) {
                 final InternalThreadLocalMap threadLocals = InternalThreadLocalMap.get();
                 final int stackDepth = threadLocals.futureListenerStackDepth();
                 if (stackDepth < MAX_LISTENER_STACK_DEPTH) {
@@ -690,44 +704,55 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
      * {@code null}.
      */
     private synchronized Object progressiveListeners() {
-        Object listeners = this.listeners;
-        if (listeners == null) {
-            // No listeners added
-            return null;
+        final GenericFutureListener<?> l0 = listener0;
+        final GenericFutureListener<?> l1 = listener1;
+        final DefaultFutureListeners dfl = moreListeners;
+
+        int progressiveSize = dfl == null ? 0 : dfl.progressiveSize();
+        if (l0 instanceof GenericProgressiveFutureListener) {
+            progressiveSize ++;
+        }
+        if (l1 instanceof GenericProgressiveFutureListener) {
+            progressiveSize ++;
         }
 
-        if (listeners instanceof DefaultFutureListeners) {
-            // Copy DefaultFutureListeners into an array of listeners.
-            DefaultFutureListeners dfl = (DefaultFutureListeners) listeners;
-            int progressiveSize = dfl.progressiveSize();
-            switch (progressiveSize) {
-                case 0:
-                    return null;
-                case 1:
-                    for (GenericFutureListener<?> l: dfl.listeners()) {
-                        if (l instanceof GenericProgressiveFutureListener) {
-                            return l;
-                        }
+        switch (progressiveSize) {
+            case 0:
+                return null;
+            case 1:
+                if (l0 instanceof GenericProgressiveFutureListener) {
+                    return l0;
+                }
+                if (l1 instanceof GenericProgressiveFutureListener) {
+                    return l1;
+                }
+                for (GenericFutureListener<?> l: dfl.listeners()) {
+                    if (l instanceof GenericProgressiveFutureListener) {
+                        return l;
                     }
-                    return null;
-            }
+                }
+                return null;
+        }
 
+        // Copy the progressive listeners into an array of listeners.
+        GenericProgressiveFutureListener<?>[] copy = new GenericProgressiveFutureListener[progressiveSize];
+        int j = 0;
+        if (l0 instanceof GenericProgressiveFutureListener) {
+            copy[j ++] = (GenericProgressiveFutureListener<?>) l0;
+        }
+        if (l1 instanceof GenericProgressiveFutureListener) {
+            copy[j ++] = (GenericProgressiveFutureListener<?>) l1;
+        }
+        if (j < progressiveSize) {
             GenericFutureListener<?>[] array = dfl.listeners();
-            GenericProgressiveFutureListener<?>[] copy = new GenericProgressiveFutureListener[progressiveSize];
-            for (int i = 0, j = 0; j < progressiveSize; i ++) {
+            for (int i = 0; j < progressiveSize; i ++) {
                 GenericFutureListener<?> l = array[i];
                 if (l instanceof GenericProgressiveFutureListener) {
                     copy[j ++] = (GenericProgressiveFutureListener<?>) l;
                 }
             }
-
-            return copy;
-        } else if (listeners instanceof GenericProgressiveFutureListener) {
-            return listeners;
-        } else {
-            // Only one listener was added and it's not a progressive listener.
-            return null;
         }
+        return copy;
     }
 
     @SuppressWarnings("unchecked")
@@ -836,7 +861,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
         @Override
         public void run() {
-            if (listeners == null) {
+            if (!hasListeners()) {
                 for (;;) {
                     GenericFutureListener<?> l = poll();
                     if (l == null) {
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+/**
+ * Metrics of a {@link SingleThreadEventExecutor}, which can be used to detect overloaded event loops and mis-sized
+ * {@link EventExecutorGroup}s. The metrics are only collected once enabled via
+ * {@link SingleThreadEventExecutor#enableMetric()} or the {@code io.netty.eventexecutor.metric} system property.
+ * <p>
+ * All values are read without synchronization and so may be slightly out of date.
+ */
+public interface EventExecutorMetric {
+
+    /**
+     * Returns the number of tasks which wait in the task queue.
+     */
+    int pendingTasks();
+
+    /**
+     * Returns the number of scheduled tasks which are not due yet.
+     */
+    int scheduledTasks();
+
+    /**
+     * Returns the number of tasks which were executed since the metric was enabled.
+     */
+    long executedTasks();
+
+    /**
+     * Returns the time in nanoseconds spent running tasks since the metric was enabled.
+     */
+    long taskTimeNanos();
+
+    /**
+     * Returns the time in nanoseconds spent processing I/O since the metric was enabled. This is always {@code 0}
+     * for executors which do not process I/O.
+     */
+    long ioTimeNanos();
+
+    /**
+     * Returns the number of times the executor was woken up by another thread because a task was added.
+     */
+    long wakeups();
+
+    /**
+     * Returns a histogram of the time tasks spent in the task queue before they were executed. Not every task is
+     * measured, as only one task is sampled at a time.
+     * <p>
+     * The bucket at index {@code 0} counts delays below 1 microsecond and the bucket at index {@code i} counts
+     * delays of at least {@code 2^(i-1)} and below {@code 2^i} microseconds. The last bucket also counts all longer
+     * delays.
+     */
+    long[] taskQueueDelayHistogram();
+}
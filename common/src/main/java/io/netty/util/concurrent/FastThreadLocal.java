@@ -34,9 +34,15 @@ import java.util.Set;
  * By default, all threads created by {@link DefaultThreadFactory} and {@link DefaultExecutorServiceFactory} implement
  * {@link FastThreadLocalAccess}.
  * </p><p>
- * Note that the fast path is only possible on threads that implement {@link FastThreadLocalAccess}, because it
- * requires a special field to store the necessary state. An access by any other kind of thread falls back to a regular
- * {@link ThreadLocal}.
+ * Note that the fastest path is only possible on threads that implement {@link FastThreadLocalAccess}, because it
+ * requires a special field to store the necessary state. Any other kind of thread first looks for its state in a small
+ * table indexed by {@link Thread#getId()}, and falls back to a regular {@link ThreadLocal} if another thread took its
+ * slot. The size of the table is set with the {@code io.netty.threadLocalMap.threadCacheSize} system property.
+ * </p><p>
+ * The {@link FastThreadLocal} variables of a thread are only removed, and {@link #onRemoval(Object)} only invoked,
+ * when {@link #removeAll()} is called from that thread. Threads created by {@link DefaultThreadFactory} and
+ * {@link DefaultExecutorServiceFactory} do this when they terminate; use {@link FastThreadLocalRunnable} to do the
+ * same in any other thread pool.
  * </p>
  *
  * @param <V> the type of the thread-local variable
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A {@link Runnable} which removes all {@link FastThreadLocal} variables of the current thread once the decorated
+ * {@link Runnable} returns, so that {@link FastThreadLocal#onRemoval(Object)} is invoked for all of them.
+ * <p>
+ * All threads created by {@link DefaultThreadFactory} run their task through a {@link FastThreadLocalRunnable}. Use
+ * {@link #wrap(Runnable)} in your own {@link java.util.concurrent.ThreadFactory} to get the same guarantee for the
+ * threads of any other thread pool which uses Netty.
+ * </p>
+ */
+public final class FastThreadLocalRunnable implements Runnable {
+
+    private final Runnable task;
+
+    private FastThreadLocalRunnable(Runnable task) {
+        this.task = checkNotNull(task, "task");
+    }
+
+    /**
+     * Returns a {@link Runnable} which runs the specified {@code task} and then removes all {@link FastThreadLocal}
+     * variables bound to the current thread. The {@code task} is returned as is if it is already wrapped.
+     */
+    public static Runnable wrap(Runnable task) {
+        return task instanceof FastThreadLocalRunnable ? task : new FastThreadLocalRunnable(task);
+    }
+
+    @Override
+    public void run() {
+        try {
+            task.run();
+        } finally {
+            FastThreadLocal.removeAll();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for {@link EventExecutorChooserFactory}s whose {@link EventExecutorChooser}s return the
+ * {@link EventExecutor} with the lowest {@link #load(EventExecutor)}. The scan starts at a different
+ * {@link EventExecutor} on each call, so {@link EventExecutor}s with the same load are chosen round-robin.
+ */
+public abstract class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        return new LoadAwareEventExecutorChooser(executors);
+    }
+
+    /**
+     * Returns the current load of the given {@link EventExecutor}. This method is called from the thread which
+     * calls {@link EventExecutorGroup#next()} and so must be thread-safe and cheap.
+     */
+    protected abstract long load(EventExecutor executor);
+
+    private final class LoadAwareEventExecutorChooser implements EventExecutorChooser {
+        private final AtomicInteger idx = new AtomicInteger();
+        private final EventExecutor[] executors;
+
+        LoadAwareEventExecutorChooser(EventExecutor[] executors) {
+            this.executors = executors;
+        }
+
+        @Override
+        public EventExecutor next() {
+            final EventExecutor[] executors = this.executors;
+            final int start = Math.abs(idx.getAndIncrement() % executors.length);
+            EventExecutor chosen = executors[start];
+            long minLoad = load(chosen);
+            for (int i = 1; i < executors.length && minLoad > 0; i ++) {
+                EventExecutor e = executors[(start + i) % executors.length];
+                long load = load(e);
+                if (load < minLoad) {
+                    chosen = e;
+                    minLoad = load;
+                }
+            }
+            return chosen;
+        }
+    }
+}
@@ -34,6 +34,13 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
         return System.nanoTime() - START_TIME;
     }
 
+    /**
+     * Converts the given value of {@link System#nanoTime()} to the time base used by {@link #nanoTime()}.
+     */
+    static long nanoTime(long currentTimeNanos) {
+        return currentTimeNanos - START_TIME;
+    }
+
     static long deadlineNanos(long delay) {
         return nanoTime() + delay;
     }
@@ -43,6 +50,11 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
     private final long periodNanos;
 
+    // Only used when the task is held by a ScheduledTaskWheel.
+    int wheelIndex = ScheduledTaskWheel.NOT_QUEUED;
+    ScheduledFutureTask<?> wheelPrev;
+    ScheduledFutureTask<?> wheelNext;
+
     ScheduledFutureTask(EventExecutor executor,
                         Callable<V> callable, long nanoTime, long period) {
         super(executor.unwrap(), callable);
@@ -99,6 +111,18 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
         }
     }
 
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            EventExecutor executor = executor();
+            if (executor instanceof AbstractScheduledEventExecutor) {
+                ((AbstractScheduledEventExecutor) executor).removeScheduled(this);
+            }
+        }
+        return cancelled;
+    }
+
     @Override
     public void run() {
         assert executor().inEventLoop();
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * A hierarchical timing wheel which holds the {@link ScheduledFutureTask}s of an {@link EventExecutor}.
+ * <p>
+ * In contrast to a {@link PriorityQueue} adding and removing a task is {@code O(1)}, which makes it possible to
+ * remove cancelled tasks directly instead of waiting for them to expire. This is especially useful if a lot of
+ * timeouts are scheduled which are most likely cancelled before they expire (for example idle or connect timeouts).
+ * <p>
+ * The wheel consists of {@value #LEVELS} levels with {@value #SLOTS} slots each. A slot on level {@code n} covers
+ * {@code 64^n} ticks. Tasks are kept in an intrusive doubly linked list per slot and are moved to lower levels as the
+ * wheel advances. Tasks which are due in the current tick are kept in a small {@link PriorityQueue} so they are
+ * still executed in the order of their deadline, tasks which are too far in the future to fit in the wheel are kept
+ * in an overflow {@link PriorityQueue}.
+ * <p>
+ * This class is not thread-safe and must only be accessed from the {@link EventExecutor} thread.
+ */
+final class ScheduledTaskWheel extends AbstractQueue<ScheduledFutureTask<?>> {
+
+    static final int NOT_QUEUED = -1;
+    private static final int READY = -2;
+    private static final int OVERFLOW = -3;
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickNanos;
+    private final ScheduledFutureTask<?>[] slots = new ScheduledFutureTask<?>[LEVELS * SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    private final Queue<ScheduledFutureTask<?>> ready = new PriorityQueue<ScheduledFutureTask<?>>();
+    private final Queue<ScheduledFutureTask<?>> overflow = new PriorityQueue<ScheduledFutureTask<?>>();
+
+    // All tasks with a tick < cursor were moved to the ready queue.
+    private long cursor;
+    private int wheelSize;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param tickNanos     the duration of one tick in nanoseconds
+     * @param nanoTime      the current time as returned by {@link ScheduledFutureTask#nanoTime()}
+     */
+    ScheduledTaskWheel(long tickNanos, long nanoTime) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickNanos: " + tickNanos + " (expected: > 0)");
+        }
+        this.tickNanos = tickNanos;
+        cursor = tick(nanoTime);
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (task.wheelIndex != NOT_QUEUED) {
+            throw new IllegalArgumentException("task already queued: " + task);
+        }
+        insert(task);
+        return true;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        ScheduledFutureTask<?> task = peek();
+        if (task != null) {
+            remove(task);
+        }
+        return task;
+    }
+
+    /**
+     * Returns the task with the closest deadline.
+     * <p>
+     * If the task is still held in the wheel this needs to look at all tasks of one slot, so the event loop uses
+     * {@link #pollExpired(long)} and {@link #nextDelayNanos(long)} instead.
+     */
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        advance(ScheduledFutureTask.nanoTime());
+        ScheduledFutureTask<?> task = ready.peek();
+        if (task != null) {
+            return task;
+        }
+        for (int level = 0; level < LEVELS; level ++) {
+            long bits = occupied[level];
+            if (bits != 0) {
+                // All slots below the cursor were already processed, so the lowest occupied slot is the next one.
+                ScheduledFutureTask<?> t = slots[level * SLOTS + Long.numberOfTrailingZeros(bits)];
+                task = t;
+                for (t = t.wheelNext; t != null; t = t.wheelNext) {
+                    if (t.compareTo(task) < 0) {
+                        task = t;
+                    }
+                }
+                return task;
+            }
+        }
+        return overflow.peek();
+    }
+
+    /**
+     * Returns the task with the closest deadline if it is due at the given {@code nanoTime} and removes it, or
+     * {@code null} if no task is due.
+     */
+    ScheduledFutureTask<?> pollExpired(long nanoTime) {
+        advance(nanoTime);
+        ScheduledFutureTask<?> task = ready.peek();
+        if (task == null || task.deadlineNanos() > nanoTime) {
+            return null;
+        }
+        ready.remove();
+        task.wheelIndex = NOT_QUEUED;
+        return task;
+    }
+
+    /**
+     * Returns the nanoseconds from the given {@code nanoTime} until the next task is due or {@code -1} if no task is
+     * scheduled. This is a lower bound if the next task is not due in the current tick, which means the caller may
+     * wake up a bit early but will never miss a deadline.
+     */
+    long nextDelayNanos(long nanoTime) {
+        advance(nanoTime);
+        ScheduledFutureTask<?> task = ready.peek();
+        if (task != null) {
+            return Math.max(0, task.deadlineNanos() - nanoTime);
+        }
+        for (int level = 0; level < LEVELS; level ++) {
+            long bits = occupied[level];
+            if (bits != 0) {
+                int shift = level * SLOT_BITS;
+                long block = cursor >>> shift + SLOT_BITS << SLOT_BITS;
+                long slotTick = (block | Long.numberOfTrailingZeros(bits)) << shift;
+                return Math.max(0, slotTick * tickNanos - nanoTime);
+            }
+        }
+        task = overflow.peek();
+        if (task != null) {
+            return Math.max(0, task.deadlineNanos() - nanoTime);
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof ScheduledFutureTask)) {
+            return false;
+        }
+        ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) o;
+        int index = task.wheelIndex;
+        switch (index) {
+            case NOT_QUEUED:
+                return false;
+            case READY:
+                if (!ready.remove(task)) {
+                    return false;
+                }
+                break;
+            case OVERFLOW:
+                if (!overflow.remove(task)) {
+                    return false;
+                }
+                break;
+            default:
+                unlink(task, index);
+                break;
+        }
+        task.wheelIndex = NOT_QUEUED;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return ready.size() + wheelSize + overflow.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return wheelSize == 0 && ready.isEmpty() && overflow.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        for (ScheduledFutureTask<?> task: ready) {
+            task.wheelIndex = NOT_QUEUED;
+        }
+        ready.clear();
+        for (ScheduledFutureTask<?> task: overflow) {
+            task.wheelIndex = NOT_QUEUED;
+        }
+        overflow.clear();
+        for (int i = 0; i < slots.length; i ++) {
+            ScheduledFutureTask<?> task = slots[i];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                task.wheelNext = null;
+                task.wheelPrev = null;
+                task.wheelIndex = NOT_QUEUED;
+                task = next;
+            }
+            slots[i] = null;
+        }
+        for (int i = 0; i < occupied.length; i ++) {
+            occupied[i] = 0;
+        }
+        wheelSize = 0;
+    }
+
+    /**
+     * Returns an {@link Iterator} over a snapshot of all the tasks in no particular order.
+     */
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>(size());
+        tasks.addAll(ready);
+        for (ScheduledFutureTask<?> head: slots) {
+            for (ScheduledFutureTask<?> task = head; task != null; task = task.wheelNext) {
+                tasks.add(task);
+            }
+        }
+        tasks.addAll(overflow);
+
+        final Iterator<ScheduledFutureTask<?>> i = tasks.iterator();
+        return new Iterator<ScheduledFutureTask<?>>() {
+            private ScheduledFutureTask<?> last;
+
+            @Override
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+
+            @Override
+            public ScheduledFutureTask<?> next() {
+                return last = i.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                ScheduledTaskWheel.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    private long tick(long nanoTime) {
+        return nanoTime / tickNanos;
+    }
+
+    private void insert(ScheduledFutureTask<?> task) {
+        long tick = tick(task.deadlineNanos());
+        if (tick < cursor) {
+            task.wheelIndex = READY;
+            ready.add(task);
+            return;
+        }
+
+        // The lowest level on which the task shares the block of the cursor.
+        long diff = tick ^ cursor;
+        int level = diff < SLOTS ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            task.wheelIndex = OVERFLOW;
+            overflow.add(task);
+            return;
+        }
+
+        int slot = (int) (tick >>> level * SLOT_BITS) & SLOT_MASK;
+        int index = level * SLOTS + slot;
+        ScheduledFutureTask<?> head = slots[index];
+        if (head != null) {
+            head.wheelPrev = task;
+        } else {
+            occupied[level] |= 1L << slot;
+        }
+        task.wheelNext = head;
+        task.wheelPrev = null;
+        task.wheelIndex = index;
+        slots[index] = task;
+        wheelSize ++;
+    }
+
+    private void unlink(ScheduledFutureTask<?> task, int index) {
+        ScheduledFutureTask<?> prev = task.wheelPrev;
+        ScheduledFutureTask<?> next = task.wheelNext;
+        if (prev != null) {
+            prev.wheelNext = next;
+        } else {
+            slots[index] = next;
+            if (next == null) {
+                occupied[index >>> SLOT_BITS] &= ~(1L << (index & SLOT_MASK));
+            }
+        }
+        if (next != null) {
+            next.wheelPrev = prev;
+        }
+        task.wheelPrev = null;
+        task.wheelNext = null;
+        wheelSize --;
+    }
+
+    /**
+     * Moves all tasks of the given slot to the level they belong to relative to the current cursor.
+     */
+    private void reinsert(int level, int slot) {
+        int index = level * SLOTS + slot;
+        ScheduledFutureTask<?> task = slots[index];
+        slots[index] = null;
+        occupied[level] &= ~(1L << slot);
+        while (task != null) {
+            ScheduledFutureTask<?> next = task.wheelNext;
+            task.wheelPrev = null;
+            task.wheelNext = null;
+            wheelSize --;
+            insert(task);
+            task = next;
+        }
+    }
+
+    /**
+     * Advances the cursor so that all tasks which are due in the tick of the given {@code nanoTime} are moved to the
+     * ready queue.
+     */
+    private void advance(long nanoTime) {
+        final long target = tick(nanoTime) + 1;
+        while (cursor < target) {
+            long bits = occupied[0];
+            if (bits != 0) {
+                long start = cursor;
+                long end = Math.min(target, (start | SLOT_MASK) + 1);
+                cursor = end;
+
+                // Only keep the slots in [start, end) of the current block.
+                int from = (int) start & SLOT_MASK;
+                int to = (int) (end - 1) & SLOT_MASK;
+                bits &= -1L << from;
+                if (to != SLOT_MASK) {
+                    bits &= (1L << (to + 1)) - 1;
+                }
+                while (bits != 0) {
+                    int slot = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    reinsert(0, slot);
+                }
+            } else {
+                // Nothing is scheduled on the lowest levels, so jump directly to the next slot of the first
+                // non-empty level.
+                int level = 1;
+                while (level < LEVELS && occupied[level] == 0) {
+                    level ++;
+                }
+                if (level < LEVELS) {
+                    int shift = level * SLOT_BITS;
+                    cursor = Math.min(target, ((cursor >>> shift) + 1) << shift);
+                } else {
+                    // The wheel is empty, so jump directly to the block of the first overflow task.
+                    ScheduledFutureTask<?> task = overflow.peek();
+                    if (task == null) {
+                        cursor = target;
+                        break;
+                    }
+                    int shift = LEVELS * SLOT_BITS;
+                    cursor = Math.min(target, tick(task.deadlineNanos()) >>> shift << shift);
+                }
+            }
+
+            if ((cursor & SLOT_MASK) == 0) {
+                cascade();
+            }
+        }
+    }
+
+    /**
+     * Moves the tasks of the slots the cursor just entered to the lower levels.
+     */
+    private void cascade() {
+        long cursor = this.cursor;
+        if ((cursor & (1L << LEVELS * SLOT_BITS) - 1) == 0) {
+            // Entered a new block of the top level, pull in all the tasks which now fit into the wheel.
+            final long end = cursor + (1L << LEVELS * SLOT_BITS);
+            for (;;) {
+                ScheduledFutureTask<?> task = overflow.peek();
+                if (task == null || tick(task.deadlineNanos()) >= end) {
+                    break;
+                }
+                overflow.remove();
+                insert(task);
+            }
+        }
+        for (int level = LEVELS - 1; level > 0; level --) {
+            int shift = level * SLOT_BITS;
+            if ((cursor & (1L << shift) - 1) == 0) {
+                reinsert(level, (int) (cursor >>> shift) & SLOT_MASK);
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package io.netty.util.concurrent;
 
 import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -40,9 +41,27 @@ import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
  */
 public abstract class SingleThreadEventExecutor extends AbstractScheduledEventExecutor {
 
+    static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
+            SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
+
+    private static final boolean USE_TIMING_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.useTimingWheel", false);
+    private static final long TIMING_WHEEL_TICK_NANOS = Math.max(1, SystemPropertyUtil.getLong(
+            "io.netty.eventexecutor.timingWheelTickNanos", TimeUnit.MILLISECONDS.toNanos(1)));
+    private static final boolean METRIC_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metric", false);
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.useTimingWheel: {}", USE_TIMING_WHEEL);
+            logger.debug("-Dio.netty.eventexecutor.timingWheelTickNanos: {}", TIMING_WHEEL_TICK_NANOS);
+            logger.debug("-Dio.netty.eventexecutor.metric: {}", METRIC_ENABLED);
+        }
+    }
+
     private static final int ST_NOT_STARTED = 1;
     private static final int ST_STARTED = 2;
     private static final int ST_SHUTTING_DOWN = 3;
@@ -84,6 +103,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private final Semaphore threadLock = new Semaphore(0);
     private final Set<Runnable> shutdownHooks = new LinkedHashSet<Runnable>();
     private final boolean addTaskWakesUp;
+    private final int maxPendingTasks;
+    private final RejectedExecutionHandler rejectedExecutionHandler;
+    volatile DefaultEventExecutorMetric metric;
 
     private long lastExecutionTime;
 
@@ -128,25 +150,50 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      *                         the executor thread.
      */
     protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor, boolean addTaskWakesUp) {
+        this(parent, executor, addTaskWakesUp, DEFAULT_MAX_PENDING_EXECUTOR_TASKS, RejectedExecutionHandlers.reject());
+    }
+
+    /**
+     * @param parent            the {@link EventExecutorGroup} which is the parent of this instance and belongs to it.
+     * @param executor          the {@link Executor} which will be used for executing.
+     * @param addTaskWakesUp   {@code true} if and only if invocation of {@link #addTask(Runnable)} will wake up
+     *                         the executor thread.
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     */
+    protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor, boolean addTaskWakesUp,
+                                        int maxPendingTasks, RejectedExecutionHandler rejectedHandler) {
         super(parent);
 
         if (executor == null) {
             throw new NullPointerException("executor");
         }
+        if (rejectedHandler == null) {
+            throw new NullPointerException("rejectedHandler");
+        }
 
         this.addTaskWakesUp = addTaskWakesUp;
         this.executor = executor;
-        taskQueue = newTaskQueue();
+        this.maxPendingTasks = Math.max(16, maxPendingTasks);
+        rejectedExecutionHandler = rejectedHandler;
+        taskQueue = newTaskQueue(this.maxPendingTasks);
+        if (METRIC_ENABLED) {
+            metric = new DefaultEventExecutorMetric(this);
+        }
     }
 
     /**
      * Create a new {@link Queue} which will holds the tasks to execute. This default implementation will return a
      * {@link LinkedBlockingQueue} but if your sub-class of {@link SingleThreadEventExecutor} will not do any blocking
      * calls on the this {@link Queue} it may make sense to {@code @Override} this and return some more performant
-     * implementation that does not support blocking operations at all.
+     * implementation that does not support blocking operations at all, like
+     * {@link PlatformDependent#newMpscQueue(int)}.
+     *
+     * @param maxPendingTasks the maximum number of tasks the returned {@link Queue} should accept.  Once it is
+     *                        full, new tasks are passed to the {@link RejectedExecutionHandler}.
      */
-    protected Queue<Runnable> newTaskQueue() {
-        return new LinkedBlockingQueue<Runnable>();
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        return new LinkedBlockingQueue<Runnable>(maxPendingTasks);
     }
 
     /**
@@ -159,6 +206,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             if (task == WAKEUP_TASK) {
                 continue;
             }
+            DefaultEventExecutorMetric metric = this.metric;
+            if (metric != null) {
+                if (task == null) {
+                    metric.unsample(null);
+                } else {
+                    metric.polled(task);
+                }
+            }
             return task;
         }
     }
@@ -167,7 +222,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * Take the next {@link Runnable} from the task queue and so will block if no task is currently present.
      * <p>
      * Be aware that this method will throw an {@link UnsupportedOperationException} if the task queue, which was
-     * created via {@link #newTaskQueue()}, does not implement {@link BlockingQueue}.
+     * created via {@link #newTaskQueue(int)}, does not implement {@link BlockingQueue}.
      * </p>
      *
      * @return {@code null} if the executor thread has been interrupted or waken up.
@@ -180,8 +235,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
         for (;;) {
-            ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            long delayNanos = nextScheduledTaskNano();
+            if (delayNanos == -1) {
                 Runnable task = null;
                 try {
                     task = taskQueue.take();
@@ -191,9 +246,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 } catch (InterruptedException e) {
                     // Ignore
                 }
-                return task;
+                return polled(task);
             } else {
-                long delayNanos = scheduledTask.delayNanos();
                 Runnable task = null;
                 if (delayNanos > 0) {
                     try {
@@ -213,12 +267,20 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 }
 
                 if (task != null) {
-                    return task;
+                    return polled(task);
                 }
             }
         }
     }
 
+    private Runnable polled(Runnable task) {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null && task != null) {
+            metric.polled(task);
+        }
+        return task;
+    }
+
     private void fetchFromScheduledTaskQueue() {
         if (hasScheduledTasks()) {
             long nanoTime = AbstractScheduledEventExecutor.nanoTime();
@@ -227,11 +289,27 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 if (scheduledTask == null) {
                     break;
                 }
-                taskQueue.add(scheduledTask);
+                if (!taskQueue.offer(scheduledTask)) {
+                    // No space left in the task queue, add it back to the scheduledTaskQueue so we pick it up again.
+                    scheduledTaskQueue().add((ScheduledFutureTask<?>) scheduledTask);
+                    break;
+                }
             }
         }
     }
 
+    /**
+     * Returns a {@link ScheduledTaskWheel} if {@code io.netty.eventexecutor.useTimingWheel} is set, which is useful if
+     * a lot of timeouts are scheduled and cancelled.
+     */
+    @Override
+    Queue<ScheduledFutureTask<?>> newScheduledTaskQueue() {
+        if (USE_TIMING_WHEEL) {
+            return new ScheduledTaskWheel(TIMING_WHEEL_TICK_NANOS, nanoTime());
+        }
+        return super.newScheduledTaskQueue();
+    }
+
     /**
      * @see {@link Queue#peek()}
      */
@@ -258,18 +336,92 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Enables the collection of metrics for this executor if not done yet and returns them. Collecting the metrics
+     * adds a small overhead to the execution of tasks. The metrics of all executors can also be enabled via the
+     * {@code io.netty.eventexecutor.metric} system property.
+     */
+    public final EventExecutorMetric enableMetric() {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric == null) {
+            synchronized (this) {
+                metric = this.metric;
+                if (metric == null) {
+                    this.metric = metric = new DefaultEventExecutorMetric(this);
+                }
+            }
+        }
+        return metric;
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetric} of this executor or {@code null} if the collection of metrics is not
+     * enabled.
+     *
+     * @see #enableMetric()
+     */
+    public final EventExecutorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Returns {@code true} if metrics are collected for this executor, in which case sub-classes which process I/O
+     * should report the time spent via {@link #recordIoTime(long)}.
+     */
+    protected final boolean isMetricEnabled() {
+        return metric != null;
+    }
+
+    /**
+     * Records the time in nanoseconds spent processing I/O if metrics are collected for this executor.
+     */
+    protected final void recordIoTime(long ioTimeNanos) {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.recordIoTime(ioTimeNanos);
+        }
+    }
+
+    /**
+     * Records that the executor thread was woken up by another thread if metrics are collected for this executor.
+     * Sub-classes which override {@link #wakeup(boolean)} should call this once they actually woke up the thread.
+     */
+    protected final void recordWakeup() {
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.recordWakeup();
+        }
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
-     * before.
+     * before.  If the task queue reached the maximum number of pending tasks, the task is passed to the
+     * {@link RejectedExecutionHandler}.
      */
     protected void addTask(Runnable task) {
         if (task == null) {
             throw new NullPointerException("task");
         }
+        if (!offerTask(task)) {
+            rejectedExecutionHandler.rejected(task, this);
+        }
+    }
+
+    final boolean offerTask(Runnable task) {
         if (isShutdown()) {
             reject();
         }
-        taskQueue.add(task);
+        DefaultEventExecutorMetric metric = this.metric;
+        if (metric == null) {
+            return taskQueue.offer(task);
+        }
+        // Sample before the offer as otherwise the task may be executed before it is sampled.
+        metric.sample(task);
+        if (taskQueue.offer(task)) {
+            return true;
+        }
+        metric.unsample(task);
+        return false;
     }
 
     /**
@@ -279,7 +431,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         if (task == null) {
             throw new NullPointerException("task");
         }
-        return taskQueue.remove(task);
+        if (taskQueue.remove(task)) {
+            DefaultEventExecutorMetric metric = this.metric;
+            if (metric != null) {
+                metric.unsample(task);
+            }
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -294,6 +453,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
 
+        final DefaultEventExecutorMetric metric = this.metric;
+        final long startTime = metric == null ? 0 : ScheduledFutureTask.nanoTime();
+        long runTasks = 0;
         for (;;) {
             try {
                 task.run();
@@ -301,9 +463,14 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 logger.warn("A task raised an exception.", t);
             }
 
+            runTasks ++;
+
             task = pollTask();
             if (task == null) {
                 lastExecutionTime = ScheduledFutureTask.nanoTime();
+                if (metric != null) {
+                    metric.recordTasks(runTasks, lastExecutionTime - startTime);
+                }
                 return true;
             }
         }
@@ -320,7 +487,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
 
-        final long deadline = ScheduledFutureTask.nanoTime() + timeoutNanos;
+        final DefaultEventExecutorMetric metric = this.metric;
+        final long startTime = ScheduledFutureTask.nanoTime();
+        final long deadline = startTime + timeoutNanos;
         long runTasks = 0;
         long lastExecutionTime;
         for (;;) {
@@ -349,6 +518,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
 
         this.lastExecutionTime = lastExecutionTime;
+        if (metric != null) {
+            metric.recordTasks(runTasks, lastExecutionTime - startTime);
+        }
         return true;
     }
 
@@ -356,12 +528,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * Returns the amount of time left until the scheduled task with the closest dead line is executed.
      */
     protected long delayNanos(long currentTimeNanos) {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
+        long delayNanos = nextScheduledTaskNano(ScheduledFutureTask.nanoTime(currentTimeNanos));
+        if (delayNanos == -1) {
             return SCHEDULE_PURGE_INTERVAL;
         }
-
-        return scheduledTask.delayNanos(currentTimeNanos);
+        return delayNanos;
     }
 
     /**
@@ -389,7 +560,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop || STATE_UPDATER.get(this) == ST_SHUTTING_DOWN) {
-            taskQueue.add(WAKEUP_TASK);
+            // Use offer as we only need this to unblock the thread; if offer fails we do not care as there is
+            // already something in the queue.
+            if (taskQueue.offer(WAKEUP_TASK) && !inEventLoop) {
+                recordWakeup();
+            }
         }
     }
 
@@ -18,7 +18,11 @@ package io.netty.util.internal;
 
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalAccess;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
@@ -34,18 +38,49 @@ import java.util.WeakHashMap;
  */
 public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(InternalThreadLocalMap.class);
+
     public static final Object UNSET = new Object();
 
+    /**
+     * A direct-mapped cache in front of {@link #slowThreadLocalMap}, indexed by {@link Thread#getId()}. It lets
+     * threads which do not implement {@link FastThreadLocalAccess} find their map with an array lookup most of the
+     * time. A slot is only a hint: it is used if it holds the map of the current thread, and is overwritten by
+     * whichever thread needs it next otherwise. The maps are referenced weakly, so the cache never keeps the map of
+     * a dead thread alive. {@code null} if disabled.
+     */
+    private static final WeakReference<InternalThreadLocalMap>[] threadCache;
+
+    static {
+        int threadCacheSize = SystemPropertyUtil.getInt("io.netty.threadLocalMap.threadCacheSize", 256);
+        if (threadCacheSize > 0) {
+            @SuppressWarnings("unchecked")
+            WeakReference<InternalThreadLocalMap>[] cache =
+                    new WeakReference[MathUtil.findNextPositivePowerOfTwo(threadCacheSize)];
+            threadCache = cache;
+        } else {
+            threadCache = null;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.threadLocalMap.threadCacheSize: {}", threadCache == null ? 0 : threadCache.length);
+        }
+    }
+
     public static InternalThreadLocalMap getIfSet() {
         Thread thread = Thread.currentThread();
-        InternalThreadLocalMap threadLocalMap;
+        if (thread instanceof FastThreadLocalThread) {
+            return ((FastThreadLocalThread) thread).threadLocalMap();
+        }
+        InternalThreadLocalMap threadLocalMap = cachedSlowGet(thread);
+        if (threadLocalMap != null) {
+            return threadLocalMap;
+        }
         if (thread instanceof FastThreadLocalAccess) {
             threadLocalMap = ((FastThreadLocalAccess) thread).threadLocalMap();
         } else {
             ThreadLocal<InternalThreadLocalMap> slowThreadLocalMap = UnpaddedInternalThreadLocalMap.slowThreadLocalMap;
-            if (slowThreadLocalMap == null) {
-                threadLocalMap = null;
-            } else {
+            if (slowThreadLocalMap != null) {
                 threadLocalMap = slowThreadLocalMap.get();
             }
         }
@@ -54,10 +89,21 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
 
     public static InternalThreadLocalMap get() {
         Thread thread = Thread.currentThread();
+        // Check for the common FastThreadLocalThread class first, which is cheap no matter if it matches or not.
+        // Then look into the thread cache before checking for 'FastThreadLocalAccess' as the cache only ever holds
+        // the maps of threads which do not implement it, and a failing 'instanceof' check against an interface is
+        // not cheap.
+        if (thread instanceof FastThreadLocalThread) {
+            return fastGet((FastThreadLocalThread) thread);
+        }
+        InternalThreadLocalMap threadLocalMap = cachedSlowGet(thread);
+        if (threadLocalMap != null) {
+            return threadLocalMap;
+        }
         if (thread instanceof FastThreadLocalAccess) {
             return fastGet((FastThreadLocalAccess) thread);
         } else {
-            return slowGet();
+            return slowGet(thread);
         }
     }
 
@@ -69,7 +115,26 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         return threadLocalMap;
     }
 
-    private static InternalThreadLocalMap slowGet() {
+    private static InternalThreadLocalMap cachedSlowGet(Thread thread) {
+        WeakReference<InternalThreadLocalMap>[] cache = threadCache;
+        if (cache == null) {
+            return null;
+        }
+        WeakReference<InternalThreadLocalMap> entry = cache[threadCacheIndex(thread, cache)];
+        if (entry != null) {
+            InternalThreadLocalMap threadLocalMap = entry.get();
+            if (threadLocalMap != null && threadLocalMap.threadCacheOwner == thread) {
+                return threadLocalMap;
+            }
+        }
+        return null;
+    }
+
+    private static int threadCacheIndex(Thread thread, WeakReference<InternalThreadLocalMap>[] cache) {
+        return (int) thread.getId() & cache.length - 1;
+    }
+
+    private static InternalThreadLocalMap slowGet(Thread thread) {
         ThreadLocal<InternalThreadLocalMap> slowThreadLocalMap = UnpaddedInternalThreadLocalMap.slowThreadLocalMap;
         if (slowThreadLocalMap == null) {
             UnpaddedInternalThreadLocalMap.slowThreadLocalMap =
@@ -81,6 +146,16 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
             ret = new InternalThreadLocalMap();
             slowThreadLocalMap.set(ret);
         }
+
+        WeakReference<InternalThreadLocalMap>[] cache = threadCache;
+        if (cache != null) {
+            WeakReference<InternalThreadLocalMap> entry = ret.threadCacheEntry;
+            if (entry == null) {
+                ret.threadCacheOwner = thread;
+                ret.threadCacheEntry = entry = new WeakReference<InternalThreadLocalMap>(ret);
+            }
+            cache[threadCacheIndex(thread, cache)] = entry;
+        }
         return ret;
     }
 
@@ -89,6 +164,11 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         if (thread instanceof FastThreadLocalAccess) {
             ((FastThreadLocalAccess) thread).setThreadLocalMap(null);
         } else {
+            WeakReference<InternalThreadLocalMap>[] cache = threadCache;
+            if (cache != null && cachedSlowGet(thread) != null) {
+                cache[threadCacheIndex(thread, cache)] = null;
+            }
+
             ThreadLocal<InternalThreadLocalMap> slowThreadLocalMap = UnpaddedInternalThreadLocalMap.slowThreadLocalMap;
             if (slowThreadLocalMap != null) {
                 slowThreadLocalMap.remove();
@@ -98,6 +178,10 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
 
     public static void destroy() {
         slowThreadLocalMap = null;
+        WeakReference<InternalThreadLocalMap>[] cache = threadCache;
+        if (cache != null) {
+            Arrays.fill(cache, null);
+        }
     }
 
     public static int nextVariableIndex() {
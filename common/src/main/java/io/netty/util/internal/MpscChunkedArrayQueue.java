@@ -0,0 +1,278 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free concurrent single-consumer multi-producer {@link Queue} which stores its elements in linked array
+ * chunks.  Unlike {@link MpscLinkedQueue} it does not need a node per element, and the consumer as well as the
+ * producers mostly touch consecutive slots of the same array.  A new chunk is only allocated every
+ * {@code chunkSize} elements, and the queue never holds more than {@code maxCapacity} elements: once it is full
+ * {@link #offer(Object)} returns {@code false}.
+ * <p>
+ * Multiple producer threads may call {@link #offer(Object)}, {@link #add(Object)}, {@link #size()} and
+ * {@link #isEmpty()} simultaneously, while {@link #poll()}, {@link #peek()} and {@link #clear()} must only be
+ * called by a single consumer thread.  {@link #iterator()} returns a read-only snapshot and
+ * {@link #remove(Object)} is not supported.
+ * <p>
+ * The index, the producer and the consumer fields are padded to avoid false sharing between them, as done by
+ * {@link MpscLinkedQueue}.
+ */
+final class MpscChunkedArrayQueue<E> extends MpscChunkedArrayQueueConsumerFields<E> {
+
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p30, p31, p32, p33, p34, p35, p36, p37;
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private final int maxCapacity;
+
+    MpscChunkedArrayQueue(int chunkSize, int maxCapacity) {
+        if (chunkSize < 2 || chunkSize > 1 << 30) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize + " (expected: 2 - " + (1 << 30) + ')');
+        }
+        if (maxCapacity < 1) {
+            throw new IllegalArgumentException("maxCapacity: " + maxCapacity + " (expected: >= 1)");
+        }
+
+        chunkSize = MathUtil.findNextPositivePowerOfTwo(chunkSize);
+        chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        chunkMask = chunkSize - 1;
+        this.maxCapacity = maxCapacity;
+        producerLimit = maxCapacity;
+
+        Chunk<E> chunk = new Chunk<E>(chunkSize, 0);
+        consumerChunk = chunk;
+        producerChunk = chunk;
+    }
+
+    /**
+     * Returns the maximum number of elements this queue accepts.
+     */
+    int maxCapacity() {
+        return maxCapacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException("e");
+        }
+
+        // Read the chunk before the index is claimed.  It is only ever advanced after an index in it was claimed,
+        // so it can never be ahead of the chunk of the index claimed below.
+        Chunk<E> chunk = producerChunk;
+        long limit = producerLimit;
+        long index;
+        for (;;) {
+            index = producerIndex();
+            if (index >= limit) {
+                limit = consumerIndex() + maxCapacity;
+                if (index >= limit) {
+                    return false;
+                }
+                producerLimit = limit;
+            }
+            if (casProducerIndex(index, index + 1)) {
+                break;
+            }
+        }
+
+        long chunkIndex = index >>> chunkShift;
+        if (chunk.index != chunkIndex) {
+            do {
+                Chunk<E> next = chunk.next;
+                if (next == null) {
+                    next = new Chunk<E>(chunkMask + 1, chunk.index + 1);
+                    if (!chunk.casNext(next)) {
+                        next = chunk.next;
+                    }
+                }
+                chunk = next;
+            } while (chunk.index != chunkIndex);
+
+            if (producerChunk.index < chunkIndex) {
+                // Moving the hint backwards due to a race is harmless, the next producer just has to walk a bit more.
+                producerChunk = chunk;
+            }
+        }
+
+        chunk.lazySet((int) index & chunkMask, e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long index = consumerIndex();
+        Chunk<E> chunk = consumerChunk(index);
+        if (chunk == null) {
+            return null;
+        }
+
+        int offset = (int) index & chunkMask;
+        E e = chunk.get(offset);
+        if (e == null) {
+            if (index == producerIndex()) {
+                return null;
+            }
+            // The index was claimed already, but the element is not visible yet.
+            do {
+                e = chunk.get(offset);
+            } while (e == null);
+        }
+
+        chunk.lazySet(offset, null);
+        lazySetConsumerIndex(index + 1);
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        long index = consumerIndex();
+        Chunk<E> chunk = consumerChunk(index);
+        if (chunk == null) {
+            return null;
+        }
+
+        int offset = (int) index & chunkMask;
+        E e = chunk.get(offset);
+        if (e == null && index != producerIndex()) {
+            do {
+                e = chunk.get(offset);
+            } while (e == null);
+        }
+        return e;
+    }
+
+    /**
+     * Returns the {@link Chunk} which contains the specified consumer index, or {@code null} if the queue is empty
+     * and the chunk was not created yet.
+     */
+    private Chunk<E> consumerChunk(long index) {
+        Chunk<E> chunk = consumerChunk;
+        if (chunk.index == index >>> chunkShift) {
+            return chunk;
+        }
+
+        if (index == producerIndex()) {
+            return null;
+        }
+
+        // A producer claimed the first index of the next chunk already, so it is about to be linked.
+        Chunk<E> next;
+        do {
+            next = chunk.next;
+        } while (next == null);
+        consumerChunk = next;
+        return next;
+    }
+
+    @Override
+    public int size() {
+        long after = consumerIndex();
+        for (;;) {
+            long before = after;
+            long producerIndex = producerIndex();
+            after = consumerIndex();
+            if (before == after) {
+                return (int) Math.min(producerIndex - after, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return consumerIndex() == producerIndex();
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            continue;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        long index = consumerIndex();
+        long producerIndex = producerIndex();
+        if (index == producerIndex) {
+            return Collections.<E>emptyList().iterator();
+        }
+
+        List<E> snapshot = new ArrayList<E>((int) Math.min(producerIndex - index, 1024));
+        Chunk<E> chunk = consumerChunk;
+        while (chunk != null && index < producerIndex) {
+            if (chunk.index == index >>> chunkShift) {
+                E e = chunk.get((int) index & chunkMask);
+                if (e != null) {
+                    snapshot.add(e);
+                }
+                index ++;
+            } else {
+                chunk = chunk.next;
+            }
+        }
+        return new ReadOnlyIterator<E>(snapshot.iterator());
+    }
+
+    /**
+     * A chunk of slots which holds the elements of the indexes {@code index * chunkSize} to
+     * {@code (index + 1) * chunkSize - 1}.
+     */
+    static final class Chunk<E> extends AtomicReferenceArray<E> {
+
+        private static final long serialVersionUID = -2187468919452040223L;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT_UPDATER;
+
+        static {
+            @SuppressWarnings("rawtypes")
+            AtomicReferenceFieldUpdater<Chunk, Chunk> updater;
+            updater = PlatformDependent.newAtomicReferenceFieldUpdater(Chunk.class, "next");
+            if (updater == null) {
+                updater = AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+            }
+            NEXT_UPDATER = updater;
+        }
+
+        final long index;
+        volatile Chunk<E> next;
+
+        Chunk(int chunkSize, long index) {
+            super(chunkSize);
+            this.index = index;
+        }
+
+        boolean casNext(Chunk<E> next) {
+            return NEXT_UPDATER.compareAndSet(this, null, next);
+        }
+    }
+}
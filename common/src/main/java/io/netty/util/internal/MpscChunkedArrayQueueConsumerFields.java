@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.internal;
+
+import io.netty.util.internal.MpscChunkedArrayQueue.Chunk;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+abstract class MpscChunkedArrayQueueConsumerFields<E> extends MpscChunkedArrayQueuePad1<E> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedArrayQueueConsumerFields> UPDATER;
+
+    static {
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedArrayQueueConsumerFields> updater;
+        updater = PlatformDependent.newAtomicLongFieldUpdater(
+                MpscChunkedArrayQueueConsumerFields.class, "consumerIndex");
+        if (updater == null) {
+            updater = AtomicLongFieldUpdater.newUpdater(
+                    MpscChunkedArrayQueueConsumerFields.class, "consumerIndex");
+        }
+        UPDATER = updater;
+    }
+
+    private volatile long consumerIndex;
+
+    /**
+     * The {@link Chunk} the consumer reads from.  Only accessed by the consumer thread.
+     */
+    Chunk<E> consumerChunk;
+
+    protected final long consumerIndex() {
+        return consumerIndex;
+    }
+
+    protected final void lazySetConsumerIndex(long consumerIndex) {
+        UPDATER.lazySet(this, consumerIndex);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.internal;
+
+import io.netty.util.internal.MpscChunkedArrayQueue.Chunk;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+abstract class MpscChunkedArrayQueueProducerFields<E> extends MpscChunkedArrayQueuePad0<E> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedArrayQueueProducerFields> UPDATER;
+
+    static {
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedArrayQueueProducerFields> updater;
+        updater = PlatformDependent.newAtomicLongFieldUpdater(
+                MpscChunkedArrayQueueProducerFields.class, "producerIndex");
+        if (updater == null) {
+            updater = AtomicLongFieldUpdater.newUpdater(
+                    MpscChunkedArrayQueueProducerFields.class, "producerIndex");
+        }
+        UPDATER = updater;
+    }
+
+    private volatile long producerIndex;
+
+    /**
+     * A cached upper bound of the index producers may claim, so the consumer index only needs to be read again once
+     * it was reached.
+     */
+    volatile long producerLimit;
+
+    /**
+     * The last {@link Chunk} a producer moved to.  Producers start looking up the {@link Chunk} of their index here.
+     */
+    volatile Chunk<E> producerChunk;
+
+    protected final long producerIndex() {
+        return producerIndex;
+    }
+
+    protected final boolean casProducerIndex(long expect, long update) {
+        return UPDATER.compareAndSet(this, expect, update);
+    }
+}
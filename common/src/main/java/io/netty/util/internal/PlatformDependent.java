@@ -29,13 +29,16 @@ import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.nio.ByteBuffer;
+import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -81,6 +84,8 @@ public final class PlatformDependent {
 
     private static final int ADDRESS_SIZE = addressSize0();
 
+    private static final int MPSC_CHUNK_SIZE = 1024;
+
     static {
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.noPreferDirect: {}", !DIRECT_BUFFER_PREFERRED);
@@ -145,6 +150,14 @@ public final class PlatformDependent {
         return HAS_UNSAFE;
     }
 
+    /**
+     * Return {@code true} if {@code sun.misc.Unsafe} can be used and the platform supports unaligned memory access,
+     * so multiple bytes can be read at once from any index.
+     */
+    public static boolean isUnaligned() {
+        return HAS_UNSAFE && PlatformDependent0.unalignedAccess();
+    }
+
     /**
      * Returns {@code true} if the platform has reliable low-level direct buffer access API and a user specified
      * {@code -Dio.netty.preferDirect} option.
@@ -213,6 +226,17 @@ public final class PlatformDependent {
         throw (E) t;
     }
 
+    /**
+     * Creates a new fastest thread-safe {@link Deque} implementation for the current platform.
+     */
+    public static <C> Deque<C> newConcurrentDeque() {
+        if (javaVersion() < 7) {
+            return new LinkedBlockingDeque<C>();
+        } else {
+            return new ConcurrentLinkedDeque<C>();
+        }
+    }
+
     /**
      * Creates a new fastest {@link ConcurrentMap} implementaion for the current platform.
      */
@@ -317,6 +341,14 @@ public final class PlatformDependent {
         return PlatformDependent0.getLong(address);
     }
 
+    /**
+     * Reads 8 bytes of the given array in the native byte order. No bounds checking is performed and this must only
+     * be used if {@link #isUnaligned()} returns {@code true}.
+     */
+    public static long getLong(byte[] data, int index) {
+        return PlatformDependent0.getLong(data, ARRAY_BASE_OFFSET + index);
+    }
+
     public static void putOrderedObject(Object object, long address, Object value) {
         PlatformDependent0.putOrderedObject(object, address, value);
     }
@@ -426,6 +458,16 @@ public final class PlatformDependent {
         return new MpscLinkedQueue<T>();
     }
 
+    /**
+     * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and a single
+     * consumer (one thread!), and which holds at most {@code maxCapacity} elements.  The returned {@link Queue}
+     * is backed by arrays which are allocated on demand, so a large {@code maxCapacity} does not waste memory.
+     */
+    public static <T> Queue<T> newMpscQueue(int maxCapacity) {
+        int chunkSize = maxCapacity < MPSC_CHUNK_SIZE ? Math.max(2, maxCapacity) : MPSC_CHUNK_SIZE;
+        return new MpscChunkedArrayQueue<T>(chunkSize, maxCapacity);
+    }
+
     /**
      * Return the {@link ClassLoader} for the given {@link Class}.
      */
@@ -174,7 +174,7 @@ final class PlatformDependent0 {
         return UNSAFE.getInt(object, fieldOffset);
     }
 
-    private static long getLong(Object object, long fieldOffset) {
+    static long getLong(Object object, long fieldOffset) {
         return UNSAFE.getLong(object, fieldOffset);
     }
 
@@ -18,6 +18,7 @@ package io.netty.util.internal;
 
 import io.netty.util.concurrent.FastThreadLocal;
 
+import java.lang.ref.WeakReference;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
@@ -37,6 +38,10 @@ class UnpaddedInternalThreadLocalMap {
     /** Used by {@link FastThreadLocal} */
     Object[] indexedVariables;
 
+    // Used by the thread cache of 'InternalThreadLocalMap' if the owner is not a 'FastThreadLocalAccess'
+    Thread threadCacheOwner;
+    WeakReference<InternalThreadLocalMap> threadCacheEntry;
+
     // Core thread-locals
     int futureListenerStackDepth;
     int localChannelReaderStackDepth;
@@ -27,6 +27,7 @@ void convertTemplates(String templateDir,
     ant.copy(todir: outputDir) {
         fileset(dir: templateDir) {
             include(name: "**/*.template")
+            exclude(name: "**/KK*.template")
         }
         filterset() {
             filter(token: "K", value: keyName)
@@ -36,4 +37,18 @@ void convertTemplates(String templateDir,
         }
         regexpmapper(from: replaceFrom, to: replaceTo)
     }
+
+    // Templates which use the primitive for the keys and the values, e.g. KKHashMap -> IntIntHashMap.
+    ant.copy(todir: outputDir) {
+        fileset(dir: templateDir) {
+            include(name: "**/KK*.template")
+        }
+        filterset() {
+            filter(token: "K", value: keyName)
+            filter(token: "k", value: keyPrimitive)
+            filter(token: "O", value: keyObject)
+            filter(token: "HASH_CODE", value: hashCodeFn)
+        }
+        regexpmapper(from: "(^.*)KK([^.]+)\\.template\$", to: "\\1" + keyName + keyName + "\\2.java")
+    }
 }
\ No newline at end of file
@@ -17,8 +17,13 @@ package io.netty.util;
 
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -154,4 +159,62 @@ public class HashedWheelTimerTest {
 
         timer.stop();
     }
+
+    @Test
+    public void testDispatchToExecutor() throws InterruptedException {
+        final AtomicInteger batches = new AtomicInteger();
+        final ExecutorService delegate = Executors.newSingleThreadExecutor();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                batches.incrementAndGet();
+                delegate.execute(command);
+            }
+        };
+        final HashedWheelTimer timer = new HashedWheelTimer(
+                Executors.defaultThreadFactory(), 100, TimeUnit.MILLISECONDS, 512, executor);
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final CountDownLatch latch = new CountDownLatch(10);
+        for (int i = 0; i < 10; i ++) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                }
+            }, 200, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(10, timer.pendingTimeouts());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+        // All the timeouts expire in the same tick and so are dispatched as one batch.
+        assertEquals(1, batches.get());
+        assertEquals(0, timer.pendingTimeouts());
+        assertEquals(10, timer.expiredTimeouts());
+        timer.stop();
+        delegate.shutdown();
+    }
+
+    @Test
+    public void testPendingTimeouts() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer();
+        final CountDownLatch latch = new CountDownLatch(1);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        };
+        Timeout t1 = timer.newTimeout(task, 10, TimeUnit.SECONDS);
+        timer.newTimeout(task, 10, TimeUnit.SECONDS);
+        timer.newTimeout(task, 1, TimeUnit.MILLISECONDS);
+        assertEquals(3, timer.pendingTimeouts());
+        assertTrue(t1.cancel());
+        assertEquals(2, timer.pendingTimeouts());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, timer.pendingTimeouts());
+        assertTrue(timer.tickLagNanos() >= 0);
+        timer.stop();
+    }
 }
@@ -166,6 +166,69 @@ public class RecyclerTest {
         assertThat(recycler.threadLocalSize(), is(0));
     }
 
+    @Test
+    public void testMetric() {
+        Recycler<HandledObject> recycler = newRecycler(2, 2, 1);
+        HandledObject o1 = recycler.get();
+        HandledObject o2 = recycler.get();
+        HandledObject o3 = recycler.get();
+        recycler.recycle(o1, o1.handle);
+        recycler.recycle(o2, o2.handle);
+        // Exceeds the capacity.
+        recycler.recycle(o3, o3.handle);
+        recycler.get();
+
+        RecyclerMetric metric = recycler.metric();
+        assertEquals(1, metric.numHits());
+        assertEquals(3, metric.numMisses());
+        assertEquals(1, metric.numDropped());
+        assertEquals(0, metric.numTransferred());
+        assertEquals(0, metric.numPendingTransfer());
+    }
+
+    @Test
+    public void testRatioAndMaxSharedCapacityAtDifferentThread() throws Exception {
+        // maxCapacity / maxSharedCapacityFactor = 32 which are two links.
+        final Recycler<HandledObject> recycler = newRecycler(256, 8, 2);
+        final HandledObject[] array = new HandledObject[128];
+        for (int i = 0; i < array.length; i ++) {
+            array[i] = recycler.get();
+        }
+
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (HandledObject o: array) {
+                    recycler.recycle(o, o.handle);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        RecyclerMetric metric = recycler.metric();
+        // Every second object is dropped because of the ratio, and of the other 64 only 32 fit.
+        assertEquals(96, metric.numDropped());
+        assertEquals(32, metric.numPendingTransfer());
+
+        for (int i = 0; i < 32; i ++) {
+            recycler.get();
+        }
+        metric = recycler.metric();
+        assertEquals(32, metric.numHits());
+        assertEquals(32, metric.numTransferred());
+        assertEquals(0, recycler.threadLocalSize());
+    }
+
+    private static Recycler<HandledObject> newRecycler(int maxCapacity, int maxSharedCapacityFactor, int ratio) {
+        return new Recycler<HandledObject>(maxCapacity, maxSharedCapacityFactor, ratio) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                return new HandledObject(handle);
+            }
+        };
+    }
+
     static final class HandledObject {
         Recycler.Handle<HandledObject> handle;
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import io.netty.util.ResourceLeakDetector.Level;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ResourceLeakDetectorTest {
+
+    private Level oldLevel;
+
+    @Before
+    public void setUp() {
+        oldLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(Level.PARANOID);
+    }
+
+    @After
+    public void tearDown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+    }
+
+    @Test(timeout = 30000)
+    public void testLeakListener() throws Exception {
+        final BlockingQueue<String> leaks = new LinkedBlockingQueue<String>();
+        ResourceLeakDetector.LeakListener listener = new ResourceLeakDetector.LeakListener() {
+            @Override
+            public void onLeak(String resourceType, String records) {
+                leaks.add(resourceType + records);
+            }
+        };
+        ResourceLeakDetector.addLeakListener(listener);
+        try {
+            ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>("LeakListenerTest");
+            leak(detector);
+
+            String leak;
+            do {
+                System.gc();
+                // Leaks are detected when new resources are tracked.
+                assertTrue(detector.open(new Object()).close());
+                leak = leaks.poll(100, TimeUnit.MILLISECONDS);
+            } while (leak == null);
+
+            assertTrue(leak.startsWith("LeakListenerTest"));
+            assertTrue(leak.contains("Created at:"));
+        } finally {
+            assertTrue(ResourceLeakDetector.removeLeakListener(listener));
+        }
+    }
+
+    private static void leak(ResourceLeakDetector<Object> detector) {
+        detector.open(new Object()).record();
+    }
+
+    @Test
+    public void testRecordsAreBounded() {
+        Object resource = new Object();
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>("RecordsAreBoundedTest");
+        ResourceLeak leak = detector.open(resource);
+        for (int i = 0; i < 1000; i ++) {
+            leak.record(i);
+        }
+
+        String records = leak.toString();
+        assertTrue(records.contains("Recent access records: 4"));
+        assertFalse(records.contains("#5:"));
+        assertTrue(records.contains("leak records were discarded"));
+
+        assertTrue(leak.close());
+        assertFalse(leak.close());
+    }
+}
@@ -142,6 +142,62 @@ public class DefaultPromiseTest {
         testListenerNotifyLater(2);
     }
 
+    @Test
+    public void testRemoveListenerRetainsNotifyOrder() {
+        final StringBuilder notified = new StringBuilder();
+        FutureListener<Void>[] l = new FutureListener[6];
+        for (int i = 0; i < l.length; i ++) {
+            final int id = i;
+            l[i] = new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) throws Exception {
+                    notified.append(id);
+                }
+            };
+        }
+
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        // Removing from the inline slots while no further listeners exist.
+        promise.addListener(l[0]).addListener(l[1]).removeListener(l[0]).addListener(l[2]);
+        // Removing from the inline slots while further listeners exist.
+        promise.addListener(l[3]).addListener(l[4]).removeListener(l[2]).removeListener(l[3]).addListener(l[5]);
+        promise.setSuccess(null);
+        assertEquals("145", notified.toString());
+    }
+
+    @Test
+    public void testProgressiveListeners() {
+        final StringBuilder notified = new StringBuilder();
+        ProgressivePromise<Void> promise = new DefaultProgressivePromise<Void>(ImmediateEventExecutor.INSTANCE);
+        for (int i = 0; i < 4; i ++) {
+            final int id = i;
+            if (i % 2 == 0) {
+                promise.addListener(new FutureListener<Void>() {
+                    @Override
+                    public void operationComplete(Future<Void> future) throws Exception {
+                        notified.append('c');
+                    }
+                });
+            } else {
+                promise.addListener(new GenericProgressiveFutureListener<ProgressiveFuture<Void>>() {
+                    @Override
+                    public void operationProgressed(ProgressiveFuture<Void> future, long progress, long total) {
+                        notified.append(id);
+                    }
+
+                    @Override
+                    public void operationComplete(ProgressiveFuture<Void> future) throws Exception {
+                        notified.append('c');
+                    }
+                });
+            }
+        }
+        promise.setProgress(1, 2);
+        assertEquals("13", notified.toString());
+        promise.setSuccess(null);
+        assertEquals("13cccc", notified.toString());
+    }
+
     private static void testListenerNotifyLater(final int numListenersBefore) throws Exception {
         EventExecutor executor = new TestEventExecutor();
         int expectedCount = numListenersBefore + 2;
@@ -78,6 +78,73 @@ public class FastThreadLocalTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testNonFTLThreadKeepsOwnValues() throws Throwable {
+        final FastThreadLocal<Thread> var = new FastThreadLocal<Thread>() {
+            @Override
+            protected Thread initialValue() {
+                return Thread.currentThread();
+            }
+        };
+        final AtomicReference<Throwable> throwable = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i ++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j ++) {
+                            assertSame(Thread.currentThread(), var.get());
+                        }
+
+                        // A removed value must not be served from the thread cache anymore.
+                        FastThreadLocal.removeAll();
+                        assertFalse(var.isSet());
+                        assertThat(FastThreadLocal.size(), is(0));
+                        assertSame(Thread.currentThread(), var.get());
+                    } catch (Throwable t) {
+                        throwable.set(t);
+                    }
+                }
+            };
+        }
+        for (Thread t: threads) {
+            t.start();
+        }
+        for (Thread t: threads) {
+            t.join();
+        }
+
+        Throwable t = throwable.get();
+        if (t != null) {
+            throw t;
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFastThreadLocalRunnableRemovesAll() throws Exception {
+        final AtomicBoolean removed = new AtomicBoolean();
+        final FastThreadLocal<Boolean> var = new FastThreadLocal<Boolean>() {
+            @Override
+            protected void onRemoval(Boolean value) {
+                removed.set(true);
+            }
+        };
+
+        Runnable task = FastThreadLocalRunnable.wrap(new Runnable() {
+            @Override
+            public void run() {
+                var.set(Boolean.TRUE);
+            }
+        });
+        assertSame(task, FastThreadLocalRunnable.wrap(task));
+
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+        assertThat(removed.get(), is(true));
+    }
+
     /**
      * Make sure threads created by the {@link DefaultExecutorServiceFactory} and {@link DefaultThreadFactory}
      * implement the {@link FastThreadLocalAccess} interface.
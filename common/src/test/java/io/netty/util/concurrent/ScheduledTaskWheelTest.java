@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class ScheduledTaskWheelTest {
+
+    private static final Callable<Void> NOOP = Executors.callable(new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    }, null);
+
+    private static ScheduledFutureTask<Void> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(ImmediateEventExecutor.INSTANCE, NOOP, deadlineNanos);
+    }
+
+    @Test
+    public void testPollExpiredInDeadlineOrder() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(10, 0);
+        ScheduledFutureTask<Void> task1 = newTask(25);
+        ScheduledFutureTask<Void> task2 = newTask(21);
+        ScheduledFutureTask<Void> task3 = newTask(100000);
+        assertTrue(wheel.offer(task1));
+        assertTrue(wheel.offer(task2));
+        assertTrue(wheel.offer(task3));
+        assertEquals(3, wheel.size());
+
+        assertNull(wheel.pollExpired(20));
+        assertEquals(1, wheel.nextDelayNanos(20));
+        assertSame(task2, wheel.pollExpired(30));
+        assertSame(task1, wheel.pollExpired(30));
+        assertNull(wheel.pollExpired(30));
+
+        long delay = wheel.nextDelayNanos(30);
+        assertTrue(delay > 0 && delay <= 100000 - 30);
+        assertSame(task3, wheel.pollExpired(100000));
+        assertTrue(wheel.isEmpty());
+        assertEquals(-1, wheel.nextDelayNanos(100000));
+    }
+
+    @Test
+    public void testRemove() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(1, 0);
+        ScheduledFutureTask<Void> task1 = newTask(100);
+        ScheduledFutureTask<Void> task2 = newTask(100);
+        ScheduledFutureTask<Void> task3 = newTask(Long.MAX_VALUE / 2);
+        wheel.add(task1);
+        wheel.add(task2);
+        wheel.add(task3);
+
+        assertTrue(wheel.remove(task1));
+        assertFalse(wheel.remove(task1));
+        assertTrue(wheel.remove(task3));
+        assertEquals(1, wheel.size());
+        assertSame(task2, wheel.pollExpired(100));
+        assertFalse(wheel.remove(task2));
+        assertTrue(wheel.isEmpty());
+
+        // A removed task can be added again.
+        wheel.add(task1);
+        assertSame(task1, wheel.pollExpired(200));
+    }
+
+    @Test
+    public void testIteratorAndClear() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(1, 0);
+        List<ScheduledFutureTask<Void>> tasks = new ArrayList<ScheduledFutureTask<Void>>();
+        for (long deadline: new long[] { 0, 63, 64, 5000, 1L << 30 }) {
+            ScheduledFutureTask<Void> task = newTask(deadline);
+            tasks.add(task);
+            wheel.add(task);
+        }
+        List<ScheduledFutureTask<?>> iterated = new ArrayList<ScheduledFutureTask<?>>();
+        for (ScheduledFutureTask<?> task: wheel) {
+            iterated.add(task);
+        }
+        assertEquals(tasks.size(), iterated.size());
+        assertTrue(iterated.containsAll(tasks));
+
+        wheel.clear();
+        assertTrue(wheel.isEmpty());
+        assertNull(wheel.pollExpired(Long.MAX_VALUE / 2));
+        for (ScheduledFutureTask<Void> task: tasks) {
+            assertFalse(wheel.remove(task));
+        }
+    }
+
+    @Test
+    public void testCompareWithPriorityQueue() {
+        Random random = new Random(42);
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(1, 0);
+        Queue<ScheduledFutureTask<?>> expected = new PriorityQueue<ScheduledFutureTask<?>>();
+        List<ScheduledFutureTask<?>> scheduled = new ArrayList<ScheduledFutureTask<?>>();
+        long[] ranges = { 10, 1000, 100000, 10000000, 100000000 };
+        long now = 0;
+
+        for (int i = 0; i < 20000; i ++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                long range = ranges[random.nextInt(ranges.length)];
+                ScheduledFutureTask<Void> task = newTask(now + (long) (random.nextDouble() * range));
+                wheel.add(task);
+                expected.add(task);
+                scheduled.add(task);
+            } else if (op < 8) {
+                if (!scheduled.isEmpty()) {
+                    ScheduledFutureTask<?> task = scheduled.remove(random.nextInt(scheduled.size()));
+                    assertEquals(expected.remove(task), wheel.remove(task));
+                }
+            } else {
+                long delay = wheel.nextDelayNanos(now);
+                ScheduledFutureTask<?> head = expected.peek();
+                if (head == null) {
+                    assertEquals(-1, delay);
+                } else {
+                    assertTrue(delay >= 0 && delay <= Math.max(0, head.deadlineNanos() - now));
+                }
+
+                now += random.nextBoolean() ? delay : (long) (random.nextDouble() * ranges[random.nextInt(4)]);
+                for (;;) {
+                    ScheduledFutureTask<?> task = wheel.pollExpired(now);
+                    head = expected.peek();
+                    if (head == null || head.deadlineNanos() > now) {
+                        assertNull(task);
+                        break;
+                    }
+                    assertSame(expected.poll(), task);
+                }
+            }
+            assertEquals(expected.size(), wheel.size());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SingleThreadEventExecutorTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    @Test(timeout = 10000)
+    public void testMaxPendingTasks() throws Exception {
+        testMaxPendingTasks(RejectedExecutionHandlers.reject(), false);
+    }
+
+    @Test(timeout = 10000)
+    public void testBackoffRejectedExecutionHandler() throws Exception {
+        testMaxPendingTasks(RejectedExecutionHandlers.backoff(10, 1, TimeUnit.MILLISECONDS), true);
+    }
+
+    private static void testMaxPendingTasks(RejectedExecutionHandler handler, boolean unblockOnReject)
+            throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final DefaultEventExecutor executor = new DefaultEventExecutor(null,
+                new DefaultExecutorServiceFactory(SingleThreadEventExecutorTest.class).newExecutorService(1),
+                16, handler);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            // Wait until the blocking task was taken from the queue.
+            while (executor.pendingTasks() != 0) {
+                Thread.sleep(10);
+            }
+            for (int i = 0; i < 16; i ++) {
+                executor.execute(NOOP);
+            }
+            assertEquals(16, executor.pendingTasks());
+
+            if (unblockOnReject) {
+                // Let the executor make progress while the handler backs off.
+                latch.countDown();
+                executor.execute(NOOP);
+            } else {
+                try {
+                    executor.execute(NOOP);
+                    fail();
+                } catch (RejectedExecutionException expected) {
+                    // Expected
+                }
+            }
+        } finally {
+            latch.countDown();
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelFromOtherThreadWhileTaskQueueIsFull() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final WheelEventExecutor executor = new WheelEventExecutor();
+        try {
+            ScheduledFuture<?> future = executor.schedule(NOOP, 1, TimeUnit.HOURS);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            // Wait until the blocking task was taken from the queue.
+            while (executor.pendingTasks() != 0) {
+                Thread.sleep(10);
+            }
+            for (int i = 0; i < 16; i ++) {
+                executor.execute(NOOP);
+            }
+            assertEquals(16, executor.pendingTasks());
+
+            // Must not throw although the task which removes it from the wheel can not be added.
+            assertTrue(future.cancel(false));
+            assertTrue(future.isCancelled());
+        } finally {
+            latch.countDown();
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMetric() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor(null,
+                new DefaultExecutorServiceFactory(SingleThreadEventExecutorTest.class).newExecutorService(1));
+        try {
+            assertNull(executor.metric());
+            EventExecutorMetric metric = executor.enableMetric();
+            assertSame(metric, executor.metric());
+            assertSame(metric, executor.enableMetric());
+
+            executor.schedule(NOOP, 1, TimeUnit.HOURS);
+            executor.submit(NOOP).sync();
+            assertTrue(metric.scheduledTasks() >= 1);
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            // Wait until the blocking task was taken from the queue.
+            while (executor.pendingTasks() != 0) {
+                Thread.sleep(10);
+            }
+            for (int i = 0; i < 10; i ++) {
+                executor.execute(NOOP);
+            }
+            assertEquals(10, metric.pendingTasks());
+            Thread.sleep(10);
+            latch.countDown();
+
+            executor.submit(NOOP).sync();
+            // The task which completed the future may not have been recorded yet.
+            while (metric.executedTasks() < 14) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, metric.pendingTasks());
+            assertEquals(0, metric.ioTimeNanos());
+            assertTrue(metric.taskTimeNanos() > 0);
+
+            long samples = 0;
+            long[] histogram = metric.taskQueueDelayHistogram();
+            assertEquals(DefaultEventExecutorMetric.HISTOGRAM_BUCKETS, histogram.length);
+            for (long count: histogram) {
+                samples += count;
+            }
+            assertTrue(samples > 0);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static final class WheelEventExecutor extends SingleThreadEventExecutor {
+        WheelEventExecutor() {
+            super(null, new DefaultExecutorServiceFactory(SingleThreadEventExecutorTest.class).newExecutorService(1),
+                  true, 16, RejectedExecutionHandlers.reject());
+        }
+
+        @Override
+        Queue<ScheduledFutureTask<?>> newScheduledTaskQueue() {
+            return new ScheduledTaskWheel(TimeUnit.MILLISECONDS.toNanos(1), nanoTime());
+        }
+
+        @Override
+        protected void run() {
+            Runnable task = takeTask();
+            if (task != null) {
+                task.run();
+                updateLastExecutionTime();
+            }
+
+            if (confirmShutdown()) {
+                cleanupAndTerminate(true);
+            } else {
+                scheduleExecution();
+            }
+        }
+    }
+}
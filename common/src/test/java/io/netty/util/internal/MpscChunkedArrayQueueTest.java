@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.internal;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class MpscChunkedArrayQueueTest {
+
+    @Test
+    public void testOfferPollAcrossChunks() {
+        Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(4, 10);
+        for (int round = 0; round < 3; round ++) {
+            assertTrue(queue.isEmpty());
+            assertNull(queue.peek());
+            assertNull(queue.poll());
+
+            for (int i = 0; i < 10; i ++) {
+                assertTrue(queue.offer(i));
+            }
+            assertFalse(queue.offer(10));
+            assertEquals(10, queue.size());
+
+            for (int i = 0; i < 10; i ++) {
+                assertEquals(i, (int) queue.peek());
+                assertEquals(i, (int) queue.poll());
+            }
+            assertEquals(0, queue.size());
+        }
+    }
+
+    @Test
+    public void testIterator() {
+        Queue<Integer> queue = new MpscChunkedArrayQueue<Integer>(2, 16);
+        assertFalse(queue.iterator().hasNext());
+
+        for (int i = 0; i < 5; i ++) {
+            queue.add(i);
+        }
+        queue.poll();
+
+        Iterator<Integer> it = queue.iterator();
+        for (int i = 1; i < 5; i ++) {
+            assertEquals(i, (int) it.next());
+        }
+        assertFalse(it.hasNext());
+        assertEquals(4, queue.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        new MpscChunkedArrayQueue<Object>(2, 16).offer(null);
+    }
+
+    @Test(timeout = 30000)
+    public void testMultipleProducers() throws Exception {
+        final int producers = 4;
+        final int elements = 100000;
+        final Queue<Long> queue = new MpscChunkedArrayQueue<Long>(64, 1024);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i ++) {
+            final long producer = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long j = 0; j < elements; j ++) {
+                        Long e = producer << 32 | j;
+                        while (!queue.offer(e)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+
+        // Elements of each producer must be received in the order they were offered.
+        long[] next = new long[producers];
+        for (int received = 0; received < producers * elements;) {
+            Long e = queue.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) (e >>> 32);
+            assertEquals(next[producer] ++, e & 0xFFFFFFFFL);
+            received ++;
+        }
+
+        for (Thread t: threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
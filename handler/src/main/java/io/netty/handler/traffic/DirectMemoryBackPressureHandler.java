@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.traffic;
+
+import io.netty.buffer.BudgetedByteBufAllocator;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops reading from a {@link io.netty.channel.Channel} while its {@link BudgetedByteBufAllocator} has used most of
+ * its {@linkplain BudgetedByteBufAllocator#maxDirectMemory() direct memory budget}, so that a server under overload
+ * degrades gracefully instead of failing allocations with a
+ * {@link io.netty.buffer.DirectMemoryBudgetExceededException}.
+ *
+ * <p>Once the used direct memory exceeds the high water mark, {@link ChannelConfig#setAutoRead(boolean) auto read}
+ * is disabled. The usage is then checked periodically and auto read is enabled again as soon as the used direct
+ * memory dropped below the low water mark. As a pooling allocator may keep unused chunks around, the check asks the
+ * allocator to {@linkplain BudgetedByteBufAllocator#releaseUnusedDirectMemory() release unused direct memory} before
+ * it decides that the usage is still too high. The allocator limits how often this really happens, so it is fine
+ * for many suspended channels to ask at the same time. Nothing is done if the {@link ByteBufAllocator} of the
+ * {@link io.netty.channel.Channel} is not a {@link BudgetedByteBufAllocator} or its budget is not limited.</p>
+ *
+ * <p>A new instance must be created for each {@link io.netty.channel.Channel}.</p>
+ */
+public class DirectMemoryBackPressureHandler extends ChannelHandlerAdapter {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(DirectMemoryBackPressureHandler.class);
+
+    private final float highWaterMark;
+    private final float lowWaterMark;
+    private final long checkIntervalMillis;
+
+    private boolean readSuspended;
+    private ScheduledFuture<?> resumeFuture;
+
+    /**
+     * Creates a new instance which suspends reading above 90% and resumes it below 70% of the direct memory budget,
+     * checking the usage every 100 milliseconds while reading is suspended.
+     */
+    public DirectMemoryBackPressureHandler() {
+        this(0.9f, 0.7f, 100);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param highWaterMark       the fraction of the direct memory budget above which reading is suspended
+     * @param lowWaterMark        the fraction of the direct memory budget below which reading is resumed
+     * @param checkIntervalMillis the number of milliseconds between two checks of the used direct memory while
+     *                            reading is suspended
+     */
+    public DirectMemoryBackPressureHandler(float highWaterMark, float lowWaterMark, long checkIntervalMillis) {
+        if (highWaterMark <= 0 || highWaterMark > 1) {
+            throw new IllegalArgumentException(
+                    "highWaterMark: " + highWaterMark + " (expected: 0 < highWaterMark <= 1)");
+        }
+        if (lowWaterMark < 0 || lowWaterMark > highWaterMark) {
+            throw new IllegalArgumentException(
+                    "lowWaterMark: " + lowWaterMark + " (expected: 0 <= lowWaterMark <= highWaterMark)");
+        }
+        if (checkIntervalMillis <= 0) {
+            throw new IllegalArgumentException("checkIntervalMillis: " + checkIntervalMillis + " (expected: > 0)");
+        }
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * Returns {@code true} if reading was suspended by this handler because of a high direct memory usage.
+     */
+    public boolean isReadSuspended() {
+        return readSuspended;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        checkUsage(ctx);
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        checkUsage(ctx);
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelResume();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        cancelResume();
+        if (readSuspended) {
+            readSuspended = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private void checkUsage(ChannelHandlerContext ctx) {
+        if (readSuspended) {
+            return;
+        }
+        ChannelConfig config = ctx.channel().config();
+        if (!config.isAutoRead()) {
+            // Reading was suspended by someone else, who is also responsible to resume it.
+            return;
+        }
+        ByteBufAllocator alloc = config.getAllocator();
+        if (exceeds(alloc, highWaterMark)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} Suspend reading: {} of {} bytes of direct memory used", ctx.channel(),
+                        ((BudgetedByteBufAllocator) alloc).usedDirectMemory(),
+                        ((BudgetedByteBufAllocator) alloc).maxDirectMemory());
+            }
+            readSuspended = true;
+            config.setAutoRead(false);
+            scheduleResume(ctx);
+        }
+    }
+
+    private void scheduleResume(final ChannelHandlerContext ctx) {
+        resumeFuture = ctx.executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                resumeFuture = null;
+                if (!readSuspended) {
+                    return;
+                }
+                ChannelConfig config = ctx.channel().config();
+                ByteBufAllocator alloc = config.getAllocator();
+                // Memory which is pooled or cached but not used by any buffer counts towards the budget as well and
+                // may never be given back on its own, so ask the allocator to release it before giving up.
+                if (exceeds(alloc, lowWaterMark) &&
+                        (((BudgetedByteBufAllocator) alloc).releaseUnusedDirectMemory() == 0 ||
+                         exceeds(alloc, lowWaterMark))) {
+                    scheduleResume(ctx);
+                } else {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("{} Resume reading", ctx.channel());
+                    }
+                    readSuspended = false;
+                    config.setAutoRead(true);
+                }
+            }
+        }, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelResume() {
+        ScheduledFuture<?> resumeFuture = this.resumeFuture;
+        if (resumeFuture != null) {
+            this.resumeFuture = null;
+            resumeFuture.cancel(false);
+        }
+    }
+
+    private static boolean exceeds(ByteBufAllocator alloc, float waterMark) {
+        if (!(alloc instanceof BudgetedByteBufAllocator)) {
+            return false;
+        }
+        BudgetedByteBufAllocator budgetedAlloc = (BudgetedByteBufAllocator) alloc;
+        long maxDirectMemory = budgetedAlloc.maxDirectMemory();
+        return maxDirectMemory > 0 && budgetedAlloc.usedDirectMemory() > (long) (maxDirectMemory * waterMark);
+    }
+}
@@ -55,6 +55,10 @@
  *
  * <p>Note also that you can create different GlobalTrafficShapingHandler if you want to separate classes of
  * channels (for instance either from business point of view or from bind address point of view).</p>
+ *
+ * <p>{@link io.netty.handler.traffic.DirectMemoryBackPressureHandler} does not shape the traffic by bandwidth but
+ * stops reading while the {@link io.netty.buffer.BudgetedByteBufAllocator} of a channel is close to its direct
+ * memory budget.</p>
  */
 package io.netty.handler.traffic;
 
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.traffic;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirectMemoryBackPressureHandlerTest {
+
+    @Test
+    public void testSuspendAndResumeReading() throws Exception {
+        UnpooledByteBufAllocator alloc = new UnpooledByteBufAllocator(true, 1000);
+        DirectMemoryBackPressureHandler handler = new DirectMemoryBackPressureHandler(0.5f, 0.25f, 10);
+        EmbeddedChannel ch = new EmbeddedChannel(handler);
+        ch.config().setAllocator(alloc);
+
+        assertTrue(ch.writeInbound(alloc.directBuffer(100).writeZero(100)));
+        assertTrue(ch.config().isAutoRead());
+        assertFalse(handler.isReadSuspended());
+
+        assertTrue(ch.writeInbound(alloc.directBuffer(500).writeZero(500)));
+        assertFalse(ch.config().isAutoRead());
+        assertTrue(handler.isReadSuspended());
+
+        // Still above the low water mark.
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        runScheduledTasks(ch);
+        assertFalse(ch.config().isAutoRead());
+
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        runScheduledTasks(ch);
+        assertTrue(ch.config().isAutoRead());
+        assertFalse(handler.isReadSuspended());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testResumeReadingWithUnusedPooledChunks() throws Exception {
+        int chunkSize = 8192 << 11;
+        // No caches and neither an idle timeout nor a maximum for pooled chunks, so unused chunks are kept forever.
+        PooledByteBufAllocator alloc = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, 0, 0, chunkSize + chunkSize / 4);
+        DirectMemoryBackPressureHandler handler = new DirectMemoryBackPressureHandler(0.5f, 0.25f, 10);
+        EmbeddedChannel ch = new EmbeddedChannel(handler);
+        ch.config().setAllocator(alloc);
+
+        assertTrue(ch.writeInbound(alloc.directBuffer(65536).writeZero(65536)));
+        assertFalse(ch.config().isAutoRead());
+        assertTrue(handler.isReadSuspended());
+
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        // The chunk stays pooled although no buffer uses it anymore.
+        assertEquals(chunkSize, alloc.usedDirectMemory());
+
+        runScheduledTasks(ch);
+        assertTrue(ch.config().isAutoRead());
+        assertFalse(handler.isReadSuspended());
+        assertEquals(0, alloc.usedDirectMemory());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testResumeReadingWithCachedPooledBuffers() throws Exception {
+        int chunkSize = 8192 << 11;
+        PooledByteBufAllocator alloc = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, PooledByteBufAllocator.DEFAULT.tinyCacheSize(),
+                PooledByteBufAllocator.DEFAULT.smallCacheSize(), PooledByteBufAllocator.DEFAULT.normalCacheSize(),
+                0, 0, chunkSize + chunkSize / 4);
+        DirectMemoryBackPressureHandler handler = new DirectMemoryBackPressureHandler(0.5f, 0.25f, 10);
+        EmbeddedChannel ch = new EmbeddedChannel(handler);
+        ch.config().setAllocator(alloc);
+
+        assertTrue(ch.writeInbound(alloc.directBuffer(1024).writeZero(1024)));
+        assertTrue(ch.writeInbound(alloc.directBuffer(16384).writeZero(16384)));
+        assertFalse(ch.config().isAutoRead());
+        assertTrue(handler.isReadSuspended());
+
+        // Both buffers are released on the thread of the channel and so end up in its thread local cache.
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        assertEquals(2, alloc.threadCacheMetric().numCached());
+        assertEquals(chunkSize, alloc.usedDirectMemory());
+
+        runScheduledTasks(ch);
+        assertTrue(ch.config().isAutoRead());
+        assertFalse(handler.isReadSuspended());
+        assertEquals(0, alloc.threadCacheMetric().numCached());
+        assertEquals(0, alloc.usedDirectMemory());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testResumeReadingWhenRemoved() {
+        UnpooledByteBufAllocator alloc = new UnpooledByteBufAllocator(true, 1000);
+        DirectMemoryBackPressureHandler handler = new DirectMemoryBackPressureHandler();
+        EmbeddedChannel ch = new EmbeddedChannel(handler);
+        ch.config().setAllocator(alloc);
+
+        assertTrue(ch.writeInbound(alloc.directBuffer(1000).writeZero(1000)));
+        assertFalse(ch.config().isAutoRead());
+
+        ch.pipeline().remove(handler);
+        assertTrue(ch.config().isAutoRead());
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testUnlimitedAllocator() {
+        UnpooledByteBufAllocator alloc = new UnpooledByteBufAllocator(true);
+        EmbeddedChannel ch = new EmbeddedChannel(new DirectMemoryBackPressureHandler());
+        ch.config().setAllocator(alloc);
+
+        assertTrue(ch.writeInbound(alloc.directBuffer(1000).writeZero(1000)));
+        assertTrue(ch.config().isAutoRead());
+        assertTrue(ch.<ByteBuf>readInbound().release());
+        assertFalse(ch.finish());
+    }
+
+    private static void runScheduledTasks(EmbeddedChannel ch) throws InterruptedException {
+        Thread.sleep(50);
+        ch.runScheduledPendingTasks();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PoolChunkListMetric;
+import io.netty.buffer.PoolChunkMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/**
+ * This class benchmarks the {@link PooledByteBufAllocator} like {@link ByteBufAllocatorBenchmark} does and reports
+ * how many bytes of the pooled chunks are wasted per live buffer, which is the internal fragmentation caused by
+ * rounding up the requested capacities to their size class.
+ */
+@State(Scope.Benchmark)
+public class ByteBufAllocatorWasteBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MAX_LIVE_BUFFERS = 2048;
+    private static final Random rand = new Random();
+
+    @Param({ "00256", "00640", "01500", "09216", "20000", "40000" })
+    public int size;
+
+    private PooledByteBufAllocator allocator;
+    private ByteBuf[] buffers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Disable the thread-local cache so all memory is accounted in the arena.
+        allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        buffers = new ByteBuf[MAX_LIVE_BUFFERS];
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportWaste() {
+        int live = 0;
+        for (ByteBuf buf: buffers) {
+            if (buf != null) {
+                live ++;
+            }
+        }
+        if (live == 0) {
+            return;
+        }
+
+        long usedBytes = 0;
+        for (PoolArenaMetric arena: allocator.directArenas()) {
+            for (PoolChunkListMetric chunkList: arena.chunkLists()) {
+                for (PoolChunkMetric chunk: chunkList) {
+                    usedBytes += chunk.chunkSize() - chunk.freeBytes();
+                }
+            }
+        }
+        long wasted = usedBytes - (long) live * size;
+        System.out.println();
+        System.out.println("size: " + size + ", live buffers: " + live + ", used bytes: " + usedBytes +
+                ", wasted bytes per allocation: " + wasted / live +
+                " (" + wasted * 100 / Math.max(1, usedBytes) + "%)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < buffers.length; i ++) {
+            ByteBuf buf = buffers[i];
+            if (buf != null) {
+                buf.release();
+                buffers[i] = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public void pooledDirectAllocAndFree() {
+        int idx = rand.nextInt(buffers.length);
+        ByteBuf oldBuf = buffers[idx];
+        if (oldBuf != null) {
+            oldBuf.release();
+        }
+        buffers[idx] = allocator.directBuffer(size);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the search and compare routines of {@link ByteBufUtil} against byte by byte loops. The byte
+ * or pattern which is searched is at the end of the buffer, so the whole buffer is scanned.
+ */
+@State(Scope.Benchmark)
+public class ByteBufUtilSearchBenchmark extends AbstractMicrobenchmark {
+
+    private static final byte[] BOUNDARY = "\r\n--boundary-7d93b2a1c0e8".getBytes(CharsetUtil.US_ASCII);
+
+    @Param({ "00064", "01024", "16384", "65536" })
+    public int size;
+
+    @Param({ "true", "false" })
+    public boolean direct;
+
+    private ByteBuf buffer;
+    private ByteBuf otherBuffer;
+    private ByteBuf needle;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < bytes.length; i ++) {
+            // Looks like text with many partial matches of the boundary.
+            bytes[i] = i % 7 == 0 ? (byte) '-' : (byte) ('a' + i % 26);
+        }
+        System.arraycopy(BOUNDARY, 0, bytes, size - BOUNDARY.length, BOUNDARY.length);
+        buffer = newBuffer(bytes);
+        otherBuffer = newBuffer(bytes);
+        needle = Unpooled.wrappedBuffer(BOUNDARY);
+    }
+
+    private ByteBuf newBuffer(byte[] bytes) {
+        ByteBuf buf = direct ? Unpooled.directBuffer(bytes.length) : Unpooled.buffer(bytes.length);
+        return buf.writeBytes(bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+        otherBuffer.release();
+        needle.release();
+    }
+
+    @Benchmark
+    public int indexOfByte() {
+        return buffer.indexOf(0, size, (byte) '\r');
+    }
+
+    @Benchmark
+    public int indexOfByteBytewise() {
+        for (int i = 0; i < size; i ++) {
+            if (buffer.getByte(i) == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int lastIndexOfByte() {
+        return buffer.indexOf(size, 0, (byte) 0);
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return ByteBufUtil.equals(buffer, otherBuffer);
+    }
+
+    @Benchmark
+    public boolean equalsBytewise() {
+        for (int i = 0; i < size; i ++) {
+            if (buffer.getByte(i) != otherBuffer.getByte(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    public int compare() {
+        return ByteBufUtil.compare(buffer, otherBuffer);
+    }
+
+    @Benchmark
+    public int indexOfBoundary() {
+        return ByteBufUtil.indexOf(needle, buffer);
+    }
+
+    @Benchmark
+    public int indexOfBoundaryBytewise() {
+        final int needleLength = needle.readableBytes();
+        outer: for (int i = 0; i <= size - needleLength; i ++) {
+            for (int j = 0; j < needleLength; j ++) {
+                if (buffer.getByte(i + j) != needle.getByte(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+
+/**
+ * This class benchmarks sequential and random writes to the direct buffers of a {@link PooledByteBufAllocator} whose
+ * chunks are backed by normal or huge pages. As {@code -Dio.netty.allocator.hugePages} is read once per JVM every mode
+ * given by {@code -DhugePages} (a comma separated list, defaults to {@code ",transparent"}) is run in its own forks.
+ * Use the path of a hugetlbfs mount point as mode to benchmark explicit huge pages.
+ */
+@State(Scope.Benchmark)
+public class HugePageChunkBenchmark extends AbstractMicrobenchmark {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    @Param({ "016", "064", "512" })
+    public int workingSetMiB;
+
+    private ByteBuf[] buffers;
+    private long mask;
+    private long seqIdx;
+    private long seed = 0x5DEECE66DL;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // A single arena without thread-local caches so all buffers are carved out of the same chunks.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        buffers = new ByteBuf[workingSetMiB];
+        for (int i = 0; i < buffers.length; i ++) {
+            buffers[i] = allocator.directBuffer(BUFFER_SIZE, BUFFER_SIZE);
+        }
+        mask = (long) workingSetMiB * BUFFER_SIZE / 8 - 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (ByteBuf buf: buffers) {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public void sequentialWrite() {
+        setLong(seqIdx++ & mask);
+    }
+
+    @Benchmark
+    public void randomWrite() {
+        // xorshift, so the benchmark is not dominated by the cost of the random number generator.
+        long x = seed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed = x;
+        setLong(x & mask);
+    }
+
+    private void setLong(long longIdx) {
+        long offset = longIdx << 3;
+        buffers[(int) (offset / BUFFER_SIZE)].setLong((int) (offset % BUFFER_SIZE), longIdx);
+    }
+
+    @Test
+    @Override
+    public void run() throws Exception {
+        String[] modes = SystemPropertyUtil.get("hugePages", ",transparent").split(",", -1);
+        for (String mode: modes) {
+            new Runner(newOptionsBuilder().jvmArgsAppend("-Dio.netty.allocator.hugePages=" + mode.trim())
+                                          .build()).run();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class benchmarks the allocate/release throughput of a {@link PooledByteBufAllocator} without thread-local
+ * caches, so every operation hits the arenas, from 1 up to {@code -Dthreads} threads (defaults to the number of
+ * available processors).
+ */
+@State(Scope.Benchmark)
+public class PooledByteBufAllocatorConcurrencyBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MAX_LIVE_BUFFERS_PER_THREAD = 256;
+
+    @Param({ "00064", "01024", "16384", "65536" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean arenaAffinity;
+
+    private PooledByteBufAllocator allocator;
+    private AtomicReferenceArray<ByteBuf> sharedBuffers;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final ByteBuf[] buffers = new ByteBuf[MAX_LIVE_BUFFERS_PER_THREAD];
+        int idx;
+        int seed = System.identityHashCode(this);
+
+        int nextRandom() {
+            // xorshift, so threads do not contend on a shared Random.
+            int x = seed;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            seed = x;
+            return x & Integer.MAX_VALUE;
+        }
+
+        @TearDown(Level.Trial)
+        public void releaseBuffers() {
+            for (int i = 0; i < buffers.length; i ++) {
+                if (buffers[i] != null) {
+                    buffers[i].release();
+                    buffers[i] = null;
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int numArenas = Runtime.getRuntime().availableProcessors() * 2;
+        allocator = new PooledByteBufAllocator(
+                true, numArenas, numArenas, 8192, 11, 0, 0, 0, 0, 0, 0, arenaAffinity);
+        sharedBuffers = new AtomicReferenceArray<ByteBuf>(
+                MAX_LIVE_BUFFERS_PER_THREAD * Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < sharedBuffers.length(); i ++) {
+            ByteBuf buf = sharedBuffers.getAndSet(i, null);
+            if (buf != null) {
+                buf.release();
+            }
+        }
+    }
+
+    /**
+     * Buffers are released by the thread which allocated them.
+     */
+    @Benchmark
+    public void allocateAndReleaseSameThread(ThreadState state) {
+        int idx = state.idx++ & MAX_LIVE_BUFFERS_PER_THREAD - 1;
+        ByteBuf oldBuf = state.buffers[idx];
+        if (oldBuf != null) {
+            oldBuf.release();
+        }
+        state.buffers[idx] = allocator.directBuffer(size);
+    }
+
+    /**
+     * Buffers are most likely released by another thread than the one which allocated them.
+     */
+    @Benchmark
+    public void allocateAndReleaseOtherThread(ThreadState state) {
+        int idx = state.nextRandom() % sharedBuffers.length();
+        ByteBuf oldBuf = sharedBuffers.getAndSet(idx, allocator.directBuffer(size));
+        if (oldBuf != null) {
+            oldBuf.release();
+        }
+    }
+
+    @Test
+    @Override
+    public void run() throws Exception {
+        int maxThreads = SystemPropertyUtil.getInt("threads", Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; ; threads <<= 1) {
+            threads = Math.min(threads, maxThreads);
+            new Runner(newOptionsBuilder().threads(threads).build()).run();
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+}
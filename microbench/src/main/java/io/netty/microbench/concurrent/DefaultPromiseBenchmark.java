@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of creating a {@link DefaultPromise}, adding listeners and completing it from within the
+ * event loop, which is what happens for every write in a pipeline.
+ */
+@State(Scope.Benchmark)
+public class DefaultPromiseBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "0", "1", "2", "4" })
+    public int listeners;
+
+    private FutureListener<Void>[] listenerArray;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        listenerArray = new FutureListener[listeners];
+        for (int i = 0; i < listenerArray.length; i ++) {
+            listenerArray[i] = new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) throws Exception {
+                    // NOOP
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    public boolean setSuccess() {
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        for (FutureListener<Void> l: listenerArray) {
+            promise.addListener(l);
+        }
+        promise.setSuccess(null);
+        return promise.isSuccess();
+    }
+}
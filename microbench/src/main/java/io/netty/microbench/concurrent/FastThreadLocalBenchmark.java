@@ -24,7 +24,9 @@ import org.openjdk.jmh.annotations.Threads;
 import java.util.Random;
 
 /**
- * This class benchmarks different allocators with different allocation sizes.
+ * This class benchmarks {@link FastThreadLocal} against {@link ThreadLocal} on the threads of the harness executor,
+ * which are {@link io.netty.util.concurrent.FastThreadLocalThread}s. See {@link FastThreadLocalSlowPathBenchmark} for
+ * ordinary threads.
  */
 @Threads(4)
 @Measurement(iterations = 10, batchSize = 100)
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.concurrent;
+
+/**
+ * Runs the {@link FastThreadLocalBenchmark} on JMH's own threads. They do not implement
+ * {@link io.netty.util.concurrent.FastThreadLocalAccess}, so this covers the path taken by ordinary threads.
+ */
+public class FastThreadLocalSlowPathBenchmark extends FastThreadLocalBenchmark {
+
+    private static final String[] JVM_ARGS;
+
+    static {
+        // Same as AbstractMicrobenchmark, but without the harness executor which creates FastThreadLocalThreads.
+        final String[] customArgs = { "-Xms768m", "-Xmx768m", "-XX:MaxDirectMemorySize=768m" };
+
+        JVM_ARGS = new String[BASE_JVM_ARGS.length + customArgs.length];
+        System.arraycopy(BASE_JVM_ARGS, 0, JVM_ARGS, 0, BASE_JVM_ARGS.length);
+        System.arraycopy(customArgs, 0, JVM_ARGS, BASE_JVM_ARGS.length, customArgs.length);
+    }
+
+    @Override
+    protected String[] jvmArgs() {
+        return JVM_ARGS;
+    }
+}
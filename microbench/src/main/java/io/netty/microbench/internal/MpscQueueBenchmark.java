@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.internal;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * This class benchmarks the throughput of the task queues which may back a
+ * {@link io.netty.util.concurrent.SingleThreadEventExecutor} when many producer threads offer to a single consumer.
+ * The number of producers can be changed with the {@code -tg} option of JMH, e.g. {@code -tg 8,1}.
+ * <p>
+ * Every producer cycles through a fixed set of tokens and only offers a token again once the consumer polled it,
+ * so the unbounded queues can not grow without limits.  Look at the {@code offered} and {@code polled} counters, as
+ * the primary score also includes the failed attempts.
+ */
+@State(Scope.Group)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class MpscQueueBenchmark extends AbstractMicrobenchmark {
+
+    private static final int TOKENS_PER_PRODUCER = 1024;
+    private static final int CAPACITY = 8192;
+
+    public enum QueueType {
+        MPSC_CHUNKED_ARRAY,
+        MPSC_LINKED,
+        LINKED_BLOCKING,
+        ARRAY_BLOCKING,
+        CONCURRENT_LINKED
+    }
+
+    @Param
+    public QueueType queueType;
+
+    private Queue<Token> queue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (queueType) {
+            case MPSC_CHUNKED_ARRAY:
+                queue = PlatformDependent.newMpscQueue(CAPACITY);
+                break;
+            case MPSC_LINKED:
+                queue = PlatformDependent.newMpscQueue();
+                break;
+            case LINKED_BLOCKING:
+                queue = new LinkedBlockingQueue<Token>(CAPACITY);
+                break;
+            case ARRAY_BLOCKING:
+                queue = new ArrayBlockingQueue<Token>(CAPACITY);
+                break;
+            case CONCURRENT_LINKED:
+                queue = new ConcurrentLinkedQueue<Token>();
+                break;
+            default:
+                throw new Error();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+        Token token;
+        while ((token = queue.poll()) != null) {
+            token.queued = false;
+        }
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(4)
+    public boolean offer(ProducerCounters counters) {
+        Token token = counters.tokens[counters.next];
+        if (token.queued) {
+            // The consumer did not catch up yet.
+            counters.offerFailed ++;
+            return false;
+        }
+
+        token.queued = true;
+        if (!queue.offer(token)) {
+            token.queued = false;
+            counters.offerFailed ++;
+            return false;
+        }
+        counters.next = (counters.next + 1) & (TOKENS_PER_PRODUCER - 1);
+        counters.offered ++;
+        return true;
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public Token poll(ConsumerCounters counters) {
+        Token token = queue.poll();
+        if (token == null) {
+            counters.pollFailed ++;
+        } else {
+            token.queued = false;
+            counters.polled ++;
+        }
+        return token;
+    }
+
+    public static final class Token {
+        volatile boolean queued;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class ProducerCounters {
+        final Token[] tokens = new Token[TOKENS_PER_PRODUCER];
+        int next;
+
+        public long offered;
+        public long offerFailed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            for (int i = 0; i < tokens.length; i ++) {
+                tokens[i] = new Token();
+            }
+            next = 0;
+            offered = 0;
+            offerFailed = 0;
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class ConsumerCounters {
+        public long polled;
+        public long pollFailed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            polled = 0;
+            pollFailed = 0;
+        }
+    }
+}
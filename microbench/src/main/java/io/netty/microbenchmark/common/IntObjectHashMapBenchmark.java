@@ -15,7 +15,10 @@
 package io.netty.microbenchmark.common;
 
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.collection.IntHashSet;
+import io.netty.util.collection.IntIntHashMap;
 import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectLruMap;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Level;
@@ -25,16 +28,27 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.infra.Blackhole;
 import uk.co.real_logic.agrona.collections.Int2ObjectHashMap;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
 public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
     private static final Long VALUE = Long.MAX_VALUE;
+    private static final int INT_VALUE = Integer.MAX_VALUE;
 
     public enum MapType {
         AGRONA,
-        NETTY
+        NETTY,
+        JDK,
+        NETTY_INT_INT,
+        JDK_INT_INT,
+        NETTY_SET,
+        JDK_SET,
+        NETTY_LRU,
+        JDK_LRU
     }
 
     public enum KeyDistribution {
@@ -64,6 +78,34 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
                 environment = new NettyEnvironment();
                 break;
             }
+            case JDK: {
+                environment = new JdkEnvironment();
+                break;
+            }
+            case NETTY_INT_INT: {
+                environment = new NettyIntIntEnvironment();
+                break;
+            }
+            case JDK_INT_INT: {
+                environment = new JdkIntIntEnvironment();
+                break;
+            }
+            case NETTY_SET: {
+                environment = new NettySetEnvironment();
+                break;
+            }
+            case JDK_SET: {
+                environment = new JdkSetEnvironment();
+                break;
+            }
+            case NETTY_LRU: {
+                environment = new NettyLruEnvironment();
+                break;
+            }
+            case JDK_LRU: {
+                environment = new JdkLruEnvironment();
+                break;
+            }
             default: {
                 throw new IllegalStateException("Invalid mapType: " + mapType);
             }
@@ -189,4 +231,266 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
             }
         }
     }
+
+    private class JdkEnvironment extends Environment {
+        private final Map<Integer, Long> map = new HashMap<Integer, Long>();
+
+        JdkEnvironment() {
+            for (int key : keys) {
+                map.put(key, VALUE);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            Map<Integer, Long> map = new HashMap<Integer, Long>();
+            for (int key : keys) {
+                bh.consume(map.put(key, VALUE));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            Map<Integer, Long> copy = new HashMap<Integer, Long>(map);
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class NettyIntIntEnvironment extends Environment {
+        private final IntIntHashMap map = new IntIntHashMap();
+
+        NettyIntIntEnvironment() {
+            for (int key : keys) {
+                map.put(key, INT_VALUE);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            IntIntHashMap map = new IntIntHashMap();
+            for (int key : keys) {
+                bh.consume(map.put(key, INT_VALUE));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            IntIntHashMap copy = new IntIntHashMap();
+            for (int key : keys) {
+                copy.put(key, INT_VALUE);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class JdkIntIntEnvironment extends Environment {
+        private final Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+
+        JdkIntIntEnvironment() {
+            for (int key : keys) {
+                map.put(key, INT_VALUE);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+            for (int key : keys) {
+                bh.consume(map.put(key, INT_VALUE));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            Map<Integer, Integer> copy = new HashMap<Integer, Integer>();
+            for (int key : keys) {
+                copy.put(key, INT_VALUE);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class NettySetEnvironment extends Environment {
+        private final IntHashSet set = new IntHashSet();
+
+        NettySetEnvironment() {
+            for (int key : keys) {
+                set.add(key);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            IntHashSet set = new IntHashSet();
+            for (int key : keys) {
+                bh.consume(set.add(key));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(set.contains(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            IntHashSet copy = new IntHashSet();
+            for (int key : keys) {
+                copy.add(key);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class JdkSetEnvironment extends Environment {
+        private final Set<Integer> set = new HashSet<Integer>();
+
+        JdkSetEnvironment() {
+            for (int key : keys) {
+                set.add(key);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            Set<Integer> set = new HashSet<Integer>();
+            for (int key : keys) {
+                bh.consume(set.add(key));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(set.contains(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            Set<Integer> copy = new HashSet<Integer>(set);
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    /**
+     * Bounded to half of the keys, so {@link #put(Blackhole)} also measures evictions.
+     */
+    private class NettyLruEnvironment extends Environment {
+        private final int maxSize = Math.max(1, size / 2);
+        private final IntObjectLruMap<Long> map = new IntObjectLruMap<Long>(maxSize);
+
+        NettyLruEnvironment() {
+            for (int key : keys) {
+                map.put(key, VALUE);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            IntObjectLruMap<Long> map = new IntObjectLruMap<Long>(maxSize);
+            for (int key : keys) {
+                bh.consume(map.put(key, VALUE));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            IntObjectLruMap<Long> copy = new IntObjectLruMap<Long>(maxSize);
+            for (int key : keys) {
+                copy.put(key, VALUE);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
+
+    private class JdkLruEnvironment extends Environment {
+        private final int maxSize = Math.max(1, size / 2);
+        private final Map<Integer, Long> map = newLruMap();
+
+        JdkLruEnvironment() {
+            for (int key : keys) {
+                map.put(key, VALUE);
+            }
+        }
+
+        private Map<Integer, Long> newLruMap() {
+            return new LinkedHashMap<Integer, Long>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            Map<Integer, Long> map = newLruMap();
+            for (int key : keys) {
+                bh.consume(map.put(key, VALUE));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            Map<Integer, Long> copy = newLruMap();
+            for (int key : keys) {
+                copy.put(key, VALUE);
+            }
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+    }
 }
@@ -22,6 +22,7 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.AbstractChannel;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.EventLoop;
 import io.netty.channel.unix.FileDescriptor;
 import io.netty.channel.unix.UnixChannel;
@@ -240,7 +241,11 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
         return localReadAmount;
     }
 
-    protected final int doWriteBytes(ByteBuf buf, int writeSpinCount) throws Exception {
+    /**
+     * Write bytes from the given {@link ByteBuf} and return the amount. Each write is
+     * {@linkplain ChannelOutboundBuffer#recordWrite(long, long) recorded} in the given {@link ChannelOutboundBuffer}.
+     */
+    protected final int doWriteBytes(ChannelOutboundBuffer in, ByteBuf buf, int writeSpinCount) throws Exception {
         int readableBytes = buf.readableBytes();
         int writtenBytes = 0;
         if (buf.hasMemoryAddress()) {
@@ -250,6 +255,7 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
             for (int i = writeSpinCount - 1; i >= 0; i--) {
                 int localFlushedAmount = Native.writeAddress(
                         fileDescriptor.intValue(), memoryAddress, readerIndex, writerIndex);
+                in.recordWrite(writerIndex - readerIndex, localFlushedAmount);
                 if (localFlushedAmount > 0) {
                     writtenBytes += localFlushedAmount;
                     if (writtenBytes == readableBytes) {
@@ -271,6 +277,7 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
                 int pos = nioBuf.position();
                 int limit = nioBuf.limit();
                 int localFlushedAmount = Native.write(fileDescriptor.intValue(), nioBuf, pos, limit);
+                in.recordWrite(limit - pos, localFlushedAmount);
                 if (localFlushedAmount > 0) {
                     nioBuf.position(pos + localFlushedAmount);
                     writtenBytes += localFlushedAmount;
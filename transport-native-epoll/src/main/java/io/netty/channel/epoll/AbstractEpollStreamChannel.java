@@ -82,7 +82,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel {
         }
 
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
-            int writtenBytes = doWriteBytes(buf, writeSpinCount);
+            int writtenBytes = doWriteBytes(in, buf, writeSpinCount);
             in.removeBytes(writtenBytes);
             return writtenBytes == readableBytes;
         } else {
@@ -107,6 +107,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel {
         int end = offset + cnt;
         for (int i = writeSpinCount - 1; i >= 0; i--) {
             long localWrittenBytes = Native.writevAddresses(fd().intValue(), array.memoryAddress(offset), cnt);
+            in.recordWrite(expectedWrittenBytes, localWrittenBytes);
             if (localWrittenBytes == 0) {
                 break;
             }
@@ -149,6 +150,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel {
         int end = offset + nioBufferCnt;
         for (int i = writeSpinCount - 1; i >= 0; i--) {
             long localWrittenBytes = Native.writev(fd().intValue(), nioBuffers, offset, nioBufferCnt);
+            in.recordWrite(expectedWrittenBytes, localWrittenBytes);
             if (localWrittenBytes == 0) {
                 break;
             }
@@ -298,7 +300,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel {
                 in.removeBytes(0);
             }
         } else {
-            ByteBuffer[] buffers = in.nioBuffers();
+            ByteBuffer[] buffers = in.nioBuffers(Native.IOV_MAX, in.maxBytesPerGatheringWrite());
             int cnt = in.nioBufferCount();
             if (cnt >= 1) {
                 // TODO: Handle the case where cnt == 1 specially.
@@ -101,6 +101,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
             // write to the evfd which will then wake-up epoll_wait(...)
             Native.eventFdWrite(eventFd, 1L);
+            recordWakeup();
         }
     }
 
@@ -139,9 +140,9 @@ final class EpollEventLoop extends SingleThreadEventLoop {
     }
 
     @Override
-    protected Queue<Runnable> newTaskQueue() {
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
         // This event loop never calls takeTask()
-        return PlatformDependent.newMpscQueue();
+        return PlatformDependent.newMpscQueue(maxPendingTasks);
     }
 
     /**
@@ -238,7 +239,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             }
 
             final int ioRatio = this.ioRatio;
-            if (ioRatio == 100) {
+            if (ioRatio == 100 && !isMetricEnabled()) {
                 if (ready > 0) {
                     processReady(events, ready);
                 }
@@ -251,7 +252,12 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 }
 
                 final long ioTime = System.nanoTime() - ioStartTime;
-                runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                recordIoTime(ioTime);
+                if (ioRatio == 100) {
+                    runAllTasks();
+                } else {
+                    runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                }
             }
             if (allowGrowing && ready == events.length()) {
                 //increase the size of the array as we needed the whole space for the events
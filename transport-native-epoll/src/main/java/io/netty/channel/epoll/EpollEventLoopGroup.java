@@ -19,6 +19,7 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.ExecutorServiceFactory;
 
 import java.util.concurrent.Executor;
@@ -85,6 +86,22 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         this(nEventLoops, executorServiceFactory, 0);
     }
 
+    /**
+     * @param nEventLoops   the number of {@link EventLoop}s that will be used by this instance.
+     *                      If {@code executor} is {@code null} this number will also be the parallelism
+     *                      requested from the default {@link Executor}. It is generally advised for the number
+     *                      of {@link EventLoop}s and the number of {@link Thread}s used by the
+     *                      {@code executor} to lie very close together.
+     *                      If set to {@code 0} the behaviour is the same as documented in
+     *                      {@link #EpollEventLoopGroup()}.
+     * @param executor  the {@link Executor} to use, or {@code null} if the default should be used.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} which decides which {@link EventLoop} is
+     *                          returned by {@link #next()}.
+     */
+    public EpollEventLoopGroup(int nEventLoops, Executor executor, EventExecutorChooserFactory chooserFactory) {
+        super(nEventLoops, executor, chooserFactory, 0);
+    }
+
     /**
      * @param nEventLoops   the number of {@link EventLoop}s that will be used by this instance.
      *                      If {@code executor} is {@code null} this number will also be the parallelism
@@ -59,6 +59,7 @@ final class IovArray implements MessageProcessor {
     private final long memoryAddress;
     private int count;
     private long size;
+    private long maxBytes = Long.MAX_VALUE;
 
     IovArray() {
         memoryAddress = PlatformDependent.allocateMemory(CAPACITY);
@@ -67,6 +68,15 @@ final class IovArray implements MessageProcessor {
     void clear() {
         count = 0;
         size = 0;
+        maxBytes = Long.MAX_VALUE;
+    }
+
+    /**
+     * Set the maximum number of bytes to add. Once at least one buffer was added, {@link #add(ByteBuf)} and
+     * {@link #add(CompositeByteBuf)} will refuse buffers which would make the total size exceed this limit.
+     */
+    void maxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
     }
 
     /**
@@ -86,6 +96,10 @@ final class IovArray implements MessageProcessor {
             // fetching the next buffers.
             return true;
         }
+        if (maxBytes - len < size && count > 0) {
+            // Adding this buffer would exceed maxBytes and we already have something to write.
+            return false;
+        }
 
         final long addr = buf.memoryAddress();
         final int offset = buf.readerIndex();
@@ -117,7 +131,8 @@ final class IovArray implements MessageProcessor {
 
     /**
      * Try to add the given {@link CompositeByteBuf}. Returns {@code true} on success,
-     * {@code false} otherwise.
+     * {@code false} otherwise. If adding all components would exceed {@link #maxBytes(long)}, only the leading
+     * components which fit are added and {@code false} is returned, so that no buffer is added after them.
      */
     boolean add(CompositeByteBuf buf) {
         ByteBuffer[] buffers = buf.nioBuffers();
@@ -133,6 +148,10 @@ final class IovArray implements MessageProcessor {
                 // No need to add an empty buffer so just continue
                 continue;
             }
+            if (maxBytes - len < size && count > 0) {
+                // Adding this component would exceed maxBytes and we already have something to write.
+                return false;
+            }
             long addr = PlatformDependent.directBufferAddress(nioBuffer);
 
             add(addr, offset, len);
@@ -38,11 +38,13 @@ final class IovArrayThreadLocal {
     };
 
     /**
-     * Returns a {@link IovArray} which is filled with the flushed messages of {@link ChannelOutboundBuffer}.
+     * Returns a {@link IovArray} which is filled with the flushed messages of {@link ChannelOutboundBuffer}, but not
+     * with much more than {@link ChannelOutboundBuffer#maxBytesPerGatheringWrite()} bytes.
      */
     static IovArray get(ChannelOutboundBuffer buffer) throws Exception {
         IovArray array = ARRAY.get();
         array.clear();
+        array.maxBytes(buffer.maxBytesPerGatheringWrite());
         buffer.forEachFlushedMessage(array);
         return array;
     }
@@ -457,7 +457,7 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
         }
 
         @Override
-        public final void register(EventLoop eventLoop, final ChannelPromise promise) {
+        public final void register(final EventLoop eventLoop, final ChannelPromise promise) {
             if (eventLoop == null) {
                 throw new NullPointerException("eventLoop");
             }
@@ -482,20 +482,23 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                 AbstractChannel.this.eventLoop.unwrapped = eventLoop;
             }
 
+            // Count the channel right away so that load-aware choosers see registrations which are still in progress.
+            updateRegisteredChannels(eventLoop, 1);
             if (eventLoop.inEventLoop()) {
-                register0(promise);
+                register0(eventLoop, promise);
             } else {
                 try {
                     eventLoop.execute(new OneTimeTask() {
                         @Override
                         public void run() {
-                            register0(promise);
+                            register0(eventLoop, promise);
                         }
                     });
                 } catch (Throwable t) {
                     logger.warn(
                             "Force-closing a channel whose registration task was not accepted by an event loop: {}",
                             AbstractChannel.this, t);
+                    updateRegisteredChannels(eventLoop, -1);
                     closeForcibly();
                     closeFuture.setClosed();
                     safeSetFailure(promise, t);
@@ -503,7 +506,8 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
             }
         }
 
-        private void register0(ChannelPromise promise) {
+        private void register0(EventLoop loop, ChannelPromise promise) {
+            boolean success = false;
             try {
                 // check if the channel is still open as it could be closed in the mean time when the register
                 // call was outside of the eventLoop
@@ -514,6 +518,7 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                 doRegister();
                 neverRegistered = false;
                 registered = true;
+                success = true;
                 eventLoop.acceptNewTasks();
                 safeSetSuccess(promise);
                 pipeline.fireChannelRegistered();
@@ -527,6 +532,10 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                 closeForcibly();
                 closeFuture.setClosed();
                 safeSetFailure(promise, t);
+            } finally {
+                if (!success) {
+                    updateRegisteredChannels(loop, -1);
+                }
             }
         }
 
@@ -735,6 +744,7 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
             } finally {
                 if (registered) {
                     registered = false;
+                    updateRegisteredChannels(eventLoop.unwrap(), -1);
                     safeSetSuccess(promise);
                     pipeline.fireChannelUnregistered();
                 } else {
@@ -997,6 +1007,12 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
         return msg;
     }
 
+    private static void updateRegisteredChannels(EventLoop eventLoop, int delta) {
+        if (eventLoop instanceof SingleThreadEventLoop) {
+            ((SingleThreadEventLoop) eventLoop).updateRegisteredChannels(delta);
+        }
+    }
+
     static final class CloseFuture extends DefaultChannelPromise {
 
         CloseFuture(AbstractChannel ch) {
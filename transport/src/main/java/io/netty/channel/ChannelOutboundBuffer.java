@@ -42,6 +42,8 @@ import java.util.concurrent.atomic.AtomicLongFieldUpdater;
  * <li>{@link #size()} and {@link #isEmpty()}</li>
  * <li>{@link #isWritable()}</li>
  * <li>{@link #getUserDefinedWritability(int)} and {@link #setUserDefinedWritability(int, boolean)}</li>
+ * <li>{@link #writeCount()}, {@link #partialWriteCount()}, {@link #zeroByteWriteCount()} and
+ * {@link #writtenBytes()}</li>
  * </ul>
  * </p>
  */
@@ -49,6 +51,9 @@ public final class ChannelOutboundBuffer {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ChannelOutboundBuffer.class);
 
+    // Never shrink the number of bytes to gather below this, small writes are cheap to retry.
+    private static final int MIN_BYTES_PER_GATHERING_WRITE = 4096;
+
     private static final FastThreadLocal<ByteBuffer[]> NIO_BUFFERS = new FastThreadLocal<ByteBuffer[]>() {
         @Override
         protected ByteBuffer[] initialValue() throws Exception {
@@ -72,6 +77,15 @@ public final class ChannelOutboundBuffer {
     private int nioBufferCount;
     private long nioBufferSize;
 
+    // Adjusted by recordWrite(...) to what the socket accepted by a single write recently.
+    private long maxBytesPerGatheringWrite = Integer.MAX_VALUE;
+
+    // Written by the I/O thread only, volatile so that they can be inspected by other threads.
+    private volatile long writeCount;
+    private volatile long partialWriteCount;
+    private volatile long zeroByteWriteCount;
+    private volatile long totalWrittenBytes;
+
     private boolean inFail;
 
     private static final AtomicLongFieldUpdater<ChannelOutboundBuffer> TOTAL_PENDING_SIZE_UPDATER;
@@ -353,6 +367,27 @@ public final class ChannelOutboundBuffer {
      * </p>
      */
     public ByteBuffer[] nioBuffers() {
+        return nioBuffers(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns an array of direct NIO buffers if the currently pending messages are made of {@link ByteBuf} only.
+     * {@link #nioBufferCount()} and {@link #nioBufferSize()} will return the number of NIO buffers in the returned
+     * array and the total number of readable bytes of the NIO buffers respectively.
+     * <p>
+     * Note that the returned array is reused and thus should not escape
+     * {@link AbstractChannel#doWrite(ChannelOutboundBuffer)}.
+     * Refer to {@link NioSocketChannel#doWrite(ChannelOutboundBuffer)} for an example.
+     * </p>
+     *
+     * @param maxCount The maximum amount of buffers that will be added to the return value.
+     * @param maxBytes A hint toward the maximum number of bytes to include as part of the return value. Note that this
+     *                 value maybe exceeded because we make a best effort to include at least 1 {@link ByteBuffer}
+     *                 in the return value to ensure write progress is made.
+     */
+    public ByteBuffer[] nioBuffers(int maxCount, long maxBytes) {
+        assert maxCount > 0;
+        assert maxBytes > 0;
         long nioBufferSize = 0;
         int nioBufferCount = 0;
         final InternalThreadLocalMap threadLocalMap = InternalThreadLocalMap.get();
@@ -365,13 +400,18 @@ public final class ChannelOutboundBuffer {
                 final int readableBytes = buf.writerIndex() - readerIndex;
 
                 if (readableBytes > 0) {
-                    nioBufferSize += readableBytes;
+                    if (maxBytes - readableBytes < nioBufferSize && nioBufferCount != 0) {
+                        // Adding this buffer would exceed maxBytes and we already have something to write, so stop
+                        // here. Writing more than the socket accepts at once only costs us time spent on building
+                        // the array and on processing the partial write afterwards.
+                        break;
+                    }
                     int count = entry.count;
                     if (count == -1) {
                         //noinspection ConstantValueVariableUse
                         entry.count = count =  buf.nioBufferCount();
                     }
-                    int neededSpace = nioBufferCount + count;
+                    int neededSpace = Math.min(maxCount, nioBufferCount + count);
                     if (neededSpace > nioBuffers.length) {
                         nioBuffers = expandNioBufferArray(nioBuffers, neededSpace, nioBufferCount);
                         NIO_BUFFERS.set(threadLocalMap, nioBuffers);
@@ -384,6 +424,7 @@ public final class ChannelOutboundBuffer {
                             entry.buf = nioBuf = buf.internalNioBuffer(readerIndex, readableBytes);
                         }
                         nioBuffers[nioBufferCount ++] = nioBuf;
+                        nioBufferSize += readableBytes;
                     } else {
                         ByteBuffer[] nioBufs = entry.bufs;
                         if (nioBufs == null) {
@@ -391,7 +432,19 @@ public final class ChannelOutboundBuffer {
                             // of Object allocation
                             entry.bufs = nioBufs = buf.nioBuffers();
                         }
-                        nioBufferCount = fillBufferArray(nioBufs, nioBuffers, nioBufferCount);
+                        int oldNioBufferCount = nioBufferCount;
+                        nioBufferCount = fillBufferArray(nioBufs, nioBuffers, nioBufferCount, maxCount);
+                        if (nioBufferCount - oldNioBufferCount < count) {
+                            // Only some of the buffers were added because of maxCount, so only count their bytes.
+                            for (int i = oldNioBufferCount; i < nioBufferCount; i ++) {
+                                nioBufferSize += nioBuffers[i].remaining();
+                            }
+                        } else {
+                            nioBufferSize += readableBytes;
+                        }
+                    }
+                    if (nioBufferCount == maxCount) {
+                        break;
                     }
                 }
             }
@@ -403,9 +456,10 @@ public final class ChannelOutboundBuffer {
         return nioBuffers;
     }
 
-    private static int fillBufferArray(ByteBuffer[] nioBufs, ByteBuffer[] nioBuffers, int nioBufferCount) {
+    private static int fillBufferArray(ByteBuffer[] nioBufs, ByteBuffer[] nioBuffers, int nioBufferCount,
+                                       int maxCount) {
         for (ByteBuffer nioBuf: nioBufs) {
-            if (nioBuf == null) {
+            if (nioBuf == null || nioBufferCount == maxCount) {
                 break;
             }
             nioBuffers[nioBufferCount ++] = nioBuf;
@@ -450,6 +504,73 @@ public final class ChannelOutboundBuffer {
         return nioBufferSize;
     }
 
+    /**
+     * Returns the number of bytes a transport should gather for a single write operation, as learned by
+     * {@link #recordWrite(long, long)}. Pass it to {@link #nioBuffers(int, long)} to not gather much more than the
+     * socket is able to accept at once.
+     */
+    public long maxBytesPerGatheringWrite() {
+        return maxBytesPerGatheringWrite;
+    }
+
+    /**
+     * Notify this {@link ChannelOutboundBuffer} about a single write operation of the transport, which tried to write
+     * {@code attemptedBytes} and actually wrote {@code writtenBytes}. This updates the write statistics of the
+     * {@link Channel} and {@linkplain #maxBytesPerGatheringWrite() the number of bytes to gather} for the next write:
+     * it is doubled if everything was written and halved if the socket accepted less than half of what was attempted.
+     */
+    public void recordWrite(long attemptedBytes, long writtenBytes) {
+        writeCount++;
+        if (writtenBytes <= 0) {
+            // The socket buffer is full, which tells nothing about how much it accepts once drained.
+            zeroByteWriteCount++;
+            return;
+        }
+        totalWrittenBytes += writtenBytes;
+        if (writtenBytes >= attemptedBytes) {
+            long newMaxBytes = attemptedBytes << 1;
+            if (newMaxBytes > maxBytesPerGatheringWrite) {
+                maxBytesPerGatheringWrite = Math.min(newMaxBytes, Integer.MAX_VALUE);
+            }
+        } else {
+            partialWriteCount++;
+            if (writtenBytes < attemptedBytes >>> 1) {
+                maxBytesPerGatheringWrite = Math.max(attemptedBytes >>> 1, MIN_BYTES_PER_GATHERING_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of write operations {@linkplain #recordWrite(long, long) recorded} for the {@link Channel}.
+     */
+    public long writeCount() {
+        return writeCount;
+    }
+
+    /**
+     * Returns the number of {@linkplain #recordWrite(long, long) recorded} write operations which were not able to
+     * write everything that was attempted, but made progress.
+     */
+    public long partialWriteCount() {
+        return partialWriteCount;
+    }
+
+    /**
+     * Returns the number of {@linkplain #recordWrite(long, long) recorded} write operations which did not write
+     * anything because the socket buffer was full.
+     */
+    public long zeroByteWriteCount() {
+        return zeroByteWriteCount;
+    }
+
+    /**
+     * Returns the total number of bytes written by the {@linkplain #recordWrite(long, long) recorded} write
+     * operations.
+     */
+    public long writtenBytes() {
+        return totalWrittenBytes;
+    }
+
     /**
      * Returns {@code true} if and only if {@linkplain #totalPendingWriteBytes() the total number of pending bytes} did
      * not exceed the write watermark of the {@link Channel} and
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+
+/**
+ * {@link EventExecutorChooserFactory} which chooses the {@link SingleThreadEventLoop} with the fewest
+ * {@link SingleThreadEventLoop#registeredChannels()}, which keeps long-lived connections evenly spread over the
+ * {@link EventLoop}s of a {@link MultithreadEventLoopGroup}. Other {@link EventExecutor}s are treated as idle.
+ */
+public final class LeastRegisteredChannelsEventLoopChooserFactory extends LoadAwareEventExecutorChooserFactory {
+
+    public static final LeastRegisteredChannelsEventLoopChooserFactory INSTANCE =
+            new LeastRegisteredChannelsEventLoopChooserFactory();
+
+    private LeastRegisteredChannelsEventLoopChooserFactory() { }
+
+    @Override
+    protected long load(EventExecutor executor) {
+        if (executor instanceof SingleThreadEventLoop) {
+            return ((SingleThreadEventLoop) executor).registeredChannels();
+        }
+        return 0;
+    }
+}
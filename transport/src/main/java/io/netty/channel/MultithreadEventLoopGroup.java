@@ -15,13 +15,16 @@
  */
 package io.netty.channel;
 
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.ExecutorServiceFactory;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
+import io.netty.util.internal.OneTimeTask;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Abstract base class for {@link EventLoopGroup} implementations that handle their tasks with multiple threads at
@@ -58,6 +61,27 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
         super(nEventLoops == 0 ? DEFAULT_EVENT_LOOP_THREADS : nEventLoops, executorServiceFactory, args);
     }
 
+    /**
+     * @see {@link MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, Executor,
+     *      EventExecutorChooserFactory, Object...)}
+     */
+    protected MultithreadEventLoopGroup(int nEventLoops, Executor executor,
+                                        EventExecutorChooserFactory chooserFactory, Object... args) {
+        super(nEventLoops == 0 ? DEFAULT_EVENT_LOOP_THREADS : nEventLoops, executor, chooserFactory, args);
+    }
+
+    /**
+     * @see {@link MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, ExecutorServiceFactory,
+     *      EventExecutorChooserFactory, Object...)}
+     */
+    protected MultithreadEventLoopGroup(int nEventLoops,
+                                        ExecutorServiceFactory executorServiceFactory,
+                                        EventExecutorChooserFactory chooserFactory,
+                                        Object... args) {
+        super(nEventLoops == 0 ? DEFAULT_EVENT_LOOP_THREADS : nEventLoops, executorServiceFactory, chooserFactory,
+              args);
+    }
+
     @Override
     public EventLoop next() {
         return (EventLoop) super.next();
@@ -75,4 +99,70 @@ public abstract class MultithreadEventLoopGroup extends MultithreadEventExecutor
     public ChannelFuture register(Channel channel, ChannelPromise promise) {
         return next().register(channel, promise);
     }
+
+    /**
+     * Moves the given {@link Channel} to the {@link EventLoop} returned by {@link #next()} by deregistering it from
+     * its current {@link EventLoop} and registering it with the new one. This is most useful together with a
+     * load-aware {@link EventExecutorChooserFactory} like {@link LeastRegisteredChannelsEventLoopChooserFactory} to
+     * rebalance long-lived connections.
+     * <p>
+     * The {@link Channel} should be quiescent, which means it should neither have pending writes nor tasks scheduled
+     * by its handlers, as no new tasks are accepted while it is not registered. The migration fails with an
+     * {@link IllegalStateException} if the {@link Channel} has pending writes. If
+     * {@link ChannelConfig#isAutoRead()} is {@code true} reading is resumed once the {@link Channel} is registered
+     * again.
+     *
+     * @return the {@link ChannelFuture} which is notified once the {@link Channel} was registered again, or right
+     *         away if it is registered with the chosen {@link EventLoop} already.
+     */
+    public ChannelFuture migrate(final Channel channel) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        final EventLoop target = next();
+        final ChannelPromise promise = new DefaultChannelPromise(channel, target);
+        if (!channel.isRegistered()) {
+            return promise.setFailure(new IllegalStateException("channel not registered: " + channel));
+        }
+        final EventLoop current = channel.eventLoop().unwrap();
+        if (current == target) {
+            return promise.setSuccess();
+        }
+
+        OneTimeTask migrateTask = new OneTimeTask() {
+            @Override
+            public void run() {
+                ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+                if (buffer != null && !buffer.isEmpty()) {
+                    promise.setFailure(new IllegalStateException("channel has pending writes: " + channel));
+                    return;
+                }
+                channel.deregister().addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (!future.isSuccess()) {
+                            promise.setFailure(future.cause());
+                            return;
+                        }
+                        target.register(channel, promise).addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) throws Exception {
+                                // The interest in reads is not retained by every transport, so trigger a read again.
+                                if (future.isSuccess() && channel.config().isAutoRead()) {
+                                    channel.read();
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+        };
+        try {
+            current.execute(migrateTask);
+        } catch (RejectedExecutionException e) {
+            // The current event loop is shutting down, report it like any other failure of the migration.
+            promise.setFailure(e);
+        }
+        return promise;
+    }
 }
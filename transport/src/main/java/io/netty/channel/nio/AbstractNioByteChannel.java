@@ -197,7 +197,9 @@ public abstract class AbstractNioByteChannel extends AbstractNioChannel {
                     writeSpinCount = config().getWriteSpinCount();
                 }
                 for (int i = writeSpinCount - 1; i >= 0; i --) {
+                    int attemptedBytes = buf.readableBytes();
                     int localFlushedAmount = doWriteBytes(buf);
+                    in.recordWrite(attemptedBytes, localFlushedAmount);
                     if (localFlushedAmount == 0) {
                         setOpWrite = true;
                         break;
@@ -161,9 +161,9 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     }
 
     @Override
-    protected Queue<Runnable> newTaskQueue() {
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
         // This event loop never calls takeTask()
-        return PlatformDependent.newMpscQueue();
+        return PlatformDependent.newMpscQueue(maxPendingTasks);
     }
 
     /**
@@ -342,7 +342,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
             cancelledKeys = 0;
             needsToSelectAgain = false;
             final int ioRatio = this.ioRatio;
-            if (ioRatio == 100) {
+            if (ioRatio == 100 && !isMetricEnabled()) {
                 processSelectedKeys();
                 runAllTasks();
             } else {
@@ -351,7 +351,12 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 processSelectedKeys();
 
                 final long ioTime = System.nanoTime() - ioStartTime;
-                runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                recordIoTime(ioTime);
+                if (ioRatio == 100) {
+                    runAllTasks();
+                } else {
+                    runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                }
             }
 
             if (isShuttingDown()) {
@@ -592,6 +597,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     protected void wakeup(boolean inEventLoop) {
         if (!inEventLoop && wakenUp.compareAndSet(false, true)) {
             selector.wakeup();
+            recordWakeup();
         }
     }
 
@@ -19,6 +19,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.ExecutorServiceFactory;
 
 import java.nio.channels.Selector;
@@ -106,6 +107,24 @@ public class NioEventLoopGroup extends MultithreadEventLoopGroup {
         super(nEventLoops, executor, selectorProvider);
     }
 
+    /**
+     * @param nEventLoops   the number of {@link EventLoop}s that will be used by this instance.
+     *                      If {@code executor} is {@code null} this number will also be the parallelism
+     *                      requested from the default {@link Executor}. It is generally advised for the number
+     *                      of {@link EventLoop}s and the number of {@link Thread}s used by the
+     *                      {@code executor} to lie close together.
+     *                      If set to {@code 0} the behaviour is the same as documented in
+     *                      {@link #NioEventLoopGroup()}.
+     * @param executor  the {@link Executor} to use, or {@code null} if the default should be used.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} which decides which {@link EventLoop} is
+     *                          returned by {@link #next()}.
+     * @param selectorProvider  the {@link SelectorProvider} to use. This value must not be {@code null}.
+     */
+    public NioEventLoopGroup(int nEventLoops, Executor executor, EventExecutorChooserFactory chooserFactory,
+                             final SelectorProvider selectorProvider) {
+        super(nEventLoops, executor, chooserFactory, selectorProvider);
+    }
+
     /**
      * @param nEventLoops   the number of {@link EventLoop}s that will be used by this instance.
      *                      If {@code executorServiceFactory} is {@code null} this number will also be the parallelism
@@ -48,6 +48,8 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
 
     private static final ChannelMetadata METADATA = new ChannelMetadata(false);
     private static final SelectorProvider DEFAULT_SELECTOR_PROVIDER = SelectorProvider.provider();
+    // IOV_MAX on Linux, more buffers can not be passed to a single writev(...) call anyway.
+    private static final int MAX_GATHERING_WRITE_BUFFERS = 1024;
 
     private static SocketChannel newSocket(SelectorProvider provider) {
         try {
@@ -254,25 +256,26 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
 
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
-        for (;;) {
-            int size = in.size();
-            if (size == 0) {
+        SocketChannel ch = javaChannel();
+        // The spin count is shared by all writes done here so a Channel with a lot of pending data can not monopolize
+        // the EventLoop and starve the other Channels which are registered to it.
+        int writeSpinCount = config().getWriteSpinCount();
+        do {
+            if (in.isEmpty()) {
                 // All written so clear OP_WRITE
                 clearOpWrite();
-                break;
+                return;
             }
-            long writtenBytes = 0;
-            boolean done = false;
-            boolean setOpWrite = false;
 
-            // Ensure the pending writes are made of ByteBufs only.
-            ByteBuffer[] nioBuffers = in.nioBuffers();
+            // Ensure the pending writes are made of ByteBufs only and gather not much more than the socket accepted
+            // by recent writes.
+            ByteBuffer[] nioBuffers = in.nioBuffers(MAX_GATHERING_WRITE_BUFFERS, in.maxBytesPerGatheringWrite());
             int nioBufferCnt = in.nioBufferCount();
-            long expectedWrittenBytes = in.nioBufferSize();
-            SocketChannel ch = javaChannel();
+            long attemptedBytes = in.nioBufferSize();
 
             // Always us nioBuffers() to workaround data-corruption.
             // See https://github.com/netty/netty/issues/2761
+            final long localWrittenBytes;
             switch (nioBufferCnt) {
                 case 0:
                     // We have something else beside ByteBuffers to write so fallback to normal writes.
@@ -280,46 +283,28 @@ public class NioSocketChannel extends AbstractNioByteChannel implements io.netty
                     return;
                 case 1:
                     // Only one ByteBuf so use non-gathering write
-                    ByteBuffer nioBuffer = nioBuffers[0];
-                    for (int i = config().getWriteSpinCount() - 1; i >= 0; i --) {
-                        final int localWrittenBytes = ch.write(nioBuffer);
-                        if (localWrittenBytes == 0) {
-                            setOpWrite = true;
-                            break;
-                        }
-                        expectedWrittenBytes -= localWrittenBytes;
-                        writtenBytes += localWrittenBytes;
-                        if (expectedWrittenBytes == 0) {
-                            done = true;
-                            break;
-                        }
-                    }
+                    localWrittenBytes = ch.write(nioBuffers[0]);
                     break;
                 default:
-                    for (int i = config().getWriteSpinCount() - 1; i >= 0; i --) {
-                        final long localWrittenBytes = ch.write(nioBuffers, 0, nioBufferCnt);
-                        if (localWrittenBytes == 0) {
-                            setOpWrite = true;
-                            break;
-                        }
-                        expectedWrittenBytes -= localWrittenBytes;
-                        writtenBytes += localWrittenBytes;
-                        if (expectedWrittenBytes == 0) {
-                            done = true;
-                            break;
-                        }
-                    }
+                    localWrittenBytes = ch.write(nioBuffers, 0, nioBufferCnt);
                     break;
             }
+            in.recordWrite(attemptedBytes, localWrittenBytes);
+            if (localWrittenBytes <= 0) {
+                // The socket buffer is full, wait until it becomes writable again.
+                incompleteWrite(true);
+                return;
+            }
 
             // Release the fully written buffers, and update the indexes of the partially written buffer.
-            in.removeBytes(writtenBytes);
+            in.removeBytes(localWrittenBytes);
+        } while (--writeSpinCount > 0);
 
-            if (!done) {
-                // Did not write all buffers completely.
-                incompleteWrite(setOpWrite);
-                break;
-            }
+        if (in.isEmpty()) {
+            clearOpWrite();
+        } else {
+            // Used up the spin count, schedule the rest so other Channels get a chance to write as well.
+            incompleteWrite(false);
         }
     }
 
@@ -118,6 +118,87 @@ public class ChannelOutboundBufferTest {
         buf.release();
     }
 
+    @Test
+    public void testNioBuffersMaxCount() {
+        TestChannel channel = new TestChannel();
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        CompositeByteBuf comp = compositeBuffer(256);
+        ByteBuf buf = directBuffer().writeBytes("buf1".getBytes(CharsetUtil.US_ASCII));
+        for (int i = 0; i < 65; i++) {
+            comp.addComponent(buf.copy()).writerIndex(comp.writerIndex() + buf.readableBytes());
+        }
+        buffer.addMessage(comp, comp.readableBytes(), channel.voidPromise());
+        buffer.addMessage(buf.copy(), buf.readableBytes(), channel.voidPromise());
+        buffer.addFlush();
+
+        ByteBuffer[] buffers = buffer.nioBuffers(10, Long.MAX_VALUE);
+        assertEquals(10, buffer.nioBufferCount());
+        // Only the bytes of the components that were added are counted.
+        assertEquals(40, buffer.nioBufferSize());
+        for (int i = 0;  i < buffer.nioBufferCount(); i++) {
+            assertEquals(buffers[i], buf.internalNioBuffer(0, buf.readableBytes()));
+        }
+        release(buffer);
+        buf.release();
+    }
+
+    @Test
+    public void testNioBuffersMaxBytes() {
+        TestChannel channel = new TestChannel();
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        ByteBuf buf = directBuffer().writeBytes("buf1".getBytes(CharsetUtil.US_ASCII));
+        for (int i = 0; i < 64; i++) {
+            buffer.addMessage(buf.copy(), buf.readableBytes(), channel.voidPromise());
+        }
+        buffer.addFlush();
+
+        buffer.nioBuffers(Integer.MAX_VALUE, 10);
+        assertEquals(2, buffer.nioBufferCount());
+        assertEquals(8, buffer.nioBufferSize());
+
+        // At least one buffer is always included to make progress.
+        buffer.nioBuffers(Integer.MAX_VALUE, 1);
+        assertEquals(1, buffer.nioBufferCount());
+        assertEquals(4, buffer.nioBufferSize());
+        release(buffer);
+        buf.release();
+    }
+
+    @Test
+    public void testRecordWrite() {
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(new TestChannel());
+        assertEquals(Integer.MAX_VALUE, buffer.maxBytesPerGatheringWrite());
+
+        // The socket accepted only a quarter of what we tried to write, so gather less next time.
+        buffer.recordWrite(1024 * 1024, 256 * 1024);
+        assertEquals(512 * 1024, buffer.maxBytesPerGatheringWrite());
+
+        // A full socket buffer tells nothing about its capacity.
+        buffer.recordWrite(512 * 1024, 0);
+        assertEquals(512 * 1024, buffer.maxBytesPerGatheringWrite());
+
+        // Partial writes which still wrote more than half do not shrink it.
+        buffer.recordWrite(512 * 1024, 300 * 1024);
+        assertEquals(512 * 1024, buffer.maxBytesPerGatheringWrite());
+
+        // Never shrink to less than 4096 bytes.
+        buffer.recordWrite(6000, 100);
+        assertEquals(4096, buffer.maxBytesPerGatheringWrite());
+
+        // Everything was written, so try to gather more next time.
+        buffer.recordWrite(4096, 4096);
+        assertEquals(8192, buffer.maxBytesPerGatheringWrite());
+
+        assertEquals(5, buffer.writeCount());
+        assertEquals(3, buffer.partialWriteCount());
+        assertEquals(1, buffer.zeroByteWriteCount());
+        assertEquals(256 * 1024 + 300 * 1024 + 100 + 4096, buffer.writtenBytes());
+    }
+
     private static void release(ChannelOutboundBuffer buffer) {
         for (;;) {
             if (!buffer.remove()) {
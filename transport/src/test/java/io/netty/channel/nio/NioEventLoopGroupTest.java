@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.nio;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.LeastRegisteredChannelsEventLoopChooserFactory;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Test;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class NioEventLoopGroupTest {
+
+    @Test(timeout = 10000)
+    public void testLeastRegisteredChannelsChooser() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(2, null,
+                LeastRegisteredChannelsEventLoopChooserFactory.INSTANCE, SelectorProvider.provider());
+        try {
+            Iterator<EventLoop> loops = group.<EventLoop>children().iterator();
+            SingleThreadEventLoop loop1 = (SingleThreadEventLoop) loops.next();
+            SingleThreadEventLoop loop2 = (SingleThreadEventLoop) loops.next();
+
+            Channel ch1 = new NioSocketChannel();
+            Channel ch2 = new NioSocketChannel();
+            Channel ch3 = new NioSocketChannel();
+            loop1.register(ch1).sync();
+            loop1.register(ch2).sync();
+            assertEquals(2, loop1.registeredChannels());
+            assertEquals(0, loop2.registeredChannels());
+
+            group.register(ch3).sync();
+            assertSame(loop2, ch3.eventLoop().unwrap());
+            assertEquals(1, loop2.registeredChannels());
+
+            ch3.close().sync();
+            // The deregistration happens in a later task.
+            runPendingTasks(loop2);
+            assertEquals(0, loop2.registeredChannels());
+
+            // Moves one of the channels of loop1 to the less loaded loop2.
+            group.migrate(ch1).sync();
+            assertTrue(ch1.isRegistered());
+            assertSame(loop2, ch1.eventLoop().unwrap());
+            assertEquals(1, loop1.registeredChannels());
+            assertEquals(1, loop2.registeredChannels());
+
+            // Both loops are equally loaded now, so migrating again either keeps the channel or moves it.
+            group.migrate(ch2).sync();
+            assertTrue(ch2.isRegistered());
+            assertEquals(2, loop1.registeredChannels() + loop2.registeredChannels());
+
+            ch1.close().sync();
+            ch2.close().sync();
+            runPendingTasks(loop1);
+            runPendingTasks(loop2);
+            assertEquals(0, loop1.registeredChannels());
+            assertEquals(0, loop2.registeredChannels());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private static void runPendingTasks(EventLoop loop) throws Exception {
+        loop.submit(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        }).sync();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.pool.FixedChannelPool.AcquireTimeoutAction;
+import io.netty.util.concurrent.Future;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class FixedChannelPoolTest {
+    private static final String LOCAL_ADDR_ID = "test.id";
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void createEventLoop() {
+        group = new DefaultEventLoopGroup();
+    }
+
+    @AfterClass
+    public static void destroyEventLoop() {
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+    }
+
+    private static Bootstrap newBootstrap(LocalAddress addr) {
+        Bootstrap cb = new Bootstrap();
+        cb.remoteAddress(addr);
+        cb.group(group)
+          .channel(LocalChannel.class);
+        return cb;
+    }
+
+    private static Channel startServer(LocalAddress addr) throws Exception {
+        ServerBootstrap sb = new ServerBootstrap();
+        sb.group(group)
+          .channel(LocalServerChannel.class)
+          .childHandler(new ChannelInitializer<LocalChannel>() {
+              @Override
+              public void initChannel(LocalChannel ch) throws Exception {
+                  ch.pipeline().addLast(new ChannelHandlerAdapter());
+              }
+          });
+        return sb.bind(addr).syncUninterruptibly().channel();
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Channel sc = startServer(addr);
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+
+        ChannelPool pool = new FixedChannelPool(newBootstrap(addr), handler, 1, Integer.MAX_VALUE);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        Future<Channel> future = pool.acquire();
+        assertFalse(future.isDone());
+
+        pool.release(channel).syncUninterruptibly();
+        assertTrue(future.await(1, TimeUnit.SECONDS));
+
+        Channel channel2 = future.getNow();
+        assertSame(channel, channel2);
+        assertEquals(1, handler.channelCount());
+
+        pool.release(channel2).syncUninterruptibly();
+        sc.close().syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testAcquireTimeout() throws Exception {
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Channel sc = startServer(addr);
+        ChannelPoolHandler handler = new CountingChannelPoolHandler();
+        ChannelPool pool = new FixedChannelPool(newBootstrap(addr), handler, ChannelHealthChecker.ACTIVE,
+                                                AcquireTimeoutAction.FAIL, 500, 1, Integer.MAX_VALUE);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        Future<Channel> future = pool.acquire();
+        try {
+            future.syncUninterruptibly();
+        } finally {
+            sc.close().syncUninterruptibly();
+            channel.close().syncUninterruptibly();
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testAcquireNewConnection() throws Exception {
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Channel sc = startServer(addr);
+        ChannelPoolHandler handler = new CountingChannelPoolHandler();
+        ChannelPool pool = new FixedChannelPool(newBootstrap(addr), handler, ChannelHealthChecker.ACTIVE,
+                                                AcquireTimeoutAction.NEW, 500, 1, Integer.MAX_VALUE);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        Channel channel2 = pool.acquire().syncUninterruptibly().getNow();
+        assertNotSame(channel, channel2);
+        sc.close().syncUninterruptibly();
+        channel.close().syncUninterruptibly();
+        channel2.close().syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAcquireBoundQueue() throws Exception {
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Channel sc = startServer(addr);
+        ChannelPoolHandler handler = new CountingChannelPoolHandler();
+        ChannelPool pool = new FixedChannelPool(newBootstrap(addr), handler, 1, 1);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        Future<Channel> future = pool.acquire();
+        assertFalse(future.isDone());
+
+        try {
+            pool.acquire().syncUninterruptibly();
+        } finally {
+            sc.close().syncUninterruptibly();
+            channel.close().syncUninterruptibly();
+            pool.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseDifferentPool() throws Exception {
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Channel sc = startServer(addr);
+        ChannelPoolHandler handler = new CountingChannelPoolHandler();
+        Bootstrap cb = newBootstrap(addr);
+        ChannelPool pool = new FixedChannelPool(cb, handler, 1, 1);
+        ChannelPool pool2 = new FixedChannelPool(cb, handler, 1, 1);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+
+        try {
+            pool2.release(channel).syncUninterruptibly();
+        } finally {
+            sc.close().syncUninterruptibly();
+            channel.close().syncUninterruptibly();
+            pool.close();
+            pool2.close();
+        }
+    }
+
+    @Test
+    public void testCloseFailsPendingAcquires() throws Exception {
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        Channel sc = startServer(addr);
+        ChannelPoolHandler handler = new CountingChannelPoolHandler();
+        ChannelPool pool = new FixedChannelPool(newBootstrap(addr), handler, 1, Integer.MAX_VALUE);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        Future<Channel> future = pool.acquire();
+        assertFalse(future.isDone());
+
+        pool.close();
+        assertTrue(future.await(1, TimeUnit.SECONDS));
+        assertFalse(future.isSuccess());
+
+        // The pool is closed, so releasing the Channel closes it.
+        assertFalse(pool.release(channel).await().isSuccess());
+        channel.closeFuture().syncUninterruptibly();
+        sc.close().syncUninterruptibly();
+    }
+}